@@ -0,0 +1,195 @@
+package ua.procamp;
+
+import org.openjdk.jmh.annotations.*;
+import ua.procamp.data.AccountGenerator;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks every {@link AccountAnalytics} query over generated accounts for every implementation. Accounts are
+ * generated with a fixed seed, so all runs measure the same data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class AccountAnalyticsBenchmark {
+    private static final long SEED = 20181018L;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"STREAM", "PARALLEL", "COLUMNAR", "INDEXED", "SHARDED"})
+    private String implementation;
+
+    private ForkJoinPool pool;
+    private AccountAnalytics analytics;
+    private String emailDomain;
+    private String email;
+    private AccountFilter filter;
+
+    @Setup
+    public void setUp() {
+        List<Account> accounts = AccountGenerator.create(SEED).generateList(size);
+        Account account = accounts.get(size / 2);
+        email = account.getEmail();
+        emailDomain = email.substring(email.indexOf('@') + 1);
+        filter = AccountFilter.all().withSex(Sex.MALE).withEmailDomain(emailDomain).withBirthdayMonth(Month.MARCH)
+                .withBalanceAbove(BigDecimal.valueOf(100000));
+        switch (implementation) {
+            case "STREAM":
+                analytics = AccountAnalytics.of(accounts);
+                break;
+            case "PARALLEL":
+                pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                analytics = AccountAnalytics.parallel(accounts, pool);
+                break;
+            case "COLUMNAR":
+                analytics = AccountAnalytics.ofColumnar(accounts);
+                break;
+            case "INDEXED":
+                analytics = AccountAnalytics.indexed(accounts, IndexMode.EAGER);
+                break;
+            case "SHARDED":
+                pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                analytics = AccountAnalytics.sharded(accounts, ShardKey.EMAIL,
+                        ShardTransport.local(Runtime.getRuntime().availableProcessors(), pool));
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown implementation: %s", implementation));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public Optional<Account> findRichestPerson() {
+        return analytics.findRichestPerson();
+    }
+
+    @Benchmark
+    public List<Account> findAccountsByBirthdayMonth() {
+        return analytics.findAccountsByBirthdayMonth(Month.MARCH);
+    }
+
+    @Benchmark
+    public Map<Boolean, List<Account>> partitionMaleAccounts() {
+        return analytics.partitionMaleAccounts();
+    }
+
+    @Benchmark
+    public Map<String, List<Account>> groupAccountsByEmailDomain() {
+        return analytics.groupAccountsByEmailDomain();
+    }
+
+    @Benchmark
+    public int getNumOfLettersInFirstAndLastNames() {
+        return analytics.getNumOfLettersInFirstAndLastNames();
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotalBalance() {
+        return analytics.calculateTotalBalance();
+    }
+
+    @Benchmark
+    public List<Account> sortByFirstAndLastNames() {
+        return analytics.sortByFirstAndLastNames();
+    }
+
+    @Benchmark
+    public boolean containsAccountWithEmailDomain() {
+        return analytics.containsAccountWithEmailDomain(emailDomain);
+    }
+
+    @Benchmark
+    public BigDecimal getBalanceByEmail() {
+        return analytics.getBalanceByEmail(email);
+    }
+
+    @Benchmark
+    public Map<Long, Account> collectAccountsById() {
+        return analytics.collectAccountsById();
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> collectBalancesByIdForAccountsCreatedOn() {
+        return analytics.collectBalancesByIdForAccountsCreatedOn(2015);
+    }
+
+    @Benchmark
+    public Map<String, Set<String>> groupFirstNamesByLastNames() {
+        return analytics.groupFirstNamesByLastNames();
+    }
+
+    @Benchmark
+    public Map<Month, String> groupCommaSeparatedFirstNamesByBirthdayMonth() {
+        return analytics.groupCommaSeparatedFirstNamesByBirthdayMonth();
+    }
+
+    @Benchmark
+    public Map<Month, BigDecimal> groupTotalBalanceByCreationMonth() {
+        return analytics.groupTotalBalanceByCreationMonth();
+    }
+
+    @Benchmark
+    public Map<Character, Long> getCharacterFrequencyInFirstNames() {
+        return analytics.getCharacterFrequencyInFirstNames();
+    }
+
+    @Benchmark
+    public Map<Character, Long> getCharacterFrequencyIgnoreCaseInFirstAndLastNames() {
+        return analytics.getCharacterFrequencyIgnoreCaseInFirstAndLastNames();
+    }
+
+    @Benchmark
+    public List<Account> findRichestAccounts() {
+        return analytics.findRichestAccounts(100);
+    }
+
+    @Benchmark
+    public Map<String, List<Account>> findRichestAccountsByEmailDomain() {
+        return analytics.findRichestAccountsByEmailDomain(10);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> findBalancePercentile() {
+        return analytics.findBalancePercentile(99);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> findApproximateBalancePercentile() {
+        return analytics.findApproximateBalancePercentile(99, 0.001);
+    }
+
+    @Benchmark
+    public List<Account> findAccounts() {
+        return analytics.findAccounts(filter);
+    }
+
+    @Benchmark
+    public long countAccounts() {
+        return analytics.countAccounts(filter.withBalanceAbove(BigDecimal.ZERO));
+    }
+
+    @Benchmark
+    public AccountQueryResults evaluateReportQueries() {
+        return analytics.evaluate(AccountQuery.calculateTotalBalance(), AccountQuery.groupAccountsByEmailDomain(),
+                AccountQuery.groupCommaSeparatedFirstNamesByBirthdayMonth(),
+                AccountQuery.groupTotalBalanceByCreationMonth(), AccountQuery.getCharacterFrequencyInFirstNames(),
+                AccountQuery.getCharacterFrequencyIgnoreCaseInFirstAndLastNames());
+    }
+}
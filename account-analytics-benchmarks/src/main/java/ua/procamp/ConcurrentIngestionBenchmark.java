@@ -0,0 +1,95 @@
+package ua.procamp;
+
+import org.openjdk.jmh.annotations.*;
+import ua.procamp.data.AccountGenerator;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures throughput of appending batches of accounts by 3 writer threads while a reader thread runs a query over a
+ * snapshot of all accounts. {@code CONCURRENT} appends to a {@link ConcurrentAccountStore}, {@code COPY_ON_WRITE}
+ * copies the whole list under a global lock on every batch and publishes the copy to readers. Every iteration starts
+ * from {@code size} accounts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Group)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ConcurrentIngestionBenchmark {
+    private static final long SEED = 20181018L;
+    private static final int BATCH_SIZE = 16;
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"CONCURRENT", "COPY_ON_WRITE"})
+    private String storage;
+
+    private List<Account> initialAccounts;
+    private List<List<Account>> batches;
+    private AtomicInteger nextBatch;
+    private AccountFilter filter;
+    private ConcurrentAccountStore store;
+    private CopyOnWriteStore copyOnWriteStore;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        List<Account> accounts = AccountGenerator.create(SEED).generateList(size * 2);
+        initialAccounts = accounts.subList(0, size);
+        batches = new ArrayList<>();
+        for (int i = size; i < accounts.size(); i += BATCH_SIZE) {
+            batches.add(accounts.subList(i, Math.min(i + BATCH_SIZE, accounts.size())));
+        }
+        filter = AccountFilter.all().withSex(Sex.FEMALE);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        nextBatch = new AtomicInteger();
+        store = ConcurrentAccountStore.of(initialAccounts);
+        copyOnWriteStore = new CopyOnWriteStore(initialAccounts);
+    }
+
+    @Benchmark
+    @Group("ingestion")
+    @GroupThreads(3)
+    public void append() {
+        List<Account> batch = batches.get(Math.floorMod(nextBatch.getAndIncrement(), batches.size()));
+        if ("CONCURRENT".equals(storage)) {
+            store.addAll(batch);
+        } else {
+            copyOnWriteStore.addAll(batch);
+        }
+    }
+
+    @Benchmark
+    @Group("ingestion")
+    @GroupThreads(1)
+    public long query() {
+        Collection<Account> snapshot = "CONCURRENT".equals(storage) ? store.snapshot() : copyOnWriteStore.accounts;
+        return AccountAnalytics.of(snapshot).countAccounts(filter);
+    }
+
+    private static class CopyOnWriteStore {
+        private volatile List<Account> accounts;
+
+        private CopyOnWriteStore(List<Account> accounts) {
+            this.accounts = new ArrayList<>(accounts);
+        }
+
+        private synchronized void addAll(List<Account> batch) {
+            List<Account> copy = new ArrayList<>(accounts.size() + batch.size());
+            copy.addAll(accounts);
+            copy.addAll(batch);
+            accounts = copy;
+        }
+    }
+}
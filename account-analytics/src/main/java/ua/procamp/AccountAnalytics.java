@@ -2,33 +2,134 @@ package ua.procamp;
 
 import ua.procamp.exception.EntityNotFoundException;
 import ua.procamp.model.Account;
-import ua.procamp.model.Sex;
 
 import java.math.BigDecimal;
 import java.time.Month;
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static java.util.Comparator.comparing;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
 
 /**
- * Implement methods using Stream API
+ * {@link AccountAnalytics} provides an API that allows to query statistics over a collection of {@link Account}.
+ * Use {@link AccountAnalytics#of(Collection)} to run queries with Stream API on the collection itself, or
+ * {@link AccountAnalytics#of(AccountColumns)} to run them over a column-oriented copy of the accounts. Use
+ * {@link AccountAnalytics#parallel(Collection, ForkJoinPool)} to run every query as a parallel stream on a pool of the
+ * caller, and {@link AccountAnalytics#indexed(Collection, IndexMode)} to answer point lookups from hash indexes. Use
+ * {@link AccountAnalytics#cached(AccountAnalytics, int, EvictionPolicy)} to cache results of repeated queries, and
+ * {@link AccountAnalytics#sharded(Collection, ShardKey, ShardTransport)} to partition accounts into shards queried in
+ * parallel. Pass a {@link ConcurrentAccountStore} as the collection to append accounts from many threads while queries
+ * run, so every query sees a consistent snapshot.
  */
-public class AccountAnalytics {
-    private Collection<Account> accounts;
+public interface AccountAnalytics {
+
+    /**
+     * Creates a new {@link AccountAnalytics} that streams over provided accounts on every query.
+     *
+     * @param accounts a collection of accounts
+     * @return account analytics backed by the collection
+     */
+    static AccountAnalytics of(Collection<Account> accounts) {
+        return new StreamAccountAnalytics(accounts);
+    }
+
+    /**
+     * Creates a new {@link AccountAnalytics} that streams over provided accounts on every query, and groups them by
+     * canonical email domains of provided dictionary, so known domains are not copied into new substrings.
+     *
+     * @param accounts a collection of accounts
+     * @param domains  a dictionary of email domains of the accounts
+     * @return account analytics backed by the collection
+     */
+    static AccountAnalytics of(Collection<Account> accounts, EmailDomainDictionary domains) {
+        return new StreamAccountAnalytics(accounts, Objects.requireNonNull(domains));
+    }
+
+    /**
+     * Creates a new {@link AccountAnalytics} that scans primitive columns of provided {@link AccountColumns}.
+     *
+     * @param columns a column-oriented account store
+     * @return account analytics backed by the columns
+     */
+    static AccountAnalytics of(AccountColumns columns) {
+        return new ColumnarAccountAnalytics(columns);
+    }
+
+    /**
+     * Creates a new {@link AccountAnalytics} over a column-oriented copy of provided accounts. Later changes of the
+     * collection are not visible to the returned analytics.
+     *
+     * @param accounts a collection of accounts
+     * @return account analytics backed by the columns
+     */
+    static AccountAnalytics ofColumnar(Collection<Account> accounts) {
+        return of(AccountColumns.of(accounts));
+    }
 
-    private AccountAnalytics(Collection<Account> accounts) {
-        this.accounts = accounts;
+    /**
+     * Creates a new {@link AccountAnalytics} that runs every query as a parallel stream on provided {@link ForkJoinPool}.
+     * The pool is owned by the caller. Results are equal to the ones of {@link #of(Collection)}.
+     *
+     * @param accounts a collection of accounts
+     * @param pool     a pool to run queries on
+     * @return account analytics that runs queries in parallel
+     */
+    static AccountAnalytics parallel(Collection<Account> accounts, ForkJoinPool pool) {
+        return new ParallelAccountAnalytics(accounts, pool);
     }
 
-    public static AccountAnalytics of(Collection<Account> accounts) {
-        return new AccountAnalytics(accounts);
+    /**
+     * Creates a new {@link IndexedAccountAnalytics} that answers email and email domain lookups from hash indexes,
+     * name-ordered queries from a sorted name index, and birthday and creation date queries from a date index.
+     *
+     * @param accounts a collection of accounts
+     * @param mode     defines whether indexes are built eagerly or on the first lookup
+     * @return account analytics backed by the collection and its indexes
+     */
+    static IndexedAccountAnalytics indexed(Collection<Account> accounts, IndexMode mode) {
+        return new IndexedAccountAnalytics(accounts, mode);
     }
 
-    private static String getEmailDomain(String email) {
-        return email.split("@")[1];
+    /**
+     * Creates a new {@link CachingAccountAnalytics} that caches results of provided analytics until
+     * {@link CachingAccountAnalytics#invalidate()} is called.
+     *
+     * @param analytics analytics to cache results of
+     * @param maxSize   max number of cached results
+     * @param policy    defines which result is evicted when the cache is full
+     * @return account analytics with cached results
+     */
+    static CachingAccountAnalytics cached(AccountAnalytics analytics, int maxSize, EvictionPolicy policy) {
+        return cached(analytics, maxSize, policy, () -> 0);
+    }
+
+    /**
+     * Creates a new {@link CachingAccountAnalytics} that caches results of provided analytics computed from the current
+     * version of the accounts.
+     *
+     * @param analytics       analytics to cache results of
+     * @param maxSize         max number of cached results
+     * @param policy          defines which result is evicted when the cache is full
+     * @param accountsVersion a version of the accounts, which must change whenever the accounts change
+     * @return account analytics with cached results
+     */
+    static CachingAccountAnalytics cached(AccountAnalytics analytics, int maxSize, EvictionPolicy policy,
+                                          LongSupplier accountsVersion) {
+        return new CachingAccountAnalytics(analytics, maxSize, policy, accountsVersion);
+    }
+
+    /**
+     * Creates a new {@link AccountAnalytics} that partitions provided accounts into shards, loads them with provided
+     * {@link ShardTransport} and runs every query on all shards in parallel through it. Results are equal to the ones
+     * of {@link #of(Collection)}, except that an approximate balance percentile may be another balance within the same
+     * error bound. Later changes of the collection are not visible to the returned analytics.
+     *
+     * @param accounts  a collection of accounts
+     * @param key       defines a shard of every account
+     * @param transport delivers shards and queries to wherever the shards are kept
+     * @return account analytics over the shards
+     */
+    static AccountAnalytics sharded(Collection<Account> accounts, ShardKey key, ShardTransport transport) {
+        return new ShardedAccountAnalytics(accounts, key, transport);
     }
 
     /**
@@ -36,9 +137,7 @@ public class AccountAnalytics {
      *
      * @return account with max balance wrapped with optional
      */
-    public Optional<Account> findRichestPerson() {
-        return accounts.stream().max(comparing(Account::getBalance));
-    }
+    Optional<Account> findRichestPerson();
 
     /**
      * Returns a {@link List} of {@link Account} that have a birthday month equal to provided.
@@ -46,11 +145,7 @@ public class AccountAnalytics {
      * @param birthdayMonth a month of birth
      * @return a list of accounts
      */
-    public List<Account> findAccountsByBirthdayMonth(Month birthdayMonth) {
-        return accounts.stream()
-                .filter(a -> a.getBirthday().getMonth().equals(birthdayMonth))
-                .collect(toList());
-    }
+    List<Account> findAccountsByBirthdayMonth(Month birthdayMonth);
 
     /**
      * Returns a map that separates all accounts into two lists - male and female. Map has two keys {@code true} indicates
@@ -58,10 +153,7 @@ public class AccountAnalytics {
      *
      * @return a map where key is true or false, and value is list of male, and female accounts
      */
-    public Map<Boolean, List<Account>> partitionMaleAccounts() {
-        return accounts.stream()
-                .collect(partitioningBy(a -> a.getSex().equals(Sex.MALE)));
-    }
+    Map<Boolean, List<Account>> partitionMaleAccounts();
 
     /**
      * Returns a {@link Map} that stores accounts grouped by its email domain. A map key is {@link String} which is an
@@ -69,44 +161,28 @@ public class AccountAnalytics {
      *
      * @return a map where key is an email domain and value is a list of all account with such email
      */
-    public Map<String, List<Account>> groupAccountsByEmailDomain() {
-        return accounts.stream()
-                .collect(groupingBy(a -> getEmailDomain(a.getEmail())));
-    }
+    Map<String, List<Account>> groupAccountsByEmailDomain();
 
     /**
      * Returns a number of letters in all first and last names.
      *
      * @return total number of letters of first and last names of all accounts
      */
-    public int getNumOfLettersInFirstAndLastNames() {
-        return accounts.stream()
-                .mapToInt(a -> a.getFirstName().length() + a.getLastName().length())
-                .sum();
-    }
+    int getNumOfLettersInFirstAndLastNames();
 
     /**
      * Returns a total balance of all accounts.
      *
      * @return total balance of all accounts
      */
-    public BigDecimal calculateTotalBalance() {
-        return accounts.stream()
-                .map(Account::getBalance)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
+    BigDecimal calculateTotalBalance();
 
     /**
      * Returns a {@link List} of {@link Account} objects sorted by first and last names.
      *
      * @return list of accounts sorted by first and last names
      */
-    public List<Account> sortByFirstAndLastNames() {
-        return accounts.stream()
-                .sorted(comparing(Account::getFirstName)
-                        .thenComparing(Account::getLastName))
-                .collect(Collectors.toList());
-    }
+    List<Account> sortByFirstAndLastNames();
 
     /**
      * Checks if there is at least one account with provided email domain.
@@ -114,11 +190,7 @@ public class AccountAnalytics {
      * @param emailDomain
      * @return true if there is an account that has an email with provided domain
      */
-    public boolean containsAccountWithEmailDomain(String emailDomain) {
-        return accounts.stream()
-                .map(Account::getEmail)
-                .anyMatch(email -> getEmailDomain(email).equals(emailDomain));
-    }
+    boolean containsAccountWithEmailDomain(String emailDomain);
 
     /**
      * Returns account balance by its email. Throws {@link EntityNotFoundException} with message
@@ -127,23 +199,14 @@ public class AccountAnalytics {
      * @param email account email
      * @return account balance
      */
-    public BigDecimal getBalanceByEmail(String email) {
-        return accounts.stream()
-                .filter(account -> account.getEmail().equals(email))
-                .findFirst()
-                .map(Account::getBalance)
-                .orElseThrow(() -> new EntityNotFoundException(String.format("Cannot find Account by email=%s", email)));
-    }
+    BigDecimal getBalanceByEmail(String email);
 
     /**
      * Collects all existing accounts into a {@link Map} where a key is account id, and the value is {@link Account} instance
      *
      * @return map of accounts by its ids
      */
-    public Map<Long, Account> collectAccountsById() {
-        return accounts.stream()
-                .collect(Collectors.toMap(Account::getId, identity()));
-    }
+    Map<Long, Account> collectAccountsById();
 
     /**
      * Filters accounts by the year when an account was created. Collects account balances by its emails into a {@link Map}.
@@ -152,11 +215,7 @@ public class AccountAnalytics {
      * @param year the year of account creation
      * @return map of account by its ids the were created in a particular year
      */
-    public Map<String, BigDecimal> collectBalancesByIdForAccountsCreatedOn(int year) {
-        return accounts.stream()
-                .filter(account -> account.getCreationDate().getYear() == year)
-                .collect(toMap(Account::getEmail, Account::getBalance));
-    }
+    Map<String, BigDecimal> collectBalancesByIdForAccountsCreatedOn(int year);
 
     /**
      * Returns a {@link Map} where key is {@link Account#lastName} and values is a {@link Set} that contains first names
@@ -164,10 +223,7 @@ public class AccountAnalytics {
      *
      * @return a map where key is a first name and value is a set of first names
      */
-    public Map<String, Set<String>> groupFirstNamesByLastNames() {
-        return accounts.stream()
-                .collect(groupingBy(Account::getLastName, mapping(Account::getFirstName, toSet())));
-    }
+    Map<String, Set<String>> groupFirstNamesByLastNames();
 
     /**
      * Returns a {@link Map} where key is a birthday month, and value is a {@link String} that stores comma and space
@@ -175,16 +231,7 @@ public class AccountAnalytics {
      *
      * @return a map where a key is a birthday month and value is comma-separated first names
      */
-    public Map<Month, String> groupCommaSeparatedFirstNamesByBirthdayMonth() {
-        return accounts.stream().collect(
-                groupingBy(account -> account.getBirthday().getMonth(),
-                        mapping(
-                                Account::getFirstName,
-                                joining(", ")
-                        )
-                )
-        );
-    }
+    Map<Month, String> groupCommaSeparatedFirstNamesByBirthdayMonth();
 
     /**
      * Returns a {@link Map} where key is a {@link Month} of {@link Account#creationDate}, and value is total balance
@@ -192,13 +239,7 @@ public class AccountAnalytics {
      *
      * @return a map where key is a creation month and value is total balance of all accounts created in that month
      */
-    public Map<Month, BigDecimal> groupTotalBalanceByCreationMonth() {
-        return accounts.stream().collect(
-                groupingBy(a -> a.getCreationDate().getMonth(),
-                        mapping(Account::getBalance,
-                                reducing(BigDecimal.ZERO, BigDecimal::add))
-                ));
-    }
+    Map<Month, BigDecimal> groupTotalBalanceByCreationMonth();
 
     /**
      * Returns a {@link Map} where key is a letter {@link Character}, and value is a number of its occurrences in
@@ -206,13 +247,7 @@ public class AccountAnalytics {
      *
      * @return a map where key is a letter and value is its count in all first names
      */
-    public Map<Character, Long> getCharacterFrequencyInFirstNames() {
-        return accounts.stream()
-                .map(Account::getFirstName)
-                .flatMapToInt(String::chars)
-                .mapToObj(c -> (char) c)
-                .collect(groupingBy(identity(), counting()));
-    }
+    Map<Character, Long> getCharacterFrequencyInFirstNames();
 
     /**
      * Returns a {@link Map} where key is a letter {@link Character}, and value is a number of its occurrences ignoring
@@ -220,14 +255,68 @@ public class AccountAnalytics {
      *
      * @return a map where key is a letter and value is its count ignoring case in all first and last names
      */
-    public Map<Character, Long> getCharacterFrequencyIgnoreCaseInFirstAndLastNames() {
-        return accounts.stream()
-                .map(account -> account.getFirstName() + account.getLastName())
-                .map(String::toLowerCase)
-                .flatMapToInt(String::chars)
-                .mapToObj(c -> (char) c)
-                .collect(groupingBy(identity(), counting()));
-    }
+    Map<Character, Long> getCharacterFrequencyIgnoreCaseInFirstAndLastNames();
 
-}
+    /**
+     * Returns a {@link List} of at most {@code limit} accounts with the biggest balances, starting from the richest one.
+     * Accounts with equal balances keep their order in the collection. Uses a bounded heap instead of a full sort.
+     *
+     * @param limit max number of accounts to return
+     * @return the richest accounts
+     */
+    List<Account> findRichestAccounts(int limit);
+
+    /**
+     * Returns a {@link Map} where key is an email domain, and value is a {@link List} of at most {@code limit} accounts
+     * with such email domain and the biggest balances, starting from the richest one.
+     *
+     * @param limit max number of accounts per email domain
+     * @return a map where key is an email domain and value is a list of the richest accounts with such email
+     */
+    Map<String, List<Account>> findRichestAccountsByEmailDomain(int limit);
+
+    /**
+     * Returns a balance for the percentile using nearest-rank method, so 50 is a median and 100 is the max balance.
+     * Uses quickselect instead of a full sort.
+     *
+     * @param percentile a percentile from 0 to 100
+     * @return percentile balance, or empty optional if there are no accounts
+     */
+    Optional<BigDecimal> findBalancePercentile(double percentile);
 
+    /**
+     * Returns an approximate balance for the percentile computed by a {@link BalanceQuantileSketch} in a single pass with
+     * bounded memory. A rank of the returned balance differs from the exact nearest rank by at most
+     * {@code rankError * number of accounts}.
+     *
+     * @param percentile a percentile from 0 to 100
+     * @param rankError  max rank error as a fraction of a number of accounts
+     * @return approximate percentile balance, or empty optional if there are no accounts
+     */
+    Optional<BigDecimal> findApproximateBalancePercentile(double percentile, double rankError);
+
+    /**
+     * Returns a {@link List} of accounts that match provided filter, in the order of the collection.
+     *
+     * @param filter conditions on account attributes
+     * @return a list of matching accounts
+     */
+    List<Account> findAccounts(AccountFilter filter);
+
+    /**
+     * Returns a number of accounts that match provided filter.
+     *
+     * @param filter conditions on account attributes
+     * @return a number of matching accounts
+     */
+    long countAccounts(AccountFilter filter);
+
+    /**
+     * Evaluates all provided queries in a single pass over the accounts, instead of one pass per query. A result of
+     * every {@link AccountQuery} is equal to the result of the {@link AccountAnalytics} method it mirrors.
+     *
+     * @param queries queries to evaluate
+     * @return results of the queries
+     */
+    AccountQueryResults evaluate(AccountQuery<?>... queries);
+}
@@ -0,0 +1,143 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * {@link AccountColumns} is an immutable column-oriented copy of an {@link Account} collection. Every field is stored in
+ * its own array indexed by account ordinal (a position in the source collection), so queries scan contiguous primitive
+ * arrays instead of chasing {@link Account} objects and their {@link BigDecimal} and {@link java.time.LocalDate} fields.
+ * <p>
+ * Dates are stored as epoch days, sex as a byte, and email domains are dictionary-encoded. Domains are looked up in an
+ * {@link EmailDomainDictionary} of this copy while it is built, so a known domain does not allocate a substring.
+ * Balances are stored as unscaled {@code long} values when all of them share the same non-negative scale and fit a
+ * {@code long}, otherwise the balance column keeps {@link BigDecimal} values. Original {@link Account} objects are kept as well, so queries return the same
+ * instances as {@link AccountAnalytics#of(Collection)} does.
+ */
+public final class AccountColumns {
+    static final byte MALE = 0;
+    static final byte FEMALE = 1;
+    private static final int DOMAIN_DICTIONARY_CAPACITY = 1 << 13;
+
+    final int size;
+    final Account[] accounts;
+    final long[] ids;
+    final BitSet nullIds;
+    final String[] firstNames;
+    final String[] lastNames;
+    final String[] emails;
+    final int[] emailDomainCodes;
+    final String[] emailDomains;
+    final Map<String, Integer> emailDomainCodesByName;
+    final int[] birthdays;
+    final byte[] birthdayMonths;
+    final byte[] sexes;
+    final int[] creationDates;
+    final byte[] creationMonths;
+    final int balanceScale;
+    final long[] unscaledBalances;
+    final BigDecimal[] balances;
+
+    private AccountColumns(Account[] accounts) {
+        size = accounts.length;
+        this.accounts = accounts;
+        ids = new long[size];
+        nullIds = new BitSet(size);
+        firstNames = new String[size];
+        lastNames = new String[size];
+        emails = new String[size];
+        emailDomainCodes = new int[size];
+        birthdays = new int[size];
+        birthdayMonths = new byte[size];
+        sexes = new byte[size];
+        creationDates = new int[size];
+        creationMonths = new byte[size];
+
+        List<String> domains = new ArrayList<>();
+        EmailDomainDictionary domainDictionary = new EmailDomainDictionary(DOMAIN_DICTIONARY_CAPACITY);
+        emailDomainCodesByName = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Account account = accounts[i];
+            if (account.getId() == null) {
+                nullIds.set(i);
+            } else {
+                ids[i] = account.getId();
+            }
+            firstNames[i] = Objects.requireNonNull(account.getFirstName());
+            lastNames[i] = Objects.requireNonNull(account.getLastName());
+            emails[i] = Objects.requireNonNull(account.getEmail());
+            emailDomainCodes[i] = emailDomainCodesByName.computeIfAbsent(Emails.getDomain(emails[i], domainDictionary), domain -> {
+                domains.add(domain);
+                return domains.size() - 1;
+            });
+            birthdays[i] = Math.toIntExact(account.getBirthday().toEpochDay());
+            birthdayMonths[i] = (byte) account.getBirthday().getMonthValue();
+            sexes[i] = account.getSex() == Sex.MALE ? MALE : FEMALE;
+            creationDates[i] = Math.toIntExact(account.getCreationDate().toEpochDay());
+            creationMonths[i] = (byte) account.getCreationDate().getMonthValue();
+        }
+        emailDomains = domains.toArray(new String[0]);
+
+        int scale = commonBalanceScale(accounts);
+        if (scale >= 0) {
+            balanceScale = scale;
+            unscaledBalances = new long[size];
+            for (int i = 0; i < size; i++) {
+                unscaledBalances[i] = accounts[i].getBalance().unscaledValue().longValue();
+            }
+            balances = null;
+        } else {
+            balanceScale = -1;
+            unscaledBalances = null;
+            balances = new BigDecimal[size];
+            for (int i = 0; i < size; i++) {
+                balances[i] = Objects.requireNonNull(accounts[i].getBalance());
+            }
+        }
+    }
+
+    /**
+     * Creates a column-oriented copy of provided accounts. All account fields except id must be set.
+     *
+     * @param accounts a collection of accounts
+     * @return new account columns
+     */
+    public static AccountColumns of(Collection<Account> accounts) {
+        return new AccountColumns(accounts.toArray(new Account[0]));
+    }
+
+    /**
+     * Returns a number of accounts stored in the columns.
+     *
+     * @return a number of accounts
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if balances are stored as unscaled {@code long} values.
+     *
+     * @return {@code true} if balance column is primitive, and {@code false} if it stores {@link BigDecimal} values
+     */
+    public boolean hasUnscaledBalances() {
+        return unscaledBalances != null;
+    }
+
+    private static int commonBalanceScale(Account[] accounts) {
+        if (accounts.length == 0) {
+            return 0;
+        }
+        int scale = Objects.requireNonNull(accounts[0].getBalance()).scale();
+        for (Account account : accounts) {
+            BigDecimal balance = Objects.requireNonNull(account.getBalance());
+            if (balance.scale() != scale || balance.unscaledValue().bitLength() >= Long.SIZE) {
+                return -1;
+            }
+        }
+        return scale;
+    }
+}
@@ -0,0 +1,137 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * {@link AccountFilter} is a conjunction of conditions on {@link Account} attributes, like "male accounts on gmail.com
+ * born in March with balance above 100 000". Use {@link AccountAnalytics#findAccounts(AccountFilter)} to find accounts
+ * that match it, so {@link IndexedAccountAnalytics} can intersect its bitmap indexes instead of testing every account.
+ * <p>
+ * A filter is immutable. Every {@code with} method returns a new filter with one more condition, or with the condition
+ * on the same attribute replaced. Filters are equal if they have equal conditions. Filters are serializable, so they
+ * can be sent to shards of sharded {@link AccountAnalytics}.
+ */
+public final class AccountFilter implements Predicate<Account>, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final AccountFilter ALL = new AccountFilter(null, null, null, null, null);
+
+    final Sex sex;
+    final String emailDomain;
+    final Month birthdayMonth;
+    final Integer creationYear;
+    final BigDecimal balanceAbove;
+
+    private AccountFilter(Sex sex, String emailDomain, Month birthdayMonth, Integer creationYear,
+                          BigDecimal balanceAbove) {
+        this.sex = sex;
+        this.emailDomain = emailDomain;
+        this.birthdayMonth = birthdayMonth;
+        this.creationYear = creationYear;
+        this.balanceAbove = balanceAbove;
+    }
+
+    /**
+     * Returns a filter without conditions, which matches all accounts.
+     *
+     * @return a filter that matches all accounts
+     */
+    public static AccountFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a filter of accounts of provided sex.
+     *
+     * @param sex a sex of accounts
+     * @return new account filter
+     */
+    public AccountFilter withSex(Sex sex) {
+        return new AccountFilter(Objects.requireNonNull(sex), emailDomain, birthdayMonth, creationYear, balanceAbove);
+    }
+
+    /**
+     * Returns a filter of accounts with provided email domain, like "gmail.com".
+     *
+     * @param emailDomain an email domain of accounts
+     * @return new account filter
+     */
+    public AccountFilter withEmailDomain(String emailDomain) {
+        return new AccountFilter(sex, Objects.requireNonNull(emailDomain), birthdayMonth, creationYear, balanceAbove);
+    }
+
+    /**
+     * Returns a filter of accounts with provided birthday month.
+     *
+     * @param birthdayMonth a month of birth
+     * @return new account filter
+     */
+    public AccountFilter withBirthdayMonth(Month birthdayMonth) {
+        return new AccountFilter(sex, emailDomain, Objects.requireNonNull(birthdayMonth), creationYear, balanceAbove);
+    }
+
+    /**
+     * Returns a filter of accounts created in provided year.
+     *
+     * @param creationYear the year of account creation
+     * @return new account filter
+     */
+    public AccountFilter withCreationYear(int creationYear) {
+        return new AccountFilter(sex, emailDomain, birthdayMonth, creationYear, balanceAbove);
+    }
+
+    /**
+     * Returns a filter of accounts with balances greater than provided one.
+     *
+     * @param balance a balance, exclusive
+     * @return new account filter
+     */
+    public AccountFilter withBalanceAbove(BigDecimal balance) {
+        return new AccountFilter(sex, emailDomain, birthdayMonth, creationYear, Objects.requireNonNull(balance));
+    }
+
+    @Override
+    public boolean test(Account account) {
+        return (sex == null || account.getSex() == sex)
+                && (emailDomain == null || Emails.getDomain(account.getEmail()).equals(emailDomain))
+                && (birthdayMonth == null || account.getBirthday().getMonth() == birthdayMonth)
+                && (creationYear == null || account.getCreationDate().getYear() == creationYear)
+                && (balanceAbove == null || account.getBalance().compareTo(balanceAbove) > 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AccountFilter)) {
+            return false;
+        }
+        AccountFilter that = (AccountFilter) o;
+        return sex == that.sex
+                && Objects.equals(emailDomain, that.emailDomain)
+                && birthdayMonth == that.birthdayMonth
+                && Objects.equals(creationYear, that.creationYear)
+                && (balanceAbove == null ? that.balanceAbove == null
+                : that.balanceAbove != null && balanceAbove.compareTo(that.balanceAbove) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sex, emailDomain, birthdayMonth, creationYear,
+                balanceAbove == null ? null : balanceAbove.stripTrailingZeros());
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "AccountFilter(sex=%s, emailDomain=%s, birthdayMonth=%s, creationYear=%s, balanceAbove=%s)",
+                sex, emailDomain, birthdayMonth, creationYear, balanceAbove);
+    }
+}
@@ -0,0 +1,473 @@
+package ua.procamp;
+
+import ua.procamp.exception.EntityNotFoundException;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.*;
+
+/**
+ * {@link AccountQuery} is a query of {@link AccountAnalytics} that can be evaluated together with other queries in a
+ * single pass over accounts using {@link AccountAnalytics#evaluate(AccountQuery[])}. Every factory method is named
+ * after the {@link AccountAnalytics} method it mirrors, and its result is equal to the result of that method.
+ * <p>
+ * Queries are compared by identity, so keep a reference to a query to get its result from {@link AccountQueryResults}.
+ * <p>
+ * Every query also has a {@link ShardPlan}, which tells sharded {@link AccountAnalytics} how to evaluate it without
+ * gathering all accounts: results of most queries that do not depend on the order of accounts are combined from
+ * results of the same collector on every shard, order-dependent queries are evaluated over accounts they need merged
+ * by ordinals, and the rest are answered by the matching method of the sharded analytics.
+ *
+ * @param <R> a type of the query result
+ */
+public final class AccountQuery<R> {
+    private final Collector<Account, ?, R> collector;
+    private final ShardPlan<R> shardPlan;
+
+    private AccountQuery(Collector<Account, ?, R> collector, ShardPlan<R> shardPlan) {
+        this.collector = collector;
+        this.shardPlan = shardPlan;
+    }
+
+    /**
+     * Creates a query which results on parts of accounts are combined into a result on all of them.
+     */
+    private static <R> AccountQuery<R> combining(PartialCollector<R> collector, BinaryOperator<R> combiner) {
+        return new AccountQuery<>(collector.get(), new ShardPlan<>(ShardPlan.Kind.COMBINING, collector, combiner, null,
+                null));
+    }
+
+    /**
+     * Creates a query which is evaluated over relevant accounts in their order.
+     */
+    private static <R> AccountQuery<R> gathering(Relevance relevance, Collector<Account, ?, R> collector) {
+        return new AccountQuery<>(collector, new ShardPlan<>(ShardPlan.Kind.GATHERING, null, null, relevance, null));
+    }
+
+    /**
+     * Creates a query which is answered by a method of sharded analytics.
+     */
+    private static <R> AccountQuery<R> delegating(Function<AccountAnalytics, R> method,
+                                                  Collector<Account, ?, R> collector) {
+        return new AccountQuery<>(collector, new ShardPlan<>(ShardPlan.Kind.DELEGATING, null, null, null, method));
+    }
+
+    /**
+     * Returns a query of an account with the max balance.
+     *
+     * @return a query of the richest account, or empty optional if there are no accounts
+     * @see AccountAnalytics#findRichestPerson()
+     */
+    public static AccountQuery<Optional<Account>> findRichestPerson() {
+        return delegating(AccountAnalytics::findRichestPerson, maxBy(comparing(Account::getBalance)));
+    }
+
+    /**
+     * Returns a query of accounts born in provided month.
+     *
+     * @param birthdayMonth a month of birthday
+     * @return a query of accounts born in the month
+     * @see AccountAnalytics#findAccountsByBirthdayMonth(Month)
+     */
+    public static AccountQuery<List<Account>> findAccountsByBirthdayMonth(Month birthdayMonth) {
+        Relevance relevance = a -> a.getBirthday().getMonth().equals(birthdayMonth);
+        return gathering(relevance, filtering(relevance, toList()));
+    }
+
+    /**
+     * Returns a query of accounts partitioned into male ({@code true}) and other ({@code false}) ones.
+     *
+     * @return a query of accounts partitioned by sex
+     * @see AccountAnalytics#partitionMaleAccounts()
+     */
+    public static AccountQuery<Map<Boolean, List<Account>>> partitionMaleAccounts() {
+        return gathering(a -> true, partitioningBy(a -> a.getSex().equals(Sex.MALE)));
+    }
+
+    /**
+     * Returns a query of accounts grouped by email domain.
+     *
+     * @return a query of accounts by email domain
+     * @see AccountAnalytics#groupAccountsByEmailDomain()
+     */
+    public static AccountQuery<Map<String, List<Account>>> groupAccountsByEmailDomain() {
+        return gathering(a -> true, groupingBy(a -> Emails.getDomain(a.getEmail())));
+    }
+
+    /**
+     * Returns a query of a total number of letters in first and last names of all accounts.
+     *
+     * @return a query of the number of letters
+     * @see AccountAnalytics#getNumOfLettersInFirstAndLastNames()
+     */
+    public static AccountQuery<Integer> getNumOfLettersInFirstAndLastNames() {
+        return combining(() -> summingInt(a -> a.getFirstName().length() + a.getLastName().length()), Integer::sum);
+    }
+
+    /**
+     * Returns a query of a total balance of all accounts.
+     *
+     * @return a query of the total balance
+     * @see AccountAnalytics#calculateTotalBalance()
+     */
+    public static AccountQuery<BigDecimal> calculateTotalBalance() {
+        return combining(() -> mapping(Account::getBalance, BalanceSum.collector()), BigDecimal::add);
+    }
+
+    /**
+     * Returns a query of accounts sorted by first name, and then by last name.
+     *
+     * @return a query of sorted accounts
+     * @see AccountAnalytics#sortByFirstAndLastNames()
+     */
+    public static AccountQuery<List<Account>> sortByFirstAndLastNames() {
+        return gathering(a -> true, collectingAndThen(toList(), list -> {
+            list.sort(comparing(Account::getFirstName).thenComparing(Account::getLastName));
+            return list;
+        }));
+    }
+
+    /**
+     * Returns a query of whether there is an account with provided email domain.
+     *
+     * @param emailDomain an email domain, like "gmail.com"
+     * @return a query of whether such account exists
+     * @see AccountAnalytics#containsAccountWithEmailDomain(String)
+     */
+    public static AccountQuery<Boolean> containsAccountWithEmailDomain(String emailDomain) {
+        return combining(() -> Collector.of(
+                () -> new boolean[1],
+                (found, a) -> found[0] = found[0] || Emails.getDomain(a.getEmail()).equals(emailDomain),
+                (found, other) -> {
+                    found[0] |= other[0];
+                    return found;
+                },
+                found -> found[0]), Boolean::logicalOr);
+    }
+
+    /**
+     * Returns a query of a balance of the account with provided email. If there is no such account, getting the result
+     * from {@link AccountQueryResults} throws {@link EntityNotFoundException}, while results of other queries evaluated
+     * together with it are still available.
+     *
+     * @param email an email of the account
+     * @return a query of the account balance
+     * @see AccountAnalytics#getBalanceByEmail(String)
+     */
+    public static AccountQuery<BigDecimal> getBalanceByEmail(String email) {
+        return gathering(a -> a.getEmail().equals(email), Collector.of(
+                () -> new Account[1],
+                (first, a) -> {
+                    if (first[0] == null && a.getEmail().equals(email)) {
+                        first[0] = a;
+                    }
+                },
+                (first, other) -> first[0] != null ? first : other,
+                first -> {
+                    if (first[0] == null) {
+                        throw new EntityNotFoundException(String.format("Cannot find Account by email=%s", email));
+                    }
+                    return first[0].getBalance();
+                }));
+    }
+
+    /**
+     * Returns a query of accounts by id. Its result is a failure if ids are not unique.
+     *
+     * @return a query of accounts by id
+     * @see AccountAnalytics#collectAccountsById()
+     */
+    public static AccountQuery<Map<Long, Account>> collectAccountsById() {
+        return gathering(a -> true, LongAccountMap.collector());
+    }
+
+    /**
+     * Returns a query of balances by email of accounts created in provided year.
+     *
+     * @param year a year of account creation
+     * @return a query of balances by email
+     * @see AccountAnalytics#collectBalancesByIdForAccountsCreatedOn(int)
+     */
+    public static AccountQuery<Map<String, BigDecimal>> collectBalancesByIdForAccountsCreatedOn(int year) {
+        Relevance relevance = a -> a.getCreationDate().getYear() == year;
+        return gathering(relevance, filtering(relevance, toMap(Account::getEmail, Account::getBalance)));
+    }
+
+    /**
+     * Returns a query of sets of first names grouped by last name.
+     *
+     * @return a query of first names by last name
+     * @see AccountAnalytics#groupFirstNamesByLastNames()
+     */
+    public static AccountQuery<Map<String, Set<String>>> groupFirstNamesByLastNames() {
+        return combining(() -> groupingBy(Account::getLastName, mapping(Account::getFirstName, toSet())),
+                mergingMaps((first, second) -> {
+                    first.addAll(second);
+                    return first;
+                }));
+    }
+
+    /**
+     * Returns a query of comma-separated first names grouped by birthday month.
+     *
+     * @return a query of first names by birthday month
+     * @see AccountAnalytics#groupCommaSeparatedFirstNamesByBirthdayMonth()
+     */
+    public static AccountQuery<Map<Month, String>> groupCommaSeparatedFirstNamesByBirthdayMonth() {
+        return gathering(a -> true, groupingBy(a -> a.getBirthday().getMonth(),
+                mapping(Account::getFirstName, joining(", "))));
+    }
+
+    /**
+     * Returns a query of total balances grouped by creation month.
+     *
+     * @return a query of total balances by creation month
+     * @see AccountAnalytics#groupTotalBalanceByCreationMonth()
+     */
+    public static AccountQuery<Map<Month, BigDecimal>> groupTotalBalanceByCreationMonth() {
+        return combining(() -> groupingBy(a -> a.getCreationDate().getMonth(),
+                mapping(Account::getBalance, BalanceSum.collector())), mergingMaps(BigDecimal::add));
+    }
+
+    /**
+     * Returns a query of numbers of occurrences of every character in first names.
+     *
+     * @return a query of character frequencies
+     * @see AccountAnalytics#getCharacterFrequencyInFirstNames()
+     */
+    public static AccountQuery<Map<Character, Long>> getCharacterFrequencyInFirstNames() {
+        return combining(() -> mapping(Account::getFirstName, CharacterCounter.collector(CharacterCounter::add)),
+                mergingMaps(Long::sum));
+    }
+
+    /**
+     * Returns a query of numbers of occurrences of every lower case character in first and last names.
+     *
+     * @return a query of character frequencies
+     * @see AccountAnalytics#getCharacterFrequencyIgnoreCaseInFirstAndLastNames()
+     */
+    public static AccountQuery<Map<Character, Long>> getCharacterFrequencyIgnoreCaseInFirstAndLastNames() {
+        return combining(() -> CharacterCounter.collector(
+                (counter, account) -> counter.addIgnoreCase(account.getFirstName(), account.getLastName())),
+                mergingMaps(Long::sum));
+    }
+
+    /**
+     * Returns a query of at most {@code limit} accounts with the biggest balances, from the richest one.
+     *
+     * @param limit max number of accounts
+     * @return a query of the richest accounts
+     * @see AccountAnalytics#findRichestAccounts(int)
+     */
+    public static AccountQuery<List<Account>> findRichestAccounts(int limit) {
+        TopAccounts.checkLimit(limit);
+        return delegating(analytics -> analytics.findRichestAccounts(limit), TopAccounts.collector(limit));
+    }
+
+    /**
+     * Returns a query of at most {@code limit} richest accounts of every email domain.
+     *
+     * @param limit max number of accounts of a domain
+     * @return a query of the richest accounts by email domain
+     * @see AccountAnalytics#findRichestAccountsByEmailDomain(int)
+     */
+    public static AccountQuery<Map<String, List<Account>>> findRichestAccountsByEmailDomain(int limit) {
+        TopAccounts.checkLimit(limit);
+        return delegating(analytics -> analytics.findRichestAccountsByEmailDomain(limit),
+                groupingBy(a -> Emails.getDomain(a.getEmail()), TopAccounts.collector(limit)));
+    }
+
+    /**
+     * Returns a query of a balance of provided percentile, using nearest-rank method.
+     *
+     * @param percentile a percentile from 0 to 100
+     * @return a query of the percentile balance, or empty optional if there are no accounts
+     * @see AccountAnalytics#findBalancePercentile(double)
+     */
+    public static AccountQuery<Optional<BigDecimal>> findBalancePercentile(double percentile) {
+        Selection.checkPercentile(percentile);
+        return delegating(analytics -> analytics.findBalancePercentile(percentile),
+                mapping(Account::getBalance, collectingAndThen(toList(), balances -> {
+                    if (balances.isEmpty()) {
+                        return Optional.empty();
+                    }
+                    BigDecimal[] array = balances.toArray(new BigDecimal[0]);
+                    return Optional.of(Selection.select(array, Selection.percentileIndex(percentile, array.length),
+                            BigDecimal::compareTo));
+                })));
+    }
+
+    /**
+     * Returns a query of accounts that match the filter, in the order of the collection.
+     *
+     * @param filter conditions on account attributes
+     * @return a query of matching accounts
+     * @see AccountAnalytics#findAccounts(AccountFilter)
+     */
+    public static AccountQuery<List<Account>> findAccounts(AccountFilter filter) {
+        return gathering(Objects.requireNonNull(filter)::test, filtering(filter, toList()));
+    }
+
+    /**
+     * Returns a query of a number of accounts that match the filter.
+     *
+     * @param filter conditions on account attributes
+     * @return a query of the number of matching accounts
+     * @see AccountAnalytics#countAccounts(AccountFilter)
+     */
+    public static AccountQuery<Long> countAccounts(AccountFilter filter) {
+        Objects.requireNonNull(filter);
+        return combining(() -> filtering(filter, counting()), Long::sum);
+    }
+
+    /**
+     * Returns a collector that evaluates all provided queries in a single pass. Every query keeps its own container,
+     * so the fused collector preserves encounter order whenever the queries do.
+     *
+     * @param queries queries to evaluate
+     * @return a collector of query results
+     */
+    static Collector<Account, ?, AccountQueryResults> fuse(List<AccountQuery<?>> queries) {
+        List<Collector<Account, ?, ?>> collectors = new ArrayList<>(queries.size());
+        queries.forEach(query -> collectors.add(query.collector));
+        return collectingAndThen(fuseCollectors(collectors), values -> {
+            Map<AccountQuery<?>, Object> results = new IdentityHashMap<>(queries.size());
+            for (int i = 0; i < values.length; i++) {
+                results.put(queries.get(i), values[i]);
+            }
+            return new AccountQueryResults(results);
+        });
+    }
+
+    /**
+     * Returns a collector that evaluates all provided collectors in a single pass, and returns their results in the
+     * order of the collectors. If a finisher of a collector throws, its result is a
+     * {@link AccountQueryResults.Failure} and results of other collectors are not affected.
+     *
+     * @param collectors collectors to evaluate
+     * @return a collector of results
+     */
+    @SuppressWarnings("unchecked")
+    static Collector<Account, ?, Object[]> fuseCollectors(List<Collector<Account, ?, ?>> collectors) {
+        int size = collectors.size();
+        Supplier<Object>[] suppliers = new Supplier[size];
+        BiConsumer<Object, Account>[] accumulators = new BiConsumer[size];
+        BinaryOperator<Object>[] combiners = new BinaryOperator[size];
+        Function<Object, ?>[] finishers = new Function[size];
+        for (int i = 0; i < size; i++) {
+            Collector<Account, Object, ?> collector = (Collector<Account, Object, ?>) collectors.get(i);
+            suppliers[i] = collector.supplier();
+            accumulators[i] = collector.accumulator();
+            combiners[i] = collector.combiner();
+            finishers[i] = collector.finisher();
+        }
+        Supplier<Object[]> supplier = () -> {
+            Object[] containers = new Object[size];
+            for (int i = 0; i < size; i++) {
+                containers[i] = suppliers[i].get();
+            }
+            return containers;
+        };
+        BiConsumer<Object[], Account> accumulator = (containers, account) -> {
+            for (int i = 0; i < size; i++) {
+                accumulators[i].accept(containers[i], account);
+            }
+        };
+        BinaryOperator<Object[]> combiner = (containers, others) -> {
+            for (int i = 0; i < size; i++) {
+                containers[i] = combiners[i].apply(containers[i], others[i]);
+            }
+            return containers;
+        };
+        Function<Object[], Object[]> finisher = containers -> {
+            Object[] results = new Object[size];
+            for (int i = 0; i < size; i++) {
+                try {
+                    results[i] = finishers[i].apply(containers[i]);
+                } catch (RuntimeException e) {
+                    results[i] = new AccountQueryResults.Failure(e);
+                }
+            }
+            return results;
+        };
+        return Collector.of(supplier, accumulator, combiner, finisher);
+    }
+
+    ShardPlan<R> shardPlan() {
+        return shardPlan;
+    }
+
+    private static <K, V> BinaryOperator<Map<K, V>> mergingMaps(BinaryOperator<V> merge) {
+        return (first, second) -> {
+            second.forEach((key, value) -> first.merge(key, value, merge));
+            return first;
+        };
+    }
+
+    /**
+     * A serializable factory of a query collector, so sharded analytics can send it to shards in another JVM.
+     *
+     * @param <R> a type of the collector result
+     */
+    @FunctionalInterface
+    interface PartialCollector<R> extends Supplier<Collector<Account, ?, R>>, Serializable {
+    }
+
+    /**
+     * A serializable condition of accounts an order-dependent query needs.
+     */
+    @FunctionalInterface
+    interface Relevance extends Predicate<Account>, Serializable {
+    }
+
+    /**
+     * Defines how sharded {@link AccountAnalytics} evaluates a query.
+     *
+     * @param <R> a type of the query result
+     */
+    static final class ShardPlan<R> {
+        enum Kind {
+            /**
+             * Every shard evaluates {@link #partial}, and the coordinator combines their results by {@link #combiner}.
+             * Results of the collector must be serializable and mutable.
+             */
+            COMBINING,
+            /**
+             * Every shard returns its accounts that match {@link #relevance}, and the coordinator evaluates the query
+             * over them in the order of the collection.
+             */
+            GATHERING,
+            /**
+             * The coordinator calls {@link #method} of the sharded analytics, which has a protocol of its own.
+             */
+            DELEGATING
+        }
+
+        final Kind kind;
+        final PartialCollector<R> partial;
+        final BinaryOperator<R> combiner;
+        final Relevance relevance;
+        final Function<AccountAnalytics, R> method;
+
+        private ShardPlan(Kind kind, PartialCollector<R> partial, BinaryOperator<R> combiner, Relevance relevance,
+                          Function<AccountAnalytics, R> method) {
+            this.kind = kind;
+            this.partial = partial;
+            this.combiner = combiner;
+            this.relevance = relevance;
+            this.method = method;
+        }
+    }
+}
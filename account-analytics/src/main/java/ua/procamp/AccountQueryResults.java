@@ -0,0 +1,57 @@
+package ua.procamp;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * {@link AccountQueryResults} holds results of {@link AccountQuery} evaluated together by
+ * {@link AccountAnalytics#evaluate(AccountQuery[])}. If a query fails, e.g. a balance is queried by an unknown email,
+ * its failure is kept instead of the result, so results of other queries are still available.
+ */
+public final class AccountQueryResults {
+    private final Map<AccountQuery<?>, Object> results;
+
+    AccountQueryResults(Map<AccountQuery<?>, Object> results) {
+        this.results = results;
+    }
+
+    /**
+     * Returns a result of the query, or throws the exception the query failed with. The exception is the same one the
+     * matching {@link AccountAnalytics} method throws.
+     *
+     * @param query an evaluated query
+     * @param <R>   a type of the query result
+     * @return query result
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R get(AccountQuery<R> query) {
+        Object result = result(query);
+        if (result instanceof Failure) {
+            throw ((Failure) result).exception;
+        }
+        return (R) result;
+    }
+
+    /**
+     * Returns a result of the query, or its {@link Failure}.
+     */
+    Object result(AccountQuery<?> query) {
+        if (!results.containsKey(query)) {
+            throw new IllegalArgumentException("Query was not evaluated!");
+        }
+        return results.get(query);
+    }
+
+    /**
+     * An exception a query failed with, which is kept in place of its result.
+     */
+    static final class Failure implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final RuntimeException exception;
+
+        Failure(RuntimeException exception) {
+            this.exception = exception;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes and reads {@link Account} records field by field, which is used to spill accounts into temporary files.
+ * Every field may be {@code null}. Lengths of strings and balances are written as ints, so a record holds values of
+ * any size.
+ */
+final class AccountRecordCodec {
+
+    private AccountRecordCodec() {
+    }
+
+    static void write(DataOutput output, Account account) throws IOException {
+        output.writeBoolean(account.getId() != null);
+        if (account.getId() != null) {
+            output.writeLong(account.getId());
+        }
+        writeString(output, account.getFirstName());
+        writeString(output, account.getLastName());
+        writeString(output, account.getEmail());
+        writeDate(output, account.getBirthday());
+        output.writeByte(account.getSex() == null ? -1 : account.getSex().ordinal());
+        writeDate(output, account.getCreationDate());
+        output.writeBoolean(account.getBalance() != null);
+        if (account.getBalance() != null) {
+            byte[] unscaled = account.getBalance().unscaledValue().toByteArray();
+            output.writeInt(account.getBalance().scale());
+            output.writeInt(unscaled.length);
+            output.write(unscaled);
+        }
+    }
+
+    static Account read(DataInput input) throws IOException {
+        Account account = new Account();
+        account.setId(input.readBoolean() ? input.readLong() : null);
+        account.setFirstName(readString(input));
+        account.setLastName(readString(input));
+        account.setEmail(readString(input));
+        account.setBirthday(readDate(input));
+        byte sex = input.readByte();
+        account.setSex(sex < 0 ? null : Sex.values()[sex]);
+        account.setCreationDate(readDate(input));
+        if (input.readBoolean()) {
+            int scale = input.readInt();
+            byte[] unscaled = new byte[input.readInt()];
+            input.readFully(unscaled);
+            account.setBalance(new BigDecimal(new BigInteger(unscaled), scale));
+        } else {
+            account.setBalance(null);
+        }
+        return account;
+    }
+
+    private static void writeString(DataOutput output, String string) throws IOException {
+        output.writeBoolean(string != null);
+        if (string != null) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutput output, LocalDate date) throws IOException {
+        output.writeBoolean(date != null);
+        if (date != null) {
+            output.writeLong(date.toEpochDay());
+        }
+    }
+
+    private static LocalDate readDate(DataInput input) throws IOException {
+        return input.readBoolean() ? LocalDate.ofEpochDay(input.readLong()) : null;
+    }
+}
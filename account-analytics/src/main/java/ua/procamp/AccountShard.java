@@ -0,0 +1,289 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * {@link AccountShard} is a part of an account collection kept by a {@link ShardTransport}. It stores its accounts in
+ * the order of the collection together with their ordinals, which are positions in the whole collection, so partial
+ * results of order-sensitive queries can be merged into the results of a single {@link AccountAnalytics}.
+ */
+public final class AccountShard implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    static final Comparator<Account> BY_NAMES = comparing(Account::getFirstName).thenComparing(Account::getLastName);
+    static final Comparator<Account> RICHEST_FIRST = comparing(Account::getBalance).reversed();
+
+    private final Account[] accounts;
+    private final int[] ordinals;
+    private transient volatile AccountAnalytics analytics;
+    private transient volatile BigDecimal[] sortedBalances;
+
+    AccountShard(Account[] accounts, int[] ordinals) {
+        if (accounts.length != ordinals.length) {
+            throw new IllegalArgumentException("Every account of a shard must have an ordinal!");
+        }
+        this.accounts = accounts;
+        this.ordinals = ordinals;
+    }
+
+    /**
+     * Returns a number of accounts in the shard.
+     *
+     * @return a number of accounts
+     */
+    public int size() {
+        return accounts.length;
+    }
+
+    /**
+     * Returns analytics over accounts of the shard, for queries which partial results do not depend on the order.
+     */
+    AccountAnalytics analytics() {
+        AccountAnalytics result = analytics;
+        if (result == null) {
+            result = AccountAnalytics.of(Arrays.asList(accounts));
+            analytics = result;
+        }
+        return result;
+    }
+
+    Ordered<Account> filter(Predicate<Account> predicate) {
+        Ordered<Account> result = new Ordered<>();
+        for (int i = 0; i < accounts.length; i++) {
+            if (predicate.test(accounts[i])) {
+                result.add(ordinals[i], accounts[i]);
+            }
+        }
+        return result;
+    }
+
+    Ordered<Account> findFirst(Predicate<Account> predicate) {
+        Ordered<Account> result = new Ordered<>();
+        for (int i = 0; i < accounts.length; i++) {
+            if (predicate.test(accounts[i])) {
+                result.add(ordinals[i], accounts[i]);
+                break;
+            }
+        }
+        return result;
+    }
+
+    <K> Map<K, Ordered<Account>> group(Function<Account, K> classifier) {
+        Map<K, Ordered<Account>> result = new HashMap<>();
+        for (int i = 0; i < accounts.length; i++) {
+            result.computeIfAbsent(classifier.apply(accounts[i]), key -> new Ordered<>()).add(ordinals[i], accounts[i]);
+        }
+        return result;
+    }
+
+    Map<Month, Ordered<String>> groupFirstNamesByBirthdayMonth() {
+        Map<Month, Ordered<String>> result = new EnumMap<>(Month.class);
+        for (int i = 0; i < accounts.length; i++) {
+            result.computeIfAbsent(accounts[i].getBirthday().getMonth(), month -> new Ordered<>())
+                    .add(ordinals[i], accounts[i].getFirstName());
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates collectors of combining queries in a single pass over accounts of the shard, and collects accounts that
+     * are relevant to any of gathering queries in the same pass.
+     */
+    @SuppressWarnings("unchecked")
+    QueryParts evaluate(List<AccountQuery.PartialCollector<?>> partials, List<AccountQuery.Relevance> relevances) {
+        List<Collector<Account, ?, ?>> collectors = new ArrayList<>(partials.size());
+        partials.forEach(partial -> collectors.add(partial.get()));
+        Collector<Account, Object, Object[]> fused =
+                (Collector<Account, Object, Object[]>) AccountQuery.fuseCollectors(collectors);
+        Object container = fused.supplier().get();
+        BiConsumer<Object, Account> accumulator = fused.accumulator();
+        Ordered<Account> relevant = new Ordered<>();
+        for (int i = 0; i < accounts.length; i++) {
+            accumulator.accept(container, accounts[i]);
+            for (AccountQuery.Relevance relevance : relevances) {
+                if (relevance.test(accounts[i])) {
+                    relevant.add(ordinals[i], accounts[i]);
+                    break;
+                }
+            }
+        }
+        return new QueryParts(fused.finisher().apply(container), relevant);
+    }
+
+    BalanceQuantileSketch balanceSketch(double rankError) {
+        BalanceQuantileSketch sketch = new BalanceQuantileSketch(rankError);
+        for (Account account : accounts) {
+            sketch.add(account.getBalance());
+        }
+        return sketch;
+    }
+
+    /**
+     * Returns a median of balances greater than {@code low} and less than {@code high}, and a number of such balances.
+     * A {@code null} bound means that balances are not bounded on that side.
+     */
+    BalanceMedian medianBalance(BigDecimal low, BigDecimal high) {
+        BigDecimal[] balances = sortedBalances();
+        int from = low == null ? 0 : bound(balances, low, true);
+        int to = high == null ? balances.length : bound(balances, high, false);
+        return from < to ? new BalanceMedian(balances[(from + to) >>> 1], to - from) : new BalanceMedian(null, 0);
+    }
+
+    /**
+     * Returns numbers of balances greater than {@code low} which are less than and equal to the pivot.
+     */
+    long[] countBalances(BigDecimal low, BigDecimal pivot) {
+        BigDecimal[] balances = sortedBalances();
+        int from = low == null ? 0 : bound(balances, low, true);
+        int pivotFrom = bound(balances, pivot, false);
+        return new long[]{pivotFrom - from, bound(balances, pivot, true) - pivotFrom};
+    }
+
+    /**
+     * Returns balances greater than {@code low} and less than {@code high} in ascending order.
+     */
+    BigDecimal[] balancesBetween(BigDecimal low, BigDecimal high) {
+        BigDecimal[] balances = sortedBalances();
+        int from = low == null ? 0 : bound(balances, low, true);
+        int to = high == null ? balances.length : bound(balances, high, false);
+        return Arrays.copyOfRange(balances, from, Math.max(from, to));
+    }
+
+    private BigDecimal[] sortedBalances() {
+        BigDecimal[] result = sortedBalances;
+        if (result == null) {
+            result = new BigDecimal[accounts.length];
+            for (int i = 0; i < accounts.length; i++) {
+                result[i] = accounts[i].getBalance();
+            }
+            Arrays.sort(result);
+            sortedBalances = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns an index of the first balance that is greater than the value, or not less than the value if
+     * {@code upper} is false.
+     */
+    private static int bound(BigDecimal[] sorted, BigDecimal value, boolean upper) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = sorted[middle].compareTo(value);
+            if (comparison < 0 || upper && comparison == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns accounts sorted by {@link #BY_NAMES}, and by ordinals among accounts with equal names.
+     */
+    Ordered<Account> sortByNames() {
+        return sorted(indexes(), BY_NAMES);
+    }
+
+    /**
+     * Returns at most {@code limit} accounts sorted by {@link #RICHEST_FIRST}, and by ordinals among accounts with
+     * equal balances.
+     */
+    Ordered<Account> findRichest(int limit) {
+        return findRichest(indexes(), limit);
+    }
+
+    Map<String, Ordered<Account>> findRichestByEmailDomain(int limit) {
+        Map<String, List<Integer>> indexesByDomain = new HashMap<>();
+        for (int i = 0; i < accounts.length; i++) {
+            indexesByDomain.computeIfAbsent(Emails.getDomain(accounts[i].getEmail()), domain -> new ArrayList<>())
+                    .add(i);
+        }
+        Map<String, Ordered<Account>> result = new HashMap<>();
+        indexesByDomain.forEach((domain, indexes) -> result.put(domain, findRichest(indexes, limit)));
+        return result;
+    }
+
+    private Ordered<Account> findRichest(List<Integer> indexes, int limit) {
+        Comparator<Integer> worstFirst = comparing((Integer i) -> accounts[i].getBalance())
+                .thenComparing(Comparator.<Integer>reverseOrder());
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, worstFirst);
+        for (Integer index : indexes) {
+            if (heap.size() < limit) {
+                heap.add(index);
+            } else if (limit > 0 && worstFirst.compare(index, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(index);
+            }
+        }
+        List<Integer> top = new ArrayList<>(heap);
+        Collections.sort(top);
+        return sorted(top, RICHEST_FIRST);
+    }
+
+    private List<Integer> indexes() {
+        List<Integer> indexes = new ArrayList<>(accounts.length);
+        for (int i = 0; i < accounts.length; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    /**
+     * Sorts indexes of accounts by the order. The sort is stable, so increasing indexes, and therefore ordinals, of
+     * equal accounts stay increasing.
+     */
+    private Ordered<Account> sorted(List<Integer> indexes, Comparator<Account> order) {
+        indexes.sort(comparing((Integer i) -> accounts[i], order));
+        Ordered<Account> result = new Ordered<>();
+        for (int index : indexes) {
+            result.add(ordinals[index], accounts[index]);
+        }
+        return result;
+    }
+
+    /**
+     * A median of shard balances within a range, weighted by a number of the balances in the range.
+     */
+    static final class BalanceMedian implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final BigDecimal median;
+        final int count;
+
+        BalanceMedian(BigDecimal median, int count) {
+            this.median = median;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Partial results of queries evaluated together on a shard: results of combining queries in their order, and
+     * accounts relevant to gathering queries.
+     */
+    static final class QueryParts implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final Object[] results;
+        final Ordered<Account> accounts;
+
+        QueryParts(Object[] results, Ordered<Account> accounts) {
+            this.results = results;
+            this.accounts = accounts;
+        }
+    }
+}
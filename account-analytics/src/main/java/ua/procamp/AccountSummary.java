@@ -0,0 +1,184 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.*;
+import java.util.stream.Collector;
+
+/**
+ * {@link AccountSummary} holds aggregation-style statistics of accounts that were seen once, one by one, so it needs
+ * memory proportional to the size of the statistics (number of email domains, alphabet size) instead of the number of
+ * accounts. Summaries of consecutive parts of a source can be merged, which allows to summarize a parallel stream.
+ *
+ * @see StreamingAccountAnalytics
+ */
+public class AccountSummary {
+    private long count;
+    private Account richestPerson;
+    private final BalanceSum totalBalance = new BalanceSum();
+    private final Map<Month, BalanceSum> totalBalanceByCreationMonth = new EnumMap<>(Month.class);
+    private long maleCount;
+    private long femaleCount;
+    private final Map<String, Long> countByEmailDomain = new HashMap<>();
+    private int numOfLettersInFirstAndLastNames;
+    private final CharacterCounter firstNamesFrequency = new CharacterCounter();
+    private final CharacterCounter firstAndLastNamesIgnoreCaseFrequency = new CharacterCounter();
+
+    AccountSummary() {
+    }
+
+    /**
+     * Returns a collector that summarizes accounts of a stream.
+     *
+     * @return a collector of account summary
+     */
+    public static Collector<Account, AccountSummary, AccountSummary> collector() {
+        return Collector.of(AccountSummary::new, AccountSummary::add, AccountSummary::merge);
+    }
+
+    void add(Account account) {
+        count++;
+        if (richestPerson == null || account.getBalance().compareTo(richestPerson.getBalance()) > 0) {
+            richestPerson = account;
+        }
+        totalBalance.add(account.getBalance());
+        totalBalanceByCreationMonth.computeIfAbsent(account.getCreationDate().getMonth(), month -> new BalanceSum())
+                .add(account.getBalance());
+        if (account.getSex().equals(Sex.MALE)) {
+            maleCount++;
+        } else {
+            femaleCount++;
+        }
+        countByEmailDomain.merge(Emails.getDomain(account.getEmail()), 1L, Long::sum);
+        numOfLettersInFirstAndLastNames += account.getFirstName().length() + account.getLastName().length();
+        firstNamesFrequency.add(account.getFirstName());
+        firstAndLastNamesIgnoreCaseFrequency.addIgnoreCase(account.getFirstName(), account.getLastName());
+    }
+
+    /**
+     * Merges a summary of accounts that were encountered after all accounts of this summary.
+     *
+     * @param other a summary of later accounts
+     * @return this summary
+     */
+    AccountSummary merge(AccountSummary other) {
+        count += other.count;
+        if (richestPerson == null || (other.richestPerson != null
+                && other.richestPerson.getBalance().compareTo(richestPerson.getBalance()) > 0)) {
+            richestPerson = other.richestPerson;
+        }
+        totalBalance.merge(other.totalBalance);
+        other.totalBalanceByCreationMonth.forEach((month, sum) ->
+                totalBalanceByCreationMonth.merge(month, sum, BalanceSum::merge));
+        maleCount += other.maleCount;
+        femaleCount += other.femaleCount;
+        other.countByEmailDomain.forEach((domain, domainCount) -> countByEmailDomain.merge(domain, domainCount, Long::sum));
+        numOfLettersInFirstAndLastNames += other.numOfLettersInFirstAndLastNames;
+        firstNamesFrequency.merge(other.firstNamesFrequency);
+        firstAndLastNamesIgnoreCaseFrequency.merge(other.firstAndLastNamesIgnoreCaseFrequency);
+        return this;
+    }
+
+    /**
+     * Returns a number of summarized accounts.
+     *
+     * @return a number of accounts
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns {@link Optional} that contains an {@link Account} with the max value of balance
+     *
+     * @return account with max balance wrapped with optional
+     */
+    public Optional<Account> findRichestPerson() {
+        return Optional.ofNullable(richestPerson);
+    }
+
+    /**
+     * Returns a total balance of all accounts.
+     *
+     * @return total balance of all accounts
+     */
+    public BigDecimal calculateTotalBalance() {
+        return totalBalance.value();
+    }
+
+    /**
+     * Returns a {@link Map} where key is a {@link Month} of {@link Account#creationDate}, and value is total balance
+     * of all accounts that have the same value creation month.
+     *
+     * @return a map where key is a creation month and value is total balance of all accounts created in that month
+     */
+    public Map<Month, BigDecimal> groupTotalBalanceByCreationMonth() {
+        Map<Month, BigDecimal> result = new HashMap<>();
+        totalBalanceByCreationMonth.forEach((month, sum) -> result.put(month, sum.value()));
+        return result;
+    }
+
+    /**
+     * Returns a map with numbers of male and female accounts. Key {@code true} indicates male count, and {@code false}
+     * indicates female count.
+     *
+     * @return a map where key is true or false, and value is a number of male, and female accounts
+     */
+    public Map<Boolean, Long> countMaleAccounts() {
+        Map<Boolean, Long> result = new HashMap<>(4);
+        result.put(Boolean.TRUE, maleCount);
+        result.put(Boolean.FALSE, femaleCount);
+        return result;
+    }
+
+    /**
+     * Returns a {@link Map} where key is an email domain, and value is a number of accounts with such email domain.
+     *
+     * @return a map where key is an email domain and value is a number of accounts
+     */
+    public Map<String, Long> countAccountsByEmailDomain() {
+        return new HashMap<>(countByEmailDomain);
+    }
+
+    /**
+     * Checks if there is at least one account with provided email domain.
+     *
+     * @param emailDomain
+     * @return true if there is an account that has an email with provided domain
+     */
+    public boolean containsAccountWithEmailDomain(String emailDomain) {
+        return countByEmailDomain.containsKey(emailDomain);
+    }
+
+    /**
+     * Returns a number of letters in all first and last names.
+     *
+     * @return total number of letters of first and last names of all accounts
+     */
+    public int getNumOfLettersInFirstAndLastNames() {
+        return numOfLettersInFirstAndLastNames;
+    }
+
+    /**
+     * Returns a {@link Map} where key is a letter {@link Character}, and value is a number of its occurrences in
+     * {@link Account#firstName}.
+     *
+     * @return a map where key is a letter and value is its count in all first names
+     */
+    public Map<Character, Long> getCharacterFrequencyInFirstNames() {
+        return firstNamesFrequency.toMap();
+    }
+
+    /**
+     * Returns a {@link Map} where key is a letter {@link Character}, and value is a number of its occurrences ignoring
+     * case, in all {@link Account#firstName} and {@link Account#lastName}. All letters should stored in lower case.
+     *
+     * @return a map where key is a letter and value is its count ignoring case in all first and last names
+     */
+    public Map<Character, Long> getCharacterFrequencyIgnoreCaseInFirstAndLastNames() {
+        return firstAndLastNamesIgnoreCaseFrequency.toMap();
+    }
+}
@@ -0,0 +1,179 @@
+package ua.procamp;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link BalanceQuantileSketch} is a Greenwald-Khanna streaming quantile summary of balances. It sees every balance once
+ * and keeps O((1 / rankError) * log(rankError * n)) of them, and answers percentile queries with a balance whose rank
+ * differs from the exact nearest rank by at most {@code rankError * n}.
+ * <p>
+ * Sketches with equal error bounds are mergeable, so sketches of parts of a collection, e.g. of shards, can be built
+ * separately and merged into a sketch of the whole collection with the same error bound.
+ */
+public class BalanceQuantileSketch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final double rankError;
+    private final int compressionPeriod;
+    private final List<Tuple> tuples = new ArrayList<>();
+    private long count;
+
+    /**
+     * Creates an empty sketch with provided error bound.
+     *
+     * @param rankError max rank error as a fraction of a number of balances, e.g. 0.001
+     */
+    public BalanceQuantileSketch(double rankError) {
+        if (!(rankError > 0 && rankError < 1)) {
+            throw new IllegalArgumentException(String.format("Rank error must be between 0 and 1: %s", rankError));
+        }
+        this.rankError = rankError;
+        this.compressionPeriod = (int) Math.max(1, Math.floor(1 / (2 * rankError)));
+    }
+
+    /**
+     * Adds a balance to the sketch.
+     *
+     * @param balance an account balance
+     */
+    public void add(BigDecimal balance) {
+        int index = upperBound(balance);
+        long delta = index == 0 || index == tuples.size() ? 0 : maxSpread() - 1;
+        tuples.add(index, new Tuple(balance, 1, Math.max(0, delta)));
+        count++;
+        if (count % compressionPeriod == 0) {
+            compress();
+        }
+    }
+
+    /**
+     * Adds all balances of another sketch to this one. Every tuple of either sketch keeps its gap, and the rank
+     * uncertainty of the next tuple of the other sketch is added to its delta, so the error bound still holds for all
+     * balances of both sketches. The other sketch is not changed.
+     *
+     * @param other a sketch with the same error bound
+     */
+    public void merge(BalanceQuantileSketch other) {
+        if (other.rankError != rankError) {
+            throw new IllegalArgumentException(String.format("Cannot merge sketches with rank errors %s and %s",
+                    rankError, other.rankError));
+        }
+        List<Tuple> merged = new ArrayList<>(tuples.size() + other.tuples.size());
+        int i = 0;
+        int j = 0;
+        while (i < tuples.size() || j < other.tuples.size()) {
+            if (j == other.tuples.size()
+                    || i < tuples.size() && tuples.get(i).balance.compareTo(other.tuples.get(j).balance) <= 0) {
+                merged.add(mergedTuple(tuples.get(i++), other.tuples, j));
+            } else {
+                merged.add(mergedTuple(other.tuples.get(j++), tuples, i));
+            }
+        }
+        tuples.clear();
+        tuples.addAll(merged);
+        count += other.count;
+        compress();
+    }
+
+    /**
+     * Returns a balance for the percentile within the error bound of the sketch.
+     *
+     * @param percentile a percentile from 0 to 100
+     * @return approximate percentile balance, or empty optional if no balances were added
+     */
+    public Optional<BigDecimal> findPercentile(double percentile) {
+        Selection.checkPercentile(percentile);
+        if (tuples.isEmpty()) {
+            return Optional.empty();
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        double bound = rankError * count;
+        long minRank = 0;
+        for (int i = 0; i < tuples.size() - 1; i++) {
+            minRank += tuples.get(i).gap;
+            Tuple next = tuples.get(i + 1);
+            if (minRank + next.gap + next.delta > rank + bound) {
+                return Optional.of(tuples.get(i).balance);
+            }
+        }
+        return Optional.of(tuples.get(tuples.size() - 1).balance);
+    }
+
+    /**
+     * Returns a number of balances added to the sketch.
+     *
+     * @return a number of balances
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns a number of balances the sketch keeps.
+     *
+     * @return a size of the summary
+     */
+    public int summarySize() {
+        return tuples.size();
+    }
+
+    private long maxSpread() {
+        return (long) Math.floor(2 * rankError * count);
+    }
+
+    private int upperBound(BigDecimal balance) {
+        int low = 0;
+        int high = tuples.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tuples.get(middle).balance.compareTo(balance) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns a copy of the tuple for a merged sketch, where {@code next} is an index of the first tuple of the other
+     * sketch that is not less than the tuple.
+     */
+    private static Tuple mergedTuple(Tuple tuple, List<Tuple> otherTuples, int next) {
+        if (next == otherTuples.size()) {
+            return new Tuple(tuple.balance, tuple.gap, tuple.delta);
+        }
+        Tuple successor = otherTuples.get(next);
+        return new Tuple(tuple.balance, tuple.gap, tuple.delta + successor.gap + successor.delta - 1);
+    }
+
+    private void compress() {
+        long spread = maxSpread();
+        for (int i = tuples.size() - 2; i >= 1; i--) {
+            Tuple tuple = tuples.get(i);
+            Tuple next = tuples.get(i + 1);
+            if (tuple.gap + next.gap + next.delta <= spread) {
+                next.gap += tuple.gap;
+                tuples.remove(i);
+            }
+        }
+    }
+
+    private static class Tuple implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final BigDecimal balance;
+        private long gap;
+        private final long delta;
+
+        private Tuple(BigDecimal balance, long gap, long delta) {
+            this.balance = balance;
+            this.gap = gap;
+            this.delta = delta;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ua.procamp;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.stream.Collector;
+
+/**
+ * {@link BalanceSum} is an exact sum of {@link BigDecimal} balances that is accumulated as an unscaled {@code long} at
+ * the largest scale seen so far. Balances with a smaller scale are rescaled to it, so mixed scales are summed as a
+ * long too while the values are small enough. Once an addition overflows, the sum switches to {@link BigDecimal} arithmetic.
+ * <p>
+ * The result is equal to {@code balances.reduce(BigDecimal.ZERO, BigDecimal::add)}, including its scale, but integer
+ * balances are summed without allocating a {@link BigDecimal} per element.
+ */
+final class BalanceSum {
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private long unscaledSum;
+    private int scale;
+    private BigDecimal exactSum;
+
+    /**
+     * Returns a collector that sums balances into a {@link BigDecimal}.
+     *
+     * @return a collector of balance sums
+     */
+    static Collector<BigDecimal, BalanceSum, BigDecimal> collector() {
+        return Collector.of(BalanceSum::new, BalanceSum::add, BalanceSum::merge, BalanceSum::value);
+    }
+
+    void add(BigDecimal balance) {
+        if (exactSum == null) {
+            if (addUnscaled(balance)) {
+                return;
+            }
+            exactSum = value();
+        }
+        exactSum = exactSum.add(balance);
+    }
+
+    BalanceSum merge(BalanceSum other) {
+        if (exactSum == null && other.exactSum == null && addUnscaled(other.unscaledSum, other.scale)) {
+            return this;
+        }
+        exactSum = value().add(other.value());
+        return this;
+    }
+
+    BigDecimal value() {
+        return exactSum != null ? exactSum : BigDecimal.valueOf(unscaledSum, scale);
+    }
+
+    private boolean addUnscaled(BigDecimal balance) {
+        if (balance.scale() == 0) {
+            return fitsLong(balance) && addUnscaled(balance.longValue(), 0);
+        }
+        BigInteger unscaled = balance.unscaledValue();
+        return unscaled.bitLength() < Long.SIZE && addUnscaled(unscaled.longValue(), balance.scale());
+    }
+
+    /**
+     * Adds an unscaled value with provided scale to the unscaled sum. The sum is left unchanged if the result does not
+     * fit a long.
+     *
+     * @return {@code true} if the value was added
+     */
+    private boolean addUnscaled(long unscaled, int valueScale) {
+        long sum = unscaledSum;
+        int newScale = Math.max(scale, valueScale);
+        try {
+            sum = Math.multiplyExact(sum, powerOfTen(newScale - scale));
+            unscaled = Math.multiplyExact(unscaled, powerOfTen(newScale - valueScale));
+            unscaledSum = Math.addExact(sum, unscaled);
+            scale = newScale;
+            return true;
+        } catch (ArithmeticException overflow) {
+            return false;
+        }
+    }
+
+    private static long powerOfTen(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Scale difference is too big");
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * Checks if a balance with zero scale fits a long, so {@link BigDecimal#longValue()} is exact. Unlike
+     * {@link BigDecimal#unscaledValue()} it does not allocate for compact values.
+     */
+    private static boolean fitsLong(BigDecimal balance) {
+        return balance.precision() < 19 || balance.toBigInteger().bitLength() < Long.SIZE;
+    }
+}
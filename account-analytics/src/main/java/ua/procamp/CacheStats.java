@@ -0,0 +1,55 @@
+package ua.procamp;
+
+/**
+ * An immutable snapshot of {@link CachingAccountAnalytics} cache statistics.
+ */
+public final class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    CacheStats(long hitCount, long missCount, long evictionCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns a number of queries that were not found in the cache, including the ones with stale results.
+     *
+     * @return a number of misses
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns a ratio of hits to all queries, or 0 if there were no queries.
+     *
+     * @return hit rate from 0 to 1
+     */
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats(hits=%d, misses=%d, evictions=%d, size=%d)", hitCount, missCount,
+                evictionCount, size);
+    }
+}
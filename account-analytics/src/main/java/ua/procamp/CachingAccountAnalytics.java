@@ -0,0 +1,208 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * {@link AccountAnalytics} decorator that caches query results by method and arguments in a size-bounded cache.
+ * <p>
+ * Cached results are stamped with a version of the accounts provided by the caller, e.g. a modification counter of the
+ * collection. A result of another version is not returned, so the cache never serves results of an outdated collection
+ * as long as the version changes with it. Without a version, call {@link #invalidate()} after the collection changes.
+ * <p>
+ * Returned lists, sets and maps are unmodifiable, including nested ones, so callers can't corrupt cached results.
+ * Accounts themselves are shared with the collection. {@link #evaluate(AccountQuery[])} is not cached.
+ */
+public class CachingAccountAnalytics implements AccountAnalytics {
+    private final AccountAnalytics analytics;
+    private final LongSupplier accountsVersion;
+    private final QueryCache cache;
+
+    CachingAccountAnalytics(AccountAnalytics analytics, int maxSize, EvictionPolicy policy, LongSupplier accountsVersion) {
+        this.analytics = Objects.requireNonNull(analytics);
+        this.accountsVersion = Objects.requireNonNull(accountsVersion);
+        this.cache = new QueryCache(maxSize, policy);
+    }
+
+    /**
+     * Drops all cached results.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    /**
+     * Returns cache statistics collected since the analytics was created.
+     *
+     * @return cache statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public Optional<Account> findRichestPerson() {
+        return cached(analytics::findRichestPerson, Function.identity(), "findRichestPerson");
+    }
+
+    @Override
+    public List<Account> findAccountsByBirthdayMonth(Month birthdayMonth) {
+        return cached(() -> analytics.findAccountsByBirthdayMonth(birthdayMonth), Collections::unmodifiableList,
+                "findAccountsByBirthdayMonth", birthdayMonth);
+    }
+
+    @Override
+    public Map<Boolean, List<Account>> partitionMaleAccounts() {
+        return cached(analytics::partitionMaleAccounts, CachingAccountAnalytics::unmodifiableMapOfLists,
+                "partitionMaleAccounts");
+    }
+
+    @Override
+    public Map<String, List<Account>> groupAccountsByEmailDomain() {
+        return cached(analytics::groupAccountsByEmailDomain, CachingAccountAnalytics::unmodifiableMapOfLists,
+                "groupAccountsByEmailDomain");
+    }
+
+    @Override
+    public int getNumOfLettersInFirstAndLastNames() {
+        return cached(analytics::getNumOfLettersInFirstAndLastNames, Function.identity(),
+                "getNumOfLettersInFirstAndLastNames");
+    }
+
+    @Override
+    public BigDecimal calculateTotalBalance() {
+        return cached(analytics::calculateTotalBalance, Function.identity(), "calculateTotalBalance");
+    }
+
+    @Override
+    public List<Account> sortByFirstAndLastNames() {
+        return cached(analytics::sortByFirstAndLastNames, Collections::unmodifiableList, "sortByFirstAndLastNames");
+    }
+
+    @Override
+    public boolean containsAccountWithEmailDomain(String emailDomain) {
+        return cached(() -> analytics.containsAccountWithEmailDomain(emailDomain), Function.identity(),
+                "containsAccountWithEmailDomain", emailDomain);
+    }
+
+    @Override
+    public BigDecimal getBalanceByEmail(String email) {
+        return cached(() -> analytics.getBalanceByEmail(email), Function.identity(), "getBalanceByEmail", email);
+    }
+
+    @Override
+    public Map<Long, Account> collectAccountsById() {
+        return cached(analytics::collectAccountsById, Collections::unmodifiableMap, "collectAccountsById");
+    }
+
+    @Override
+    public Map<String, BigDecimal> collectBalancesByIdForAccountsCreatedOn(int year) {
+        return cached(() -> analytics.collectBalancesByIdForAccountsCreatedOn(year), Collections::unmodifiableMap,
+                "collectBalancesByIdForAccountsCreatedOn", year);
+    }
+
+    @Override
+    public Map<String, Set<String>> groupFirstNamesByLastNames() {
+        return cached(analytics::groupFirstNamesByLastNames, result -> {
+            Map<String, Set<String>> copy = new HashMap<>(result);
+            copy.replaceAll((lastName, firstNames) -> unmodifiableSet(firstNames));
+            return unmodifiableMap(copy);
+        }, "groupFirstNamesByLastNames");
+    }
+
+    @Override
+    public Map<Month, String> groupCommaSeparatedFirstNamesByBirthdayMonth() {
+        return cached(analytics::groupCommaSeparatedFirstNamesByBirthdayMonth, Collections::unmodifiableMap,
+                "groupCommaSeparatedFirstNamesByBirthdayMonth");
+    }
+
+    @Override
+    public Map<Month, BigDecimal> groupTotalBalanceByCreationMonth() {
+        return cached(analytics::groupTotalBalanceByCreationMonth, Collections::unmodifiableMap,
+                "groupTotalBalanceByCreationMonth");
+    }
+
+    @Override
+    public Map<Character, Long> getCharacterFrequencyInFirstNames() {
+        return cached(analytics::getCharacterFrequencyInFirstNames, Collections::unmodifiableMap,
+                "getCharacterFrequencyInFirstNames");
+    }
+
+    @Override
+    public Map<Character, Long> getCharacterFrequencyIgnoreCaseInFirstAndLastNames() {
+        return cached(analytics::getCharacterFrequencyIgnoreCaseInFirstAndLastNames, Collections::unmodifiableMap,
+                "getCharacterFrequencyIgnoreCaseInFirstAndLastNames");
+    }
+
+    @Override
+    public List<Account> findRichestAccounts(int limit) {
+        return cached(() -> analytics.findRichestAccounts(limit), Collections::unmodifiableList,
+                "findRichestAccounts", limit);
+    }
+
+    @Override
+    public Map<String, List<Account>> findRichestAccountsByEmailDomain(int limit) {
+        return cached(() -> analytics.findRichestAccountsByEmailDomain(limit),
+                CachingAccountAnalytics::unmodifiableMapOfLists, "findRichestAccountsByEmailDomain", limit);
+    }
+
+    @Override
+    public Optional<BigDecimal> findBalancePercentile(double percentile) {
+        return cached(() -> analytics.findBalancePercentile(percentile), Function.identity(),
+                "findBalancePercentile", percentile);
+    }
+
+    @Override
+    public Optional<BigDecimal> findApproximateBalancePercentile(double percentile, double rankError) {
+        return cached(() -> analytics.findApproximateBalancePercentile(percentile, rankError), Function.identity(),
+                "findApproximateBalancePercentile", percentile, rankError);
+    }
+
+    @Override
+    public List<Account> findAccounts(AccountFilter filter) {
+        return cached(() -> analytics.findAccounts(filter), Collections::unmodifiableList, "findAccounts", filter);
+    }
+
+    @Override
+    public long countAccounts(AccountFilter filter) {
+        return cached(() -> analytics.countAccounts(filter), Function.identity(), "countAccounts", filter);
+    }
+
+    @Override
+    public AccountQueryResults evaluate(AccountQuery<?>... queries) {
+        return analytics.evaluate(queries);
+    }
+
+    /**
+     * Returns a cached result of the query, or computes it, makes it unmodifiable and caches it. Results of failed
+     * queries are not cached.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(Supplier<T> query, Function<T, T> unmodifiable, Object... methodAndArguments) {
+        List<Object> key = Arrays.asList(methodAndArguments);
+        long version = accountsVersion.getAsLong();
+        long generation = cache.generation();
+        T result = (T) cache.get(key, version);
+        if (result == null) {
+            result = unmodifiable.apply(query.get());
+            cache.put(key, result, version, generation);
+        }
+        return result;
+    }
+
+    private static <K> Map<K, List<Account>> unmodifiableMapOfLists(Map<K, List<Account>> result) {
+        Map<K, List<Account>> copy = new HashMap<>(result);
+        copy.replaceAll((key, accounts) -> unmodifiableList(accounts));
+        return unmodifiableMap(copy);
+    }
+}
@@ -0,0 +1,146 @@
+package ua.procamp;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
+
+/**
+ * {@link CharacterCounter} counts characters into primitive {@code long} counters without boxing them and without
+ * creating intermediate strings. Latin-1 characters are counted in a dense array, all other characters in 256-wide
+ * pages that are allocated on first use. The counts are boxed only once, when {@link #toMap()} is called.
+ */
+final class CharacterCounter {
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final Set<String> SPECIAL_CASING_LANGUAGES = Set.of("tr", "az", "lt");
+
+    private final long[] latin = new long[PAGE_SIZE];
+    private final long[][] pages = new long[PAGE_SIZE][];
+    private final boolean latinLowerCaseByChar;
+
+    CharacterCounter() {
+        latinLowerCaseByChar = !SPECIAL_CASING_LANGUAGES.contains(Locale.getDefault().getLanguage());
+    }
+
+    /**
+     * Returns a collector that counts characters of every element using provided accumulator.
+     *
+     * @param accumulator a function that adds characters of an element to the counter
+     * @return a collector of character frequencies
+     */
+    static <T> Collector<T, CharacterCounter, Map<Character, Long>> collector(BiConsumer<CharacterCounter, T> accumulator) {
+        return Collector.of(CharacterCounter::new, accumulator, CharacterCounter::merge, CharacterCounter::toMap);
+    }
+
+    void add(String string) {
+        count(string, 1);
+    }
+
+    void remove(String string) {
+        count(string, -1);
+    }
+
+    /**
+     * Counts characters of {@code (first + second).toLowerCase()} without creating both strings when that is possible.
+     *
+     * @param first  the first string
+     * @param second the second string
+     */
+    void addIgnoreCase(String first, String second) {
+        countIgnoreCase(first, second, 1);
+    }
+
+    void removeIgnoreCase(String first, String second) {
+        countIgnoreCase(first, second, -1);
+    }
+
+    CharacterCounter merge(CharacterCounter other) {
+        for (int c = 0; c < PAGE_SIZE; c++) {
+            latin[c] += other.latin[c];
+        }
+        for (int page = 1; page < PAGE_SIZE; page++) {
+            if (other.pages[page] != null) {
+                long[] counts = page(page);
+                for (int c = 0; c < PAGE_SIZE; c++) {
+                    counts[c] += other.pages[page][c];
+                }
+            }
+        }
+        return this;
+    }
+
+    Map<Character, Long> toMap() {
+        Map<Character, Long> result = new HashMap<>();
+        putCounts(result, 0, latin);
+        for (int page = 1; page < PAGE_SIZE; page++) {
+            if (pages[page] != null) {
+                putCounts(result, page << PAGE_SHIFT, pages[page]);
+            }
+        }
+        return result;
+    }
+
+    private void count(String string, long delta) {
+        for (int i = 0; i < string.length(); i++) {
+            count(string.charAt(i), delta);
+        }
+    }
+
+    private void count(char c, long delta) {
+        if (c < PAGE_SIZE) {
+            latin[c] += delta;
+        } else {
+            page(c >>> PAGE_SHIFT)[c & PAGE_MASK] += delta;
+        }
+    }
+
+    /**
+     * {@link String#toLowerCase()} maps Latin-1 characters one by one with {@link Character#toLowerCase(char)}, except
+     * in locales with special casing rules. Other characters may depend on context (e.g. final sigma) or expand into
+     * several characters, so such strings are lower-cased as a whole.
+     */
+    private void countIgnoreCase(String first, String second, long delta) {
+        if (latinLowerCaseByChar && isLatin(first) && isLatin(second)) {
+            countLowerCaseLatin(first, delta);
+            countLowerCaseLatin(second, delta);
+        } else {
+            count((first + second).toLowerCase(), delta);
+        }
+    }
+
+    private void countLowerCaseLatin(String string, long delta) {
+        for (int i = 0; i < string.length(); i++) {
+            latin[Character.toLowerCase(string.charAt(i))] += delta;
+        }
+    }
+
+    private long[] page(int page) {
+        long[] counts = pages[page];
+        if (counts == null) {
+            counts = new long[PAGE_SIZE];
+            pages[page] = counts;
+        }
+        return counts;
+    }
+
+    private static boolean isLatin(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) >= PAGE_SIZE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void putCounts(Map<Character, Long> result, int offset, long[] counts) {
+        for (int c = 0; c < PAGE_SIZE; c++) {
+            if (counts[c] != 0) {
+                result.put((char) (offset + c), counts[c]);
+            }
+        }
+    }
+}
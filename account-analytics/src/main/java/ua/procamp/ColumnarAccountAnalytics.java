@@ -0,0 +1,422 @@
+package ua.procamp;
+
+import ua.procamp.exception.EntityNotFoundException;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * {@link AccountAnalytics} implementation that answers queries by scanning primitive arrays of {@link AccountColumns}.
+ * Results are equal to the ones of {@link StreamAccountAnalytics} built over the same accounts.
+ */
+class ColumnarAccountAnalytics implements AccountAnalytics {
+    private final AccountColumns columns;
+
+    ColumnarAccountAnalytics(AccountColumns columns) {
+        this.columns = Objects.requireNonNull(columns);
+    }
+
+    @Override
+    public Optional<Account> findRichestPerson() {
+        if (columns.size == 0) {
+            return Optional.empty();
+        }
+        int richest = 0;
+        if (columns.unscaledBalances != null) {
+            long[] balances = columns.unscaledBalances;
+            for (int i = 1; i < columns.size; i++) {
+                if (balances[i] > balances[richest]) {
+                    richest = i;
+                }
+            }
+        } else {
+            BigDecimal[] balances = columns.balances;
+            for (int i = 1; i < columns.size; i++) {
+                if (balances[i].compareTo(balances[richest]) > 0) {
+                    richest = i;
+                }
+            }
+        }
+        return Optional.of(columns.accounts[richest]);
+    }
+
+    @Override
+    public List<Account> findAccountsByBirthdayMonth(Month birthdayMonth) {
+        List<Account> result = new ArrayList<>();
+        if (birthdayMonth == null) {
+            return result;
+        }
+        byte month = (byte) birthdayMonth.getValue();
+        byte[] months = columns.birthdayMonths;
+        for (int i = 0; i < columns.size; i++) {
+            if (months[i] == month) {
+                result.add(columns.accounts[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Boolean, List<Account>> partitionMaleAccounts() {
+        List<Account> males = new ArrayList<>();
+        List<Account> females = new ArrayList<>();
+        byte[] sexes = columns.sexes;
+        for (int i = 0; i < columns.size; i++) {
+            (sexes[i] == AccountColumns.MALE ? males : females).add(columns.accounts[i]);
+        }
+        Map<Boolean, List<Account>> result = new HashMap<>(4);
+        result.put(Boolean.TRUE, males);
+        result.put(Boolean.FALSE, females);
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, List<Account>> groupAccountsByEmailDomain() {
+        List<Account>[] groups = new List[columns.emailDomains.length];
+        int[] codes = columns.emailDomainCodes;
+        for (int i = 0; i < columns.size; i++) {
+            if (groups[codes[i]] == null) {
+                groups[codes[i]] = new ArrayList<>();
+            }
+            groups[codes[i]].add(columns.accounts[i]);
+        }
+        Map<String, List<Account>> result = new HashMap<>();
+        for (int code = 0; code < groups.length; code++) {
+            result.put(columns.emailDomains[code], groups[code]);
+        }
+        return result;
+    }
+
+    @Override
+    public int getNumOfLettersInFirstAndLastNames() {
+        int sum = 0;
+        for (int i = 0; i < columns.size; i++) {
+            sum += columns.firstNames[i].length() + columns.lastNames[i].length();
+        }
+        return sum;
+    }
+
+    @Override
+    public BigDecimal calculateTotalBalance() {
+        if (columns.size == 0) {
+            return BigDecimal.ZERO;
+        }
+        if (columns.unscaledBalances != null) {
+            try {
+                long sum = 0;
+                for (long balance : columns.unscaledBalances) {
+                    sum = Math.addExact(sum, balance);
+                }
+                return BigDecimal.valueOf(sum, columns.balanceScale);
+            } catch (ArithmeticException overflow) {
+                // the sum does not fit a long, fall back to BigDecimal arithmetic
+            }
+        }
+        BalanceSum total = new BalanceSum();
+        for (int i = 0; i < columns.size; i++) {
+            total.add(balance(i));
+        }
+        return total.value();
+    }
+
+    @Override
+    public List<Account> sortByFirstAndLastNames() {
+        String[] firstNames = columns.firstNames;
+        String[] lastNames = columns.lastNames;
+        Integer[] ordinals = new Integer[columns.size];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = i;
+        }
+        Arrays.sort(ordinals, (a, b) -> {
+            int result = firstNames[a].compareTo(firstNames[b]);
+            return result != 0 ? result : lastNames[a].compareTo(lastNames[b]);
+        });
+        List<Account> result = new ArrayList<>(ordinals.length);
+        for (Integer ordinal : ordinals) {
+            result.add(columns.accounts[ordinal]);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsAccountWithEmailDomain(String emailDomain) {
+        return columns.emailDomainCodesByName.containsKey(emailDomain);
+    }
+
+    @Override
+    public BigDecimal getBalanceByEmail(String email) {
+        String[] emails = columns.emails;
+        for (int i = 0; i < columns.size; i++) {
+            if (emails[i].equals(email)) {
+                return columns.accounts[i].getBalance();
+            }
+        }
+        throw new EntityNotFoundException(String.format("Cannot find Account by email=%s", email));
+    }
+
+    @Override
+    public Map<Long, Account> collectAccountsById() {
+        LongAccountMap result = new LongAccountMap(columns.size);
+        for (int i = 0; i < columns.size; i++) {
+            if (columns.nullIds.get(i)) {
+                result.putUnique(null, columns.accounts[i]);
+            } else {
+                result.putUnique(columns.ids[i], columns.accounts[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, BigDecimal> collectBalancesByIdForAccountsCreatedOn(int year) {
+        Map<String, BigDecimal> result = new HashMap<>();
+        if (year < Year.MIN_VALUE || year > Year.MAX_VALUE) {
+            return result;
+        }
+        long from = LocalDate.of(year, 1, 1).toEpochDay();
+        long to = LocalDate.of(year, 12, 31).toEpochDay();
+        int[] creationDates = columns.creationDates;
+        for (int i = 0; i < columns.size; i++) {
+            if (creationDates[i] >= from && creationDates[i] <= to) {
+                putUnique(result, columns.emails[i], Objects.requireNonNull(columns.accounts[i].getBalance()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Set<String>> groupFirstNamesByLastNames() {
+        Map<String, Set<String>> result = new HashMap<>();
+        for (int i = 0; i < columns.size; i++) {
+            result.computeIfAbsent(columns.lastNames[i], lastName -> new HashSet<>()).add(columns.firstNames[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Month, String> groupCommaSeparatedFirstNamesByBirthdayMonth() {
+        StringJoiner[] joiners = new StringJoiner[Month.values().length + 1];
+        byte[] months = columns.birthdayMonths;
+        for (int i = 0; i < columns.size; i++) {
+            if (joiners[months[i]] == null) {
+                joiners[months[i]] = new StringJoiner(", ");
+            }
+            joiners[months[i]].add(columns.firstNames[i]);
+        }
+        Map<Month, String> result = new HashMap<>();
+        for (Month month : Month.values()) {
+            if (joiners[month.getValue()] != null) {
+                result.put(month, joiners[month.getValue()].toString());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Month, BigDecimal> groupTotalBalanceByCreationMonth() {
+        byte[] months = columns.creationMonths;
+        boolean[] present = new boolean[Month.values().length + 1];
+        for (int i = 0; i < columns.size; i++) {
+            present[months[i]] = true;
+        }
+        BigDecimal[] totals = new BigDecimal[present.length];
+        if (!sumUnscaledByMonth(totals)) {
+            BalanceSum[] sums = new BalanceSum[present.length];
+            for (int i = 0; i < columns.size; i++) {
+                if (sums[months[i]] == null) {
+                    sums[months[i]] = new BalanceSum();
+                }
+                sums[months[i]].add(balance(i));
+            }
+            for (int month = 0; month < sums.length; month++) {
+                totals[month] = sums[month] == null ? null : sums[month].value();
+            }
+        }
+        Map<Month, BigDecimal> result = new HashMap<>();
+        for (Month month : Month.values()) {
+            if (present[month.getValue()]) {
+                result.put(month, totals[month.getValue()]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Character, Long> getCharacterFrequencyInFirstNames() {
+        CharacterCounter counter = new CharacterCounter();
+        for (int i = 0; i < columns.size; i++) {
+            counter.add(columns.firstNames[i]);
+        }
+        return counter.toMap();
+    }
+
+    @Override
+    public Map<Character, Long> getCharacterFrequencyIgnoreCaseInFirstAndLastNames() {
+        CharacterCounter counter = new CharacterCounter();
+        for (int i = 0; i < columns.size; i++) {
+            counter.addIgnoreCase(columns.firstNames[i], columns.lastNames[i]);
+        }
+        return counter.toMap();
+    }
+
+    @Override
+    public List<Account> findRichestAccounts(int limit) {
+        TopAccounts top = new TopAccounts(limit);
+        for (Account account : columns.accounts) {
+            top.add(account);
+        }
+        return top.toList();
+    }
+
+    @Override
+    public Map<String, List<Account>> findRichestAccountsByEmailDomain(int limit) {
+        TopAccounts[] tops = new TopAccounts[columns.emailDomains.length];
+        int[] codes = columns.emailDomainCodes;
+        for (int i = 0; i < columns.size; i++) {
+            if (tops[codes[i]] == null) {
+                tops[codes[i]] = new TopAccounts(limit);
+            }
+            tops[codes[i]].add(columns.accounts[i]);
+        }
+        Map<String, List<Account>> result = new HashMap<>();
+        for (int code = 0; code < tops.length; code++) {
+            result.put(columns.emailDomains[code], tops[code].toList());
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<BigDecimal> findBalancePercentile(double percentile) {
+        Selection.checkPercentile(percentile);
+        if (columns.size == 0) {
+            return Optional.empty();
+        }
+        int index = Selection.percentileIndex(percentile, columns.size);
+        if (columns.unscaledBalances != null) {
+            long unscaled = Selection.select(columns.unscaledBalances.clone(), index);
+            return Optional.of(BigDecimal.valueOf(unscaled, columns.balanceScale));
+        }
+        return Optional.of(Selection.select(columns.balances.clone(), index, BigDecimal::compareTo));
+    }
+
+    @Override
+    public Optional<BigDecimal> findApproximateBalancePercentile(double percentile, double rankError) {
+        BalanceQuantileSketch sketch = new BalanceQuantileSketch(rankError);
+        for (int i = 0; i < columns.size; i++) {
+            sketch.add(balance(i));
+        }
+        return sketch.findPercentile(percentile);
+    }
+
+    @Override
+    public List<Account> findAccounts(AccountFilter filter) {
+        List<Account> result = new ArrayList<>();
+        forEachMatch(filter, ordinal -> result.add(columns.accounts[ordinal]));
+        return result;
+    }
+
+    @Override
+    public long countAccounts(AccountFilter filter) {
+        long[] count = new long[1];
+        forEachMatch(filter, ordinal -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Fused queries read whole {@link Account} objects, so they scan the row array of the columns.
+     */
+    @Override
+    public AccountQueryResults evaluate(AccountQuery<?>... queries) {
+        return Arrays.stream(columns.accounts)
+                .collect(AccountQuery.fuse(List.of(queries)));
+    }
+
+    /**
+     * Passes ordinals of accounts that match the filter to the action. Conditions are checked on primitive columns: the
+     * email domain is compared by its code, the creation year as a range of epoch days, and the balance as an unscaled
+     * value against the floor of the scaled threshold.
+     */
+    private void forEachMatch(AccountFilter filter, IntConsumer action) {
+        int domainCode = -1;
+        if (filter.emailDomain != null) {
+            Integer code = columns.emailDomainCodesByName.get(filter.emailDomain);
+            if (code == null) {
+                return;
+            }
+            domainCode = code;
+        }
+        long fromDay = Long.MIN_VALUE;
+        long toDay = Long.MAX_VALUE;
+        if (filter.creationYear != null) {
+            if (filter.creationYear < Year.MIN_VALUE || filter.creationYear > Year.MAX_VALUE) {
+                return;
+            }
+            fromDay = LocalDate.of(filter.creationYear, 1, 1).toEpochDay();
+            toDay = LocalDate.of(filter.creationYear, 12, 31).toEpochDay();
+        }
+        long minUnscaled = Long.MIN_VALUE;
+        if (filter.balanceAbove != null && columns.unscaledBalances != null) {
+            BigInteger threshold = filter.balanceAbove.setScale(columns.balanceScale, RoundingMode.FLOOR)
+                    .unscaledValue();
+            if (threshold.compareTo(BigInteger.valueOf(Long.MAX_VALUE)) >= 0) {
+                return;
+            }
+            if (threshold.bitLength() < Long.SIZE) {
+                minUnscaled = threshold.longValue() + 1;
+            }
+        }
+        byte sex = filter.sex == null ? -1 : filter.sex == Sex.MALE ? AccountColumns.MALE : AccountColumns.FEMALE;
+        byte month = filter.birthdayMonth == null ? 0 : (byte) filter.birthdayMonth.getValue();
+        for (int i = 0; i < columns.size; i++) {
+            if ((sex < 0 || columns.sexes[i] == sex)
+                    && (domainCode < 0 || columns.emailDomainCodes[i] == domainCode)
+                    && (month == 0 || columns.birthdayMonths[i] == month)
+                    && columns.creationDates[i] >= fromDay && columns.creationDates[i] <= toDay
+                    && (filter.balanceAbove == null || (columns.unscaledBalances != null
+                    ? columns.unscaledBalances[i] >= minUnscaled
+                    : columns.balances[i].compareTo(filter.balanceAbove) > 0))) {
+                action.accept(i);
+            }
+        }
+    }
+
+    private BigDecimal balance(int ordinal) {
+        return columns.balances != null ? columns.balances[ordinal] : columns.accounts[ordinal].getBalance();
+    }
+
+    private boolean sumUnscaledByMonth(BigDecimal[] totals) {
+        if (columns.unscaledBalances == null) {
+            return false;
+        }
+        long[] sums = new long[totals.length];
+        byte[] months = columns.creationMonths;
+        try {
+            for (int i = 0; i < columns.size; i++) {
+                sums[months[i]] = Math.addExact(sums[months[i]], columns.unscaledBalances[i]);
+            }
+        } catch (ArithmeticException overflow) {
+            return false;
+        }
+        for (int month = 0; month < sums.length; month++) {
+            totals[month] = BigDecimal.valueOf(sums[month], columns.balanceScale);
+        }
+        return true;
+    }
+
+    private static <K, V> void putUnique(Map<K, V> map, K key, V value) {
+        V existing = map.putIfAbsent(key, value);
+        if (existing != null) {
+            throw new IllegalStateException(String.format("Duplicate key %s (attempted merging values %s and %s)",
+                    key, existing, value));
+        }
+    }
+}
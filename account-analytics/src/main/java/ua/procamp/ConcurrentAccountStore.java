@@ -0,0 +1,299 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * {@link ConcurrentAccountStore} is an append-only collection of accounts that many threads can add to while others
+ * query it, without locks. Accounts are kept in segments that double in size and are never moved, so an append costs
+ * O(1) and never copies existing accounts.
+ * <p>
+ * A producer allocates segments of the positions it is going to reserve, reserves them with a CAS, writes the accounts
+ * into them and then publishes the longest prefix of written positions. Nothing can fail between the reservation and
+ * the writes, so a failed append, e.g. one that cannot allocate a segment, reserves nothing and leaves no gap. Every
+ * read starts from a {@link #snapshot()} of the published prefix, which is an immutable list that does not change when
+ * more accounts are appended. Iterators and streams of the store are backed by a snapshot taken when they are created,
+ * so {@link AccountAnalytics#of(Collection)} over the store answers every query from a consistent set of accounts.
+ * <p>
+ * Accounts are published in the order of their positions, so a producer that is slow between its reservation and its
+ * writes, e.g. because its thread is descheduled, delays visibility of every account appended after it by other
+ * producers, though not the appends themselves.
+ */
+public final class ConcurrentAccountStore extends AbstractCollection<Account> {
+    private static final int FIRST_SEGMENT_SHIFT = 10;
+    private static final int FIRST_SEGMENT_SIZE = 1 << FIRST_SEGMENT_SHIFT;
+    private static final int MAX_SIZE = Integer.MAX_VALUE - FIRST_SEGMENT_SIZE + 1;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<Account>> segments =
+            new AtomicReferenceArray<>(Integer.SIZE - 1 - FIRST_SEGMENT_SHIFT);
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger published = new AtomicInteger();
+
+    private ConcurrentAccountStore() {
+    }
+
+    /**
+     * Creates a new empty store.
+     *
+     * @return new account store
+     */
+    public static ConcurrentAccountStore create() {
+        return new ConcurrentAccountStore();
+    }
+
+    /**
+     * Creates a new store with provided initial accounts.
+     *
+     * @param accounts initial accounts
+     * @return new account store
+     */
+    public static ConcurrentAccountStore of(Collection<Account> accounts) {
+        ConcurrentAccountStore store = new ConcurrentAccountStore();
+        store.addAll(accounts);
+        return store;
+    }
+
+    /**
+     * Appends an account. It becomes visible to readers once all accounts appended before it are visible too, so a slow
+     * concurrent append delays its visibility.
+     *
+     * @param account an account to append
+     * @return {@code true}
+     */
+    @Override
+    public boolean add(Account account) {
+        Objects.requireNonNull(account);
+        int index = reserve(1);
+        set(index, account);
+        publish();
+        return true;
+    }
+
+    /**
+     * Appends accounts in the order of the collection. Other appends may be published before, after or in between
+     * accounts of the collection.
+     *
+     * @param accounts accounts to append
+     * @return {@code true} if the collection is not empty
+     */
+    @Override
+    public boolean addAll(Collection<? extends Account> accounts) {
+        Account[] batch = accounts.toArray(new Account[0]);
+        if (batch.length == 0) {
+            return false;
+        }
+        for (Account account : batch) {
+            Objects.requireNonNull(account);
+        }
+        int first = reserve(batch.length);
+        for (int i = 0; i < batch.length; i++) {
+            set(first + i, batch[i]);
+        }
+        publish();
+        return true;
+    }
+
+    /**
+     * Returns a number of published accounts.
+     *
+     * @return a number of accounts visible to readers
+     */
+    @Override
+    public int size() {
+        return published.get();
+    }
+
+    /**
+     * Returns an immutable list of accounts published so far, in the order they were reserved. Later appends are not
+     * visible in the list.
+     *
+     * @return a snapshot of the store
+     */
+    public List<Account> snapshot() {
+        int size = published.get();
+        int segmentCount = size == 0 ? 0 : segmentOf(size - 1) + 1;
+        @SuppressWarnings("unchecked")
+        AtomicReferenceArray<Account>[] snapshotSegments = new AtomicReferenceArray[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            snapshotSegments[i] = segments.get(i);
+        }
+        return new Snapshot(snapshotSegments, size);
+    }
+
+    @Override
+    public Iterator<Account> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public Spliterator<Account> spliterator() {
+        return snapshot().spliterator();
+    }
+
+    /**
+     * Reserves positions for provided number of accounts. Their segments are allocated before the CAS, so a reserved
+     * position can always be written.
+     */
+    private int reserve(int count) {
+        while (true) {
+            int index = reserved.get();
+            if (index > MAX_SIZE - count) {
+                throw new IllegalStateException(String.format("Account store cannot hold %d more accounts", count));
+            }
+            allocateSegments(index, index + count);
+            if (reserved.compareAndSet(index, index + count)) {
+                return index;
+            }
+        }
+    }
+
+    private void allocateSegments(int from, int to) {
+        for (int segment = segmentOf(from); segment <= segmentOf(to - 1); segment++) {
+            if (segments.get(segment) == null) {
+                segments.compareAndSet(segment, null, new AtomicReferenceArray<>(FIRST_SEGMENT_SIZE << segment));
+            }
+        }
+    }
+
+    private void set(int index, Account account) {
+        int segment = segmentOf(index);
+        segments.get(segment).set(offsetOf(index, segment), account);
+    }
+
+    /**
+     * Moves the published size over written positions. A producer calls it after writing its accounts, so the last
+     * producer to fill a gap publishes all accounts written after the gap.
+     */
+    private void publish() {
+        int size = published.get();
+        while (true) {
+            int end = size;
+            int limit = reserved.get();
+            while (end < limit && isWritten(end)) {
+                end++;
+            }
+            if (end == size) {
+                return;
+            }
+            size = published.compareAndSet(size, end) ? end : published.get();
+        }
+    }
+
+    private boolean isWritten(int index) {
+        AtomicReferenceArray<Account> accounts = segments.get(segmentOf(index));
+        return accounts != null && accounts.get(offsetOf(index, segmentOf(index))) != null;
+    }
+
+    /**
+     * Returns a segment of the position. Segment k holds positions from {@code FIRST_SEGMENT_SIZE * (2^k - 1)}
+     * inclusive to {@code FIRST_SEGMENT_SIZE * (2^(k + 1) - 1)} exclusive.
+     */
+    private static int segmentOf(int index) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(index + FIRST_SEGMENT_SIZE) - FIRST_SEGMENT_SHIFT;
+    }
+
+    private static int offsetOf(int index, int segment) {
+        return index + FIRST_SEGMENT_SIZE - (FIRST_SEGMENT_SIZE << segment);
+    }
+
+    /**
+     * An immutable view of published positions. Accounts are read with plain loads, because reading the published size
+     * happens after they were written.
+     */
+    private static class Snapshot extends AbstractList<Account> implements RandomAccess {
+        private final AtomicReferenceArray<Account>[] segments;
+        private final int size;
+
+        private Snapshot(AtomicReferenceArray<Account>[] segments, int size) {
+            this.segments = segments;
+            this.size = size;
+        }
+
+        @Override
+        public Account get(int index) {
+            Objects.checkIndex(index, size);
+            int segment = segmentOf(index);
+            return segments[segment].getPlain(offsetOf(index, segment));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void forEach(Consumer<? super Account> action) {
+            spliterator().forEachRemaining(action);
+        }
+
+        @Override
+        public Spliterator<Account> spliterator() {
+            return new SnapshotSpliterator(segments, 0, size);
+        }
+    }
+
+    /**
+     * Splits a range of positions in halves and traverses it segment by segment, without computing a segment of every
+     * position.
+     */
+    private static class SnapshotSpliterator implements Spliterator<Account> {
+        private final AtomicReferenceArray<Account>[] segments;
+        private int index;
+        private final int fence;
+
+        private SnapshotSpliterator(AtomicReferenceArray<Account>[] segments, int index, int fence) {
+            this.segments = segments;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Account> action) {
+            if (index >= fence) {
+                return false;
+            }
+            int segment = segmentOf(index);
+            action.accept(segments[segment].getPlain(offsetOf(index++, segment)));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Account> action) {
+            while (index < fence) {
+                int segment = segmentOf(index);
+                AtomicReferenceArray<Account> accounts = segments[segment];
+                int offset = offsetOf(index, segment);
+                int end = Math.min(accounts.length(), offset + fence - index);
+                index += end - offset;
+                for (int i = offset; i < end; i++) {
+                    action.accept(accounts.getPlain(i));
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<Account> trySplit() {
+            int middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            Spliterator<Account> prefix = new SnapshotSpliterator(segments, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+}
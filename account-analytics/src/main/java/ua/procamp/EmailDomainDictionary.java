@@ -0,0 +1,78 @@
+package ua.procamp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free dictionary of canonical email domain instances. A domain is looked up by a region of the email, so a known
+ * domain is returned without allocating a substring, and its hash code is computed once per dictionary instead of once
+ * per account. Hash-based group-by of canonical domains also compares them by identity first.
+ * <p>
+ * The dictionary keeps at most half of its capacity of domains, and returns a new substring for any other domain. It is
+ * opt-in and owned by a dataset: pass one to {@link AccountAnalytics#of(java.util.Collection, EmailDomainDictionary)}
+ * and drop it together with the accounts. Share one dictionary between datasets only if they have the same domains.
+ */
+public final class EmailDomainDictionary {
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final int maxSize;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Creates an empty dictionary that keeps up to half of the capacity of domains.
+     *
+     * @param capacity a number of slots, must be a power of two
+     */
+    public EmailDomainDictionary(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(String.format("Capacity must be a power of two: %d", capacity));
+        }
+        slots = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        maxSize = capacity / 2;
+    }
+
+    /**
+     * Returns a canonical instance of the domain that is a region of the email.
+     *
+     * @param email an email
+     * @param from  the first index of the domain, inclusive
+     * @param to    the last index of the domain, exclusive
+     * @return email domain
+     */
+    String get(String email, int from, int to) {
+        int length = to - from;
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + email.charAt(i);
+        }
+        int index = (hash ^ (hash >>> 16)) & mask;
+        while (true) {
+            String domain = slots.get(index);
+            if (domain == null) {
+                if (size.get() >= maxSize) {
+                    return email.substring(from, to);
+                }
+                String newDomain = email.substring(from, to);
+                if (slots.compareAndSet(index, null, newDomain)) {
+                    size.incrementAndGet();
+                    return newDomain;
+                }
+            } else if (domain.length() == length && domain.hashCode() == hash
+                    && email.regionMatches(from, domain, 0, length)) {
+                return domain;
+            } else {
+                index = (index + 1) & mask;
+            }
+        }
+    }
+
+    /**
+     * Returns a number of domains in the dictionary.
+     *
+     * @return dictionary size
+     */
+    public int size() {
+        return size.get();
+    }
+}
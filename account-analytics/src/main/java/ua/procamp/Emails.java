@@ -0,0 +1,38 @@
+package ua.procamp;
+
+/**
+ * Helper methods for account emails shared by {@link AccountAnalytics} implementations.
+ */
+final class Emails {
+    private Emails() {
+    }
+
+    /**
+     * Returns a domain part of the email, which is the text between the first '@' and the next '@' or the end of
+     * the email. Unlike {@code email.split("@")[1]} it does not allocate an array of parts.
+     *
+     * @param email an account email
+     * @return email domain
+     */
+    static String getDomain(String email) {
+        return getDomain(email, null);
+    }
+
+    /**
+     * Returns a domain part of the email like {@link #getDomain(String)}. If a dictionary is provided, a canonical
+     * instance of a known domain is returned from it without allocating a substring.
+     *
+     * @param email   an account email
+     * @param domains a dictionary of domains, or null
+     * @return email domain
+     */
+    static String getDomain(String email, EmailDomainDictionary domains) {
+        int at = email.indexOf('@');
+        if (at < 0 || at == email.length() - 1) {
+            throw new IllegalArgumentException(String.format("Email has no domain: %s", email));
+        }
+        int end = email.indexOf('@', at + 1);
+        int to = end < 0 ? email.length() : end;
+        return domains == null ? email.substring(at + 1, to) : domains.get(email, at + 1, to);
+    }
+}
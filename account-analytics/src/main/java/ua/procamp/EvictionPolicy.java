@@ -0,0 +1,15 @@
+package ua.procamp;
+
+/**
+ * Defines which entry {@link CachingAccountAnalytics} evicts when its cache is full.
+ */
+public enum EvictionPolicy {
+    /**
+     * The least recently used entry is evicted.
+     */
+    LRU,
+    /**
+     * The least frequently used entry is evicted, and the least recently used one among equally used entries.
+     */
+    LFU
+}
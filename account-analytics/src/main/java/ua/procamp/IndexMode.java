@@ -0,0 +1,15 @@
+package ua.procamp;
+
+/**
+ * Defines when {@link IndexedAccountAnalytics} builds its indexes.
+ */
+public enum IndexMode {
+    /**
+     * Indexes are built on the first query that needs them.
+     */
+    LAZY,
+    /**
+     * Indexes are built when analytics is created and right after every invalidation.
+     */
+    EAGER
+}
@@ -0,0 +1,563 @@
+package ua.procamp;
+
+import ua.procamp.exception.EntityNotFoundException;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * {@link AccountAnalytics} implementation that answers point lookups from hash indexes built once over the accounts:
+ * an email to {@link Account} index and an email domain to accounts index. Accounts sorted by first and last names are
+ * kept in a name index that serves sorted views, pages, name prefix and range queries with binary search. A date index
+ * keeps ordinals of accounts bucketed by birthday month, creation month and year, and ordinals sorted by creation date,
+ * so month, year and creation date range queries touch only matching accounts. A bitmap index keeps compressed
+ * bitmaps of ordinals by sex, email domain, birthday month and creation year, so
+ * {@link #findAccounts(AccountFilter)} intersects bitmaps before it touches any {@link Account}. Other queries stream
+ * over the collection.
+ * <p>
+ * Indexes reflect the collection at the moment they were built. Call {@link #invalidate()} after accounts are added to or
+ * removed from the collection, or after their emails, names or dates change. Balances are read from indexed
+ * {@link Account} objects, so balance updates do not require invalidation.
+ */
+public class IndexedAccountAnalytics extends StreamAccountAnalytics {
+    private final Collection<Account> accounts;
+    private final IndexMode mode;
+    private volatile EmailIndex emailIndex;
+    private volatile NameIndex nameIndex;
+    private volatile DateIndex dateIndex;
+    private volatile BitmapIndex bitmapIndex;
+
+    IndexedAccountAnalytics(Collection<Account> accounts, IndexMode mode) {
+        super(accounts);
+        this.accounts = accounts;
+        this.mode = Objects.requireNonNull(mode);
+        if (mode == IndexMode.EAGER) {
+            emailIndex = new EmailIndex(accounts);
+            nameIndex = new NameIndex(accounts);
+            dateIndex = new DateIndex(accounts);
+            bitmapIndex = new BitmapIndex(accounts);
+        }
+    }
+
+    /**
+     * Drops all indexes, so they are rebuilt from the current state of the collection. In {@link IndexMode#EAGER} mode
+     * indexes are rebuilt immediately, in {@link IndexMode#LAZY} mode on the next query that needs them.
+     */
+    public synchronized void invalidate() {
+        emailIndex = mode == IndexMode.EAGER ? new EmailIndex(accounts) : null;
+        nameIndex = mode == IndexMode.EAGER ? new NameIndex(accounts) : null;
+        dateIndex = mode == IndexMode.EAGER ? new DateIndex(accounts) : null;
+        bitmapIndex = mode == IndexMode.EAGER ? new BitmapIndex(accounts) : null;
+    }
+
+    @Override
+    public List<Account> findAccountsByBirthdayMonth(Month birthdayMonth) {
+        if (birthdayMonth == null) {
+            return new ArrayList<>();
+        }
+        DateIndex index = dateIndex();
+        return index.accountsOf(index.birthdaysByMonth[birthdayMonth.ordinal()]);
+    }
+
+    @Override
+    public Map<Boolean, List<Account>> partitionMaleAccounts() {
+        BitmapIndex index = bitmapIndex();
+        Map<Boolean, List<Account>> result = new HashMap<>(4);
+        result.put(Boolean.TRUE, index.accountsOf(index.bySex.get(Sex.MALE)));
+        result.put(Boolean.FALSE, index.accountsOf(index.bySex.get(Sex.FEMALE)));
+        return result;
+    }
+
+    @Override
+    public Map<String, List<Account>> groupAccountsByEmailDomain() {
+        Map<String, List<Account>> result = new HashMap<>();
+        emailIndex().accountsByDomain.forEach((domain, domainAccounts) -> result.put(domain, new ArrayList<>(domainAccounts)));
+        return result;
+    }
+
+    @Override
+    public boolean containsAccountWithEmailDomain(String emailDomain) {
+        return bitmapIndex().byEmailDomain.containsKey(emailDomain);
+    }
+
+    @Override
+    public BigDecimal getBalanceByEmail(String email) {
+        Account account = emailIndex().accountsByEmail.get(email);
+        if (account == null) {
+            throw new EntityNotFoundException(String.format("Cannot find Account by email=%s", email));
+        }
+        return account.getBalance();
+    }
+
+    @Override
+    public Map<String, BigDecimal> collectBalancesByIdForAccountsCreatedOn(int year) {
+        DateIndex index = dateIndex();
+        return Arrays.stream(index.creationsByYear.getOrDefault(year, new int[0]))
+                .mapToObj(ordinal -> index.accounts[ordinal])
+                .collect(toMap(Account::getEmail, Account::getBalance));
+    }
+
+    @Override
+    public Map<Month, String> groupCommaSeparatedFirstNamesByBirthdayMonth() {
+        DateIndex index = dateIndex();
+        Map<Month, String> result = new HashMap<>();
+        for (Month month : Month.values()) {
+            int[] ordinals = index.birthdaysByMonth[month.ordinal()];
+            if (ordinals.length > 0) {
+                StringJoiner firstNames = new StringJoiner(", ");
+                for (int ordinal : ordinals) {
+                    firstNames.add(index.accounts[ordinal].getFirstName());
+                }
+                result.put(month, firstNames.toString());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Month, BigDecimal> groupTotalBalanceByCreationMonth() {
+        DateIndex index = dateIndex();
+        Map<Month, BigDecimal> result = new HashMap<>();
+        for (Month month : Month.values()) {
+            int[] ordinals = index.creationsByMonth[month.ordinal()];
+            if (ordinals.length > 0) {
+                result.put(month, Arrays.stream(ordinals)
+                        .mapToObj(ordinal -> index.accounts[ordinal].getBalance())
+                        .collect(BalanceSum.collector()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Account> sortByFirstAndLastNames() {
+        return new ArrayList<>(Arrays.asList(nameIndex().accounts));
+    }
+
+    /**
+     * Returns a page of accounts sorted by first and last names. Accounts with equal names keep their order in the
+     * collection, so pages are consistent with {@link #sortByFirstAndLastNames()}.
+     *
+     * @param offset a number of sorted accounts to skip
+     * @param limit  max number of accounts to return
+     * @return a page of sorted accounts, which is empty if offset is beyond the last account
+     */
+    public List<Account> findAccountsSortedByNames(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException(String.format("Offset and limit must not be negative: %d, %d",
+                    offset, limit));
+        }
+        Account[] sorted = nameIndex().accounts;
+        int from = Math.min(offset, sorted.length);
+        return copyOf(sorted, from, (int) Math.min((long) from + limit, sorted.length));
+    }
+
+    /**
+     * Returns accounts which first names start with provided prefix, sorted by first and last names.
+     *
+     * @param prefix a first name prefix
+     * @return sorted accounts with such first name prefix
+     */
+    public List<Account> findAccountsByFirstNamePrefix(String prefix) {
+        NameIndex index = nameIndex();
+        int from = index.lowerBound(prefix);
+        int to = from;
+        while (to < index.firstNames.length && index.firstNames[to].startsWith(prefix)) {
+            to++;
+        }
+        return copyOf(index.accounts, from, to);
+    }
+
+    /**
+     * Returns accounts which first names are between provided names, sorted by first and last names.
+     *
+     * @param fromFirstName a lower bound of first names, inclusive
+     * @param toFirstName   an upper bound of first names, exclusive
+     * @return sorted accounts with first names in the range
+     */
+    public List<Account> findAccountsByFirstNameRange(String fromFirstName, String toFirstName) {
+        NameIndex index = nameIndex();
+        int from = index.lowerBound(fromFirstName);
+        return copyOf(index.accounts, from, Math.max(from, index.lowerBound(toFirstName)));
+    }
+
+    @Override
+    public List<Account> findAccounts(AccountFilter filter) {
+        BitmapIndex index = bitmapIndex();
+        List<Account> result = new ArrayList<>();
+        index.forEachMatch(filter, ordinal -> result.add(index.accounts[ordinal]));
+        return result;
+    }
+
+    @Override
+    public long countAccounts(AccountFilter filter) {
+        BitmapIndex index = bitmapIndex();
+        if (filter.balanceAbove == null) {
+            AccountBitmap matches = index.match(filter);
+            return matches == null ? index.accounts.length : matches.cardinality();
+        }
+        long[] count = new long[1];
+        index.forEachMatch(filter, ordinal -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Returns accounts created between provided dates, sorted by creation date. Accounts created on the same day keep
+     * their order in the collection.
+     *
+     * @param fromDate the first creation date, inclusive
+     * @param toDate   the last creation date, exclusive
+     * @return sorted accounts created in the range
+     */
+    public List<Account> findAccountsCreatedBetween(LocalDate fromDate, LocalDate toDate) {
+        DateIndex index = dateIndex();
+        int from = index.lowerBound(fromDate.toEpochDay());
+        int to = Math.max(from, index.lowerBound(toDate.toEpochDay()));
+        return index.accountsOf(Arrays.copyOfRange(index.byCreationDate, from, to));
+    }
+
+    private static List<Account> copyOf(Account[] accounts, int from, int to) {
+        return new ArrayList<>(Arrays.asList(accounts).subList(from, to));
+    }
+
+    private NameIndex nameIndex() {
+        NameIndex index = nameIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = nameIndex;
+                if (index == null) {
+                    index = new NameIndex(accounts);
+                    nameIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private BitmapIndex bitmapIndex() {
+        BitmapIndex index = bitmapIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = bitmapIndex;
+                if (index == null) {
+                    index = new BitmapIndex(accounts);
+                    bitmapIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private DateIndex dateIndex() {
+        DateIndex index = dateIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = dateIndex;
+                if (index == null) {
+                    index = new DateIndex(accounts);
+                    dateIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private EmailIndex emailIndex() {
+        EmailIndex index = emailIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = emailIndex;
+                if (index == null) {
+                    index = new EmailIndex(accounts);
+                    emailIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private static class EmailIndex {
+        private final Map<String, Account> accountsByEmail;
+        private final Map<String, List<Account>> accountsByDomain;
+
+        private EmailIndex(Collection<Account> accounts) {
+            accountsByEmail = new HashMap<>();
+            accountsByDomain = new HashMap<>();
+            for (Account account : accounts) {
+                accountsByEmail.putIfAbsent(account.getEmail(), account);
+                accountsByDomain.computeIfAbsent(Emails.getDomain(account.getEmail()), domain -> new ArrayList<>())
+                        .add(account);
+            }
+        }
+    }
+
+    private static class NameIndex {
+        private final Account[] accounts;
+        private final String[] firstNames;
+
+        private NameIndex(Collection<Account> accounts) {
+            this.accounts = accounts.toArray(new Account[0]);
+            Arrays.sort(this.accounts, Comparator.comparing(Account::getFirstName).thenComparing(Account::getLastName));
+            firstNames = new String[this.accounts.length];
+            for (int i = 0; i < firstNames.length; i++) {
+                firstNames[i] = this.accounts[i].getFirstName();
+            }
+        }
+
+        /**
+         * Returns an index of the first account which first name is not less than provided one.
+         */
+        private int lowerBound(String firstName) {
+            int low = 0;
+            int high = firstNames.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (firstNames[middle].compareTo(firstName) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Ordinals of accounts, which are their positions in the collection, bucketed by birthday month, creation month and
+     * creation year, and sorted by creation date. Buckets keep ordinals in the collection order. Accounts without a
+     * date are not in the buckets of that date.
+     */
+    private static class DateIndex {
+        private final Account[] accounts;
+        private final int[][] birthdaysByMonth;
+        private final int[][] creationsByMonth;
+        private final Map<Integer, int[]> creationsByYear;
+        private final int[] byCreationDate;
+        private final long[] creationDays;
+
+        private DateIndex(Collection<Account> accounts) {
+            this.accounts = accounts.toArray(new Account[0]);
+            birthdaysByMonth = bucketByMonth(this.accounts, Account::getBirthday);
+            creationsByMonth = bucketByMonth(this.accounts, Account::getCreationDate);
+
+            long[] days = new long[this.accounts.length];
+            int count = 0;
+            for (int i = 0; i < this.accounts.length; i++) {
+                LocalDate creationDate = this.accounts[i].getCreationDate();
+                if (creationDate != null) {
+                    days[i] = creationDate.toEpochDay();
+                    count++;
+                }
+            }
+            byCreationDate = new int[count];
+            count = 0;
+            for (int i = 0; i < this.accounts.length; i++) {
+                if (this.accounts[i].getCreationDate() != null) {
+                    byCreationDate[count++] = i;
+                }
+            }
+            creationsByYear = bucketByYear(this.accounts, byCreationDate);
+            sortByDay(byCreationDate, days);
+            creationDays = new long[count];
+            for (int i = 0; i < count; i++) {
+                creationDays[i] = days[byCreationDate[i]];
+            }
+        }
+
+        private List<Account> accountsOf(int[] ordinals) {
+            List<Account> result = new ArrayList<>(ordinals.length);
+            for (int ordinal : ordinals) {
+                result.add(accounts[ordinal]);
+            }
+            return result;
+        }
+
+        /**
+         * Returns an index in {@link #byCreationDate} of the first account created not before provided epoch day.
+         */
+        private int lowerBound(long epochDay) {
+            int low = 0;
+            int high = creationDays.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (creationDays[middle] < epochDay) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Counts accounts per month first, so every bucket is allocated with its exact size.
+         */
+        private static int[][] bucketByMonth(Account[] accounts, Function<Account, LocalDate> date) {
+            int[] counts = new int[Month.values().length];
+            for (Account account : accounts) {
+                LocalDate value = date.apply(account);
+                if (value != null) {
+                    counts[value.getMonthValue() - 1]++;
+                }
+            }
+            int[][] buckets = new int[counts.length][];
+            for (int month = 0; month < counts.length; month++) {
+                buckets[month] = new int[counts[month]];
+                counts[month] = 0;
+            }
+            for (int i = 0; i < accounts.length; i++) {
+                LocalDate value = date.apply(accounts[i]);
+                if (value != null) {
+                    int month = value.getMonthValue() - 1;
+                    buckets[month][counts[month]++] = i;
+                }
+            }
+            return buckets;
+        }
+
+        /**
+         * Fills every bucket from its end while iterating ordinals backwards, so buckets keep the order of ordinals.
+         */
+        private static Map<Integer, int[]> bucketByYear(Account[] accounts, int[] ordinals) {
+            Map<Integer, int[]> counts = new HashMap<>();
+            for (int ordinal : ordinals) {
+                counts.computeIfAbsent(accounts[ordinal].getCreationDate().getYear(), year -> new int[1])[0]++;
+            }
+            Map<Integer, int[]> buckets = new HashMap<>();
+            counts.forEach((year, count) -> buckets.put(year, new int[count[0]]));
+            for (int i = ordinals.length - 1; i >= 0; i--) {
+                int year = accounts[ordinals[i]].getCreationDate().getYear();
+                buckets.get(year)[--counts.get(year)[0]] = ordinals[i];
+            }
+            return buckets;
+        }
+
+        /**
+         * Sorts ordinals by their days, keeping the order of ordinals of the same day. Days and ordinals are packed
+         * into longs and sorted as primitives when days fit into 32 bits relative to the earliest one, which holds for
+         * any realistic dates.
+         */
+        private static void sortByDay(int[] ordinals, long[] days) {
+            long minDay = Long.MAX_VALUE;
+            long maxDay = Long.MIN_VALUE;
+            for (int ordinal : ordinals) {
+                minDay = Math.min(minDay, days[ordinal]);
+                maxDay = Math.max(maxDay, days[ordinal]);
+            }
+            if (ordinals.length > 0 && maxDay - minDay > Integer.MAX_VALUE) {
+                Integer[] boxed = Arrays.stream(ordinals).boxed().toArray(Integer[]::new);
+                Arrays.sort(boxed, Comparator.comparingLong(ordinal -> days[ordinal]));
+                for (int i = 0; i < ordinals.length; i++) {
+                    ordinals[i] = boxed[i];
+                }
+                return;
+            }
+            long[] keys = new long[ordinals.length];
+            for (int i = 0; i < ordinals.length; i++) {
+                keys[i] = (days[ordinals[i]] - minDay) << 32 | ordinals[i];
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < ordinals.length; i++) {
+                ordinals[i] = (int) keys[i];
+            }
+        }
+    }
+
+    /**
+     * Bitmaps of account ordinals by attribute value. Values without accounts have no bitmaps.
+     */
+    private static class BitmapIndex {
+        private static final AccountBitmap EMPTY = new AccountBitmap();
+
+        private final Account[] accounts;
+        private final Map<Sex, AccountBitmap> bySex = new EnumMap<>(Sex.class);
+        private final Map<String, AccountBitmap> byEmailDomain = new HashMap<>();
+        private final Map<Month, AccountBitmap> byBirthdayMonth = new EnumMap<>(Month.class);
+        private final Map<Integer, AccountBitmap> byCreationYear = new HashMap<>();
+
+        private BitmapIndex(Collection<Account> accounts) {
+            this.accounts = accounts.toArray(new Account[0]);
+            for (int i = 0; i < this.accounts.length; i++) {
+                Account account = this.accounts[i];
+                if (account.getSex() != null) {
+                    bySex.computeIfAbsent(account.getSex(), sex -> new AccountBitmap()).add(i);
+                }
+                byEmailDomain.computeIfAbsent(Emails.getDomain(account.getEmail()), domain -> new AccountBitmap())
+                        .add(i);
+                if (account.getBirthday() != null) {
+                    byBirthdayMonth.computeIfAbsent(account.getBirthday().getMonth(), month -> new AccountBitmap())
+                            .add(i);
+                }
+                if (account.getCreationDate() != null) {
+                    byCreationYear.computeIfAbsent(account.getCreationDate().getYear(), year -> new AccountBitmap())
+                            .add(i);
+                }
+            }
+        }
+
+        private List<Account> accountsOf(AccountBitmap bitmap) {
+            List<Account> result = new ArrayList<>();
+            if (bitmap != null) {
+                bitmap.forEach(ordinal -> result.add(accounts[ordinal]));
+            }
+            return result;
+        }
+
+        /**
+         * Returns an intersection of bitmaps of the filter conditions, starting from the smallest bitmap, or null if
+         * the filter has no conditions with bitmaps.
+         */
+        private AccountBitmap match(AccountFilter filter) {
+            List<AccountBitmap> bitmaps = new ArrayList<>(4);
+            if (filter.sex != null) {
+                bitmaps.add(bySex.getOrDefault(filter.sex, EMPTY));
+            }
+            if (filter.emailDomain != null) {
+                bitmaps.add(byEmailDomain.getOrDefault(filter.emailDomain, EMPTY));
+            }
+            if (filter.birthdayMonth != null) {
+                bitmaps.add(byBirthdayMonth.getOrDefault(filter.birthdayMonth, EMPTY));
+            }
+            if (filter.creationYear != null) {
+                bitmaps.add(byCreationYear.getOrDefault(filter.creationYear, EMPTY));
+            }
+            if (bitmaps.isEmpty()) {
+                return null;
+            }
+            bitmaps.sort(Comparator.comparingInt(AccountBitmap::cardinality));
+            AccountBitmap result = bitmaps.get(0);
+            for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+                result = result.and(bitmaps.get(i));
+            }
+            return result;
+        }
+
+        /**
+         * Passes ordinals of matching accounts to the action in increasing order. The balance condition has no bitmap,
+         * so it is checked on accounts of the intersection.
+         */
+        private void forEachMatch(AccountFilter filter, IntConsumer action) {
+            IntConsumer matched = filter.balanceAbove == null ? action : ordinal -> {
+                if (accounts[ordinal].getBalance().compareTo(filter.balanceAbove) > 0) {
+                    action.accept(ordinal);
+                }
+            };
+            AccountBitmap matches = match(filter);
+            if (matches != null) {
+                matches.forEach(matched);
+            } else {
+                for (int i = 0; i < accounts.length; i++) {
+                    matched.accept(i);
+                }
+            }
+        }
+    }
+}
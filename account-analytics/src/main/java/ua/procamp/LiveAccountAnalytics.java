@@ -0,0 +1,232 @@
+package ua.procamp;
+
+import ua.procamp.exception.EntityNotFoundException;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Month;
+import java.util.*;
+
+/**
+ * {@link LiveAccountAnalytics} keeps aggregates of a changing set of accounts up to date. Instead of recomputing them on
+ * every read, it accepts add, update and remove events and adjusts total balance, total balance by creation month, male
+ * and female partitions and character frequencies per event. Accounts are identified by email, like in
+ * {@link Account#equals(Object)}.
+ * <p>
+ * Every event costs O(log n) plus the length of account names, reads of balances are O(1) and reads of frequencies are
+ * proportional to the alphabet size. Results are equal to the ones of {@link AccountAnalytics#of(Collection)} built over
+ * {@link #getAccounts()}. All methods are synchronized.
+ */
+public class LiveAccountAnalytics {
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final NavigableMap<Long, Account> males = new TreeMap<>();
+    private final NavigableMap<Long, Account> females = new TreeMap<>();
+    private final BalanceTotal totalBalance = new BalanceTotal();
+    private final Map<Month, BalanceTotal> totalBalanceByCreationMonth = new EnumMap<>(Month.class);
+    private final CharacterCounter firstNamesFrequency = new CharacterCounter();
+    private final CharacterCounter firstAndLastNamesIgnoreCaseFrequency = new CharacterCounter();
+    private long nextSequence;
+
+    /**
+     * Creates a new {@link LiveAccountAnalytics} with provided initial accounts.
+     *
+     * @param accounts initial accounts
+     * @return new live analytics
+     */
+    public static LiveAccountAnalytics of(Collection<Account> accounts) {
+        LiveAccountAnalytics analytics = new LiveAccountAnalytics();
+        accounts.forEach(analytics::add);
+        return analytics;
+    }
+
+    /**
+     * Adds a new account. Throws {@link IllegalArgumentException} if an account with the same email is already added.
+     *
+     * @param account an account to add
+     */
+    public synchronized void add(Account account) {
+        if (entries.containsKey(account.getEmail())) {
+            throw new IllegalArgumentException(String.format("Account with email=%s already exists", account.getEmail()));
+        }
+        Entry entry = new Entry(nextSequence++, account);
+        entries.put(entry.email, entry);
+        apply(entry, 1);
+    }
+
+    /**
+     * Replaces a previously added account with the same email by provided one. The account may be the same instance that
+     * was added and then modified. Throws {@link EntityNotFoundException} if there is no account with such email.
+     *
+     * @param account new state of the account
+     */
+    public synchronized void update(Account account) {
+        Entry previous = getEntry(account.getEmail());
+        apply(previous, -1);
+        Entry entry = new Entry(previous.sequence, account);
+        entries.put(entry.email, entry);
+        apply(entry, 1);
+    }
+
+    /**
+     * Removes an account with the same email as provided one. Throws {@link EntityNotFoundException} if there is no
+     * account with such email.
+     *
+     * @param account an account to remove
+     */
+    public synchronized void remove(Account account) {
+        Entry entry = getEntry(account.getEmail());
+        entries.remove(entry.email);
+        apply(entry, -1);
+    }
+
+    /**
+     * Returns current accounts in the order they were added.
+     *
+     * @return a list of current accounts
+     */
+    public synchronized List<Account> getAccounts() {
+        List<Account> result = new ArrayList<>(entries.size());
+        entries.values().forEach(entry -> result.add(entry.account));
+        return result;
+    }
+
+    /**
+     * Returns a total balance of all accounts.
+     *
+     * @return total balance of all accounts
+     */
+    public synchronized BigDecimal calculateTotalBalance() {
+        return totalBalance.value();
+    }
+
+    /**
+     * Returns a {@link Map} where key is a {@link Month} of {@link Account#creationDate}, and value is total balance
+     * of all accounts that have the same value creation month.
+     *
+     * @return a map where key is a creation month and value is total balance of all accounts created in that month
+     */
+    public synchronized Map<Month, BigDecimal> groupTotalBalanceByCreationMonth() {
+        Map<Month, BigDecimal> result = new HashMap<>();
+        totalBalanceByCreationMonth.forEach((month, total) -> result.put(month, total.value()));
+        return result;
+    }
+
+    /**
+     * Returns a map that separates all accounts into two lists - male and female. Map has two keys {@code true} indicates
+     * male list, and {@code false} indicates female list.
+     *
+     * @return a map where key is true or false, and value is list of male, and female accounts
+     */
+    public synchronized Map<Boolean, List<Account>> partitionMaleAccounts() {
+        Map<Boolean, List<Account>> result = new HashMap<>(4);
+        result.put(Boolean.TRUE, new ArrayList<>(males.values()));
+        result.put(Boolean.FALSE, new ArrayList<>(females.values()));
+        return result;
+    }
+
+    /**
+     * Returns a {@link Map} where key is a letter {@link Character}, and value is a number of its occurrences in
+     * {@link Account#firstName}.
+     *
+     * @return a map where key is a letter and value is its count in all first names
+     */
+    public synchronized Map<Character, Long> getCharacterFrequencyInFirstNames() {
+        return firstNamesFrequency.toMap();
+    }
+
+    /**
+     * Returns a {@link Map} where key is a letter {@link Character}, and value is a number of its occurrences ignoring
+     * case, in all {@link Account#firstName} and {@link Account#lastName}. All letters should stored in lower case.
+     *
+     * @return a map where key is a letter and value is its count ignoring case in all first and last names
+     */
+    public synchronized Map<Character, Long> getCharacterFrequencyIgnoreCaseInFirstAndLastNames() {
+        return firstAndLastNamesIgnoreCaseFrequency.toMap();
+    }
+
+    private Entry getEntry(String email) {
+        Entry entry = entries.get(email);
+        if (entry == null) {
+            throw new EntityNotFoundException(String.format("Cannot find Account by email=%s", email));
+        }
+        return entry;
+    }
+
+    private void apply(Entry entry, int sign) {
+        NavigableMap<Long, Account> partition = entry.male ? males : females;
+        if (sign > 0) {
+            partition.put(entry.sequence, entry.account);
+            firstNamesFrequency.add(entry.firstName);
+            firstAndLastNamesIgnoreCaseFrequency.addIgnoreCase(entry.firstName, entry.lastName);
+            totalBalance.add(entry.balance);
+            totalBalanceByCreationMonth.computeIfAbsent(entry.creationMonth, month -> new BalanceTotal()).add(entry.balance);
+        } else {
+            partition.remove(entry.sequence);
+            firstNamesFrequency.remove(entry.firstName);
+            firstAndLastNamesIgnoreCaseFrequency.removeIgnoreCase(entry.firstName, entry.lastName);
+            totalBalance.subtract(entry.balance);
+            BalanceTotal monthTotal = totalBalanceByCreationMonth.get(entry.creationMonth);
+            monthTotal.subtract(entry.balance);
+            if (monthTotal.isEmpty()) {
+                totalBalanceByCreationMonth.remove(entry.creationMonth);
+            }
+        }
+    }
+
+    /**
+     * Field values of an account captured when the event is applied, so the same values are subtracted later even if the
+     * {@link Account} instance has been modified in between.
+     */
+    private static class Entry {
+        private final long sequence;
+        private final Account account;
+        private final String email;
+        private final String firstName;
+        private final String lastName;
+        private final boolean male;
+        private final Month creationMonth;
+        private final BigDecimal balance;
+
+        private Entry(long sequence, Account account) {
+            this.sequence = sequence;
+            this.account = account;
+            this.email = Objects.requireNonNull(account.getEmail());
+            this.firstName = account.getFirstName();
+            this.lastName = account.getLastName();
+            this.male = account.getSex().equals(Sex.MALE);
+            this.creationMonth = account.getCreationDate().getMonth();
+            this.balance = Objects.requireNonNull(account.getBalance());
+        }
+    }
+
+    /**
+     * A running sum of balances. {@link BigDecimal#add(BigDecimal)} returns a value with the largest scale of its
+     * operands, so the sum also counts scales of its terms to report the same scale as a full recomputation after
+     * the term with the largest scale is subtracted.
+     */
+    private static class BalanceTotal {
+        private final NavigableMap<Integer, Integer> scaleCounts = new TreeMap<>();
+        private BigDecimal sum = BigDecimal.ZERO;
+
+        private void add(BigDecimal balance) {
+            sum = sum.add(balance);
+            scaleCounts.merge(balance.scale(), 1, Integer::sum);
+        }
+
+        private void subtract(BigDecimal balance) {
+            sum = sum.subtract(balance);
+            scaleCounts.computeIfPresent(balance.scale(), (scale, count) -> count == 1 ? null : count - 1);
+        }
+
+        private boolean isEmpty() {
+            return scaleCounts.isEmpty();
+        }
+
+        private BigDecimal value() {
+            int scale = scaleCounts.isEmpty() ? 0 : Math.max(0, scaleCounts.lastKey());
+            return sum.setScale(scale, RoundingMode.UNNECESSARY);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ua.procamp;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link ShardTransport} that keeps shards in memory and runs tasks on an executor of this JVM.
+ */
+class LocalShardTransport implements ShardTransport {
+    private final AtomicReferenceArray<AccountShard> shards;
+    private final Executor executor;
+
+    LocalShardTransport(int shardCount, Executor executor) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException(String.format("Shard count must be positive: %d", shardCount));
+        }
+        this.shards = new AtomicReferenceArray<>(shardCount);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public int shardCount() {
+        return shards.length();
+    }
+
+    @Override
+    public void load(int shard, AccountShard accounts) {
+        shards.set(shard, Objects.requireNonNull(accounts));
+    }
+
+    @Override
+    public <R> CompletableFuture<R> submit(int shard, ShardTask<R> task) {
+        AccountShard accounts = shards.get(shard);
+        if (accounts == null) {
+            throw new IllegalStateException(String.format("Shard %d is not loaded!", shard));
+        }
+        return CompletableFuture.supplyAsync(() -> task.apply(accounts), executor);
+    }
+}
@@ -0,0 +1,378 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
+
+/**
+ * A {@link Map} from account id to {@link Account} that keeps ids unboxed in an open-addressing table with linear
+ * probing, so it needs two array slots per account instead of a boxed key and an entry object of {@link HashMap}. A
+ * null id is kept aside the table, like {@link HashMap} allows it.
+ * <p>
+ * Values must not be null. Entries of {@link #entrySet()} are created on iteration, so primitive
+ * {@link #get(long)} and {@link #putIfAbsent(long, Account)} should be used on hot paths. Like {@link HashMap}, views
+ * support removal through their iterators, and entries support {@link Entry#setValue(Object)}.
+ */
+final class LongAccountMap extends AbstractMap<Long, Account> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Account[] values;
+    private int size;
+    private Account nullKeyValue;
+
+    LongAccountMap() {
+        this(0);
+    }
+
+    LongAccountMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new Account[capacity];
+    }
+
+    /**
+     * Returns a collector of accounts by id which, like {@link java.util.stream.Collectors#toMap}, throws
+     * {@link IllegalStateException} on duplicate ids.
+     *
+     * @return a collector of accounts by id
+     */
+    static Collector<Account, LongAccountMap, Map<Long, Account>> collector() {
+        return collector(0);
+    }
+
+    /**
+     * Returns a collector of accounts by id like {@link #collector()}, which creates maps presized for the expected
+     * number of accounts, so a sequential stream of that many accounts is collected without resizing.
+     *
+     * @param expectedSize expected number of accounts in a container
+     * @return a collector of accounts by id
+     */
+    static Collector<Account, LongAccountMap, Map<Long, Account>> collector(int expectedSize) {
+        return Collector.of(() -> new LongAccountMap(expectedSize),
+                (map, account) -> map.putUnique(account.getId(), account),
+                (map, other) -> {
+                    other.forEachAccount(map::putUnique);
+                    return map;
+                },
+                map -> map);
+    }
+
+    Account get(long id) {
+        int index = indexOf(id);
+        return index < 0 ? null : values[index];
+    }
+
+    Account putIfAbsent(long id, Account account) {
+        Objects.requireNonNull(account);
+        int index = slot(id);
+        if (values[index] != null) {
+            return values[index];
+        }
+        insert(index, id, account);
+        return null;
+    }
+
+    /**
+     * Puts the account, or throws {@link IllegalStateException} like {@link java.util.stream.Collectors#toMap} if there
+     * is an account with such id.
+     */
+    void putUnique(Long id, Account account) {
+        if (id != null) {
+            putUnique(id.longValue(), account);
+        } else if (putNullKeyIfAbsent(account) != null) {
+            throw duplicateKey(null, nullKeyValue, account);
+        }
+    }
+
+    void putUnique(long id, Account account) {
+        Account existing = putIfAbsent(id, account);
+        if (existing != null) {
+            throw duplicateKey(id, existing, account);
+        }
+    }
+
+    @Override
+    public Account get(Object key) {
+        if (key == null) {
+            return nullKeyValue;
+        }
+        return key instanceof Long ? get(((Long) key).longValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Account put(Long key, Account value) {
+        Objects.requireNonNull(value);
+        if (key == null) {
+            Account previous = nullKeyValue;
+            nullKeyValue = value;
+            if (previous == null) {
+                size++;
+            }
+            return previous;
+        }
+        int index = slot(key);
+        Account previous = values[index];
+        if (previous == null) {
+            insert(index, key, value);
+        } else {
+            values[index] = value;
+        }
+        return previous;
+    }
+
+    @Override
+    public Account remove(Object key) {
+        if (key == null) {
+            Account previous = nullKeyValue;
+            if (previous != null) {
+                nullKeyValue = null;
+                size--;
+            }
+            return previous;
+        }
+        if (!(key instanceof Long)) {
+            return null;
+        }
+        int index = indexOf((Long) key);
+        if (index < 0) {
+            return null;
+        }
+        Account previous = values[index];
+        deleteSlot(index);
+        size--;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        nullKeyValue = null;
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<Long, Account>> entrySet() {
+        return new AbstractSet<Entry<Long, Account>>() {
+            @Override
+            public Iterator<Entry<Long, Account>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void forEachAccount(BiConsumer<Long, Account> action) {
+        if (nullKeyValue != null) {
+            action.accept(null, nullKeyValue);
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private static IllegalStateException duplicateKey(Long id, Account existing, Account account) {
+        return new IllegalStateException(String.format("Duplicate key %s (attempted merging values %s and %s)",
+                id, existing, account));
+    }
+
+    private Account putNullKeyIfAbsent(Account account) {
+        if (nullKeyValue != null) {
+            return nullKeyValue;
+        }
+        nullKeyValue = Objects.requireNonNull(account);
+        size++;
+        return null;
+    }
+
+    private int indexOf(long id) {
+        int index = slot(id);
+        return values[index] == null ? -1 : index;
+    }
+
+    /**
+     * Returns an index of the slot that holds the id, or of the empty slot where it should be inserted.
+     */
+    private int slot(long id) {
+        int mask = keys.length - 1;
+        int index = hash(id) & mask;
+        while (values[index] != null && keys[index] != id) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void insert(int index, long id, Account account) {
+        keys[index] = id;
+        values[index] = account;
+        size++;
+        if ((size - (nullKeyValue != null ? 1 : 0)) * 2L > keys.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Empties the slot and moves later entries of its probe sequence back, so lookups do not need tombstones.
+     */
+    private void deleteSlot(int index) {
+        int mask = keys.length - 1;
+        int gap = index;
+        int next = (index + 1) & mask;
+        while (values[next] != null) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Account[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Account[oldValues.length * 2];
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int index = slot(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Mixes all bits of the id with the finalizer of MurmurHash3, so ids that differ only in high bits, e.g. dense
+     * ranges with a tenant prefix, do not share runs of the table.
+     */
+    private static int hash(long id) {
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Iterates over the table from the start. Removal moves later entries of the probe sequence back into the emptied
+     * slot, so the iterator visits that slot again. If the probe sequence wraps around the end of the table, removal
+     * could move an entry that was already returned from the start of the table to its end. In that case the iterator
+     * continues over a copy of the slots it has not visited yet, like {@link IdentityHashMap} does, and removes next
+     * entries by key.
+     */
+    private class EntryIterator implements Iterator<Entry<Long, Account>> {
+        private long[] iterationKeys = keys;
+        private Account[] iterationValues = values;
+        private boolean nullKeyReturned = nullKeyValue == null;
+        private int index = nextIndex(0);
+        private int lastIndex = -1;
+        private boolean lastNullKey;
+
+        @Override
+        public boolean hasNext() {
+            return !nullKeyReturned || index < iterationValues.length;
+        }
+
+        @Override
+        public Entry<Long, Account> next() {
+            if (!nullKeyReturned) {
+                nullKeyReturned = true;
+                lastNullKey = true;
+                return new SlotEntry(null, nullKeyValue);
+            }
+            if (index >= iterationValues.length) {
+                throw new NoSuchElementException();
+            }
+            lastNullKey = false;
+            lastIndex = index;
+            index = nextIndex(index + 1);
+            return new SlotEntry(iterationKeys[lastIndex], iterationValues[lastIndex]);
+        }
+
+        @Override
+        public void remove() {
+            if (lastNullKey) {
+                lastNullKey = false;
+                LongAccountMap.this.remove(null);
+                return;
+            }
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            int removed = lastIndex;
+            lastIndex = -1;
+            if (iterationValues != values) {
+                LongAccountMap.this.remove(iterationKeys[removed]);
+            } else if (probeSequenceWrapsAround(removed)) {
+                iterationKeys = Arrays.copyOfRange(keys, removed + 1, keys.length);
+                iterationValues = Arrays.copyOfRange(values, removed + 1, values.length);
+                deleteSlot(removed);
+                size--;
+                index = nextIndex(0);
+            } else {
+                deleteSlot(removed);
+                size--;
+                index = nextIndex(removed);
+            }
+        }
+
+        private boolean probeSequenceWrapsAround(int from) {
+            int i = from + 1;
+            while (i < values.length && values[i] != null) {
+                i++;
+            }
+            return i == values.length && values[0] != null;
+        }
+
+        private int nextIndex(int from) {
+            int i = from;
+            while (i < iterationValues.length && iterationValues[i] == null) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * An entry that writes a new value through to the map.
+     */
+    private final class SlotEntry extends SimpleEntry<Long, Account> {
+        private static final long serialVersionUID = 1L;
+
+        private SlotEntry(Long key, Account value) {
+            super(key, value);
+        }
+
+        @Override
+        public Account setValue(Account value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
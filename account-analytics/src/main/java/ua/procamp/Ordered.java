@@ -0,0 +1,112 @@
+package ua.procamp;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A partial result of a sharded query: values tagged with ordinals of their accounts in the whole collection. Merging
+ * partial results by ordinal restores the encounter order of the collection, so merged lists are equal to the ones of
+ * a single {@link AccountAnalytics}.
+ *
+ * @param <T> a type of the values
+ */
+final class Ordered<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int[] ordinals = new int[8];
+    private final ArrayList<T> values = new ArrayList<>();
+
+    void add(int ordinal, T value) {
+        if (values.size() == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, Math.max(ordinals.length * 2, 8));
+        }
+        ordinals[values.size()] = ordinal;
+        values.add(value);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * Merges partial results that are sorted by ordinals.
+     *
+     * @param parts partial results
+     * @param <T>   a type of the values
+     * @return values of all parts in the order of their ordinals
+     */
+    static <T> List<T> merge(Collection<Ordered<T>> parts) {
+        return merge(parts, (first, second) -> 0);
+    }
+
+    /**
+     * Merges partial results that are sorted by the order, and by ordinals among equal values. Equal values of
+     * different parts are merged in the order of their ordinals as well, so the merge is stable. Cursors of the parts
+     * are kept in a heap by their current value and ordinal, so the merge takes O(n log k) for k parts.
+     *
+     * @param parts partial results
+     * @param order an order of values
+     * @param <T>   a type of the values
+     * @return values of all parts in the order
+     */
+    static <T> List<T> merge(Collection<Ordered<T>> parts, Comparator<? super T> order) {
+        List<Ordered<T>> nonEmpty = new ArrayList<>(parts.size());
+        int size = 0;
+        for (Ordered<T> part : parts) {
+            if (part.size() > 0) {
+                nonEmpty.add(part);
+                size += part.size();
+            }
+        }
+        if (nonEmpty.size() == 1) {
+            return new ArrayList<>(nonEmpty.get(0).values);
+        }
+        Comparator<Cursor<T>> byValue = (first, second) -> {
+            int comparison = order.compare(first.value(), second.value());
+            return comparison != 0 ? comparison : Integer.compare(first.ordinal(), second.ordinal());
+        };
+        PriorityQueue<Cursor<T>> cursors = new PriorityQueue<>(Math.max(1, nonEmpty.size()), byValue);
+        for (Ordered<T> part : nonEmpty) {
+            cursors.add(new Cursor<>(part));
+        }
+        List<T> result = new ArrayList<>(size);
+        while (!cursors.isEmpty()) {
+            Cursor<T> cursor = cursors.poll();
+            result.add(cursor.value());
+            if (++cursor.position < cursor.part.size()) {
+                cursors.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes ordinals without the unused tail of the array.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ordinals = Arrays.copyOf(ordinals, values.size());
+        out.defaultWriteObject();
+    }
+
+    /**
+     * A position of the next value of a part to merge.
+     */
+    private static final class Cursor<T> {
+        private final Ordered<T> part;
+        private int position;
+
+        private Cursor(Ordered<T> part) {
+            this.part = part;
+        }
+
+        private T value() {
+            return part.values.get(position);
+        }
+
+        private int ordinal() {
+            return part.ordinals[position];
+        }
+    }
+}
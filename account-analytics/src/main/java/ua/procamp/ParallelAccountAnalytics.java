@@ -0,0 +1,158 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.groupingByConcurrent;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * {@link AccountAnalytics} implementation that runs every query as a parallel stream on a dedicated {@link ForkJoinPool}.
+ * {@link #groupFirstNamesByLastNames()} uses a concurrent collector, while balance sums and character frequencies are
+ * accumulated into a {@link BalanceSum} and a {@link CharacterCounter} per thread and merged. Queries that return ordered results
+ * ({@link #sortByFirstAndLastNames()}, lists of {@link #groupAccountsByEmailDomain()} and joined names of
+ * {@link #groupCommaSeparatedFirstNamesByBirthdayMonth()}) keep encounter order, so all results are equal to the
+ * sequential ones.
+ */
+class ParallelAccountAnalytics extends StreamAccountAnalytics {
+    private final Collection<Account> accounts;
+    private final ForkJoinPool pool;
+
+    ParallelAccountAnalytics(Collection<Account> accounts, ForkJoinPool pool) {
+        super(accounts);
+        this.accounts = accounts;
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    @Override
+    protected Stream<Account> stream() {
+        return accounts.parallelStream();
+    }
+
+    @Override
+    public Optional<Account> findRichestPerson() {
+        return inPool(super::findRichestPerson);
+    }
+
+    @Override
+    public List<Account> findAccountsByBirthdayMonth(Month birthdayMonth) {
+        return inPool(() -> super.findAccountsByBirthdayMonth(birthdayMonth));
+    }
+
+    @Override
+    public Map<Boolean, List<Account>> partitionMaleAccounts() {
+        return inPool(super::partitionMaleAccounts);
+    }
+
+    @Override
+    public Map<String, List<Account>> groupAccountsByEmailDomain() {
+        return inPool(super::groupAccountsByEmailDomain);
+    }
+
+    @Override
+    public int getNumOfLettersInFirstAndLastNames() {
+        return inPool(super::getNumOfLettersInFirstAndLastNames);
+    }
+
+    @Override
+    public BigDecimal calculateTotalBalance() {
+        return inPool(super::calculateTotalBalance);
+    }
+
+    @Override
+    public List<Account> sortByFirstAndLastNames() {
+        return inPool(super::sortByFirstAndLastNames);
+    }
+
+    @Override
+    public boolean containsAccountWithEmailDomain(String emailDomain) {
+        return inPool(() -> super.containsAccountWithEmailDomain(emailDomain));
+    }
+
+    @Override
+    public BigDecimal getBalanceByEmail(String email) {
+        return inPool(() -> super.getBalanceByEmail(email));
+    }
+
+    @Override
+    public Map<Long, Account> collectAccountsById() {
+        return inPool(super::collectAccountsById);
+    }
+
+    @Override
+    public Map<String, BigDecimal> collectBalancesByIdForAccountsCreatedOn(int year) {
+        return inPool(() -> super.collectBalancesByIdForAccountsCreatedOn(year));
+    }
+
+    @Override
+    public Map<String, Set<String>> groupFirstNamesByLastNames() {
+        return inPool(() -> stream()
+                .collect(groupingByConcurrent(Account::getLastName, mapping(Account::getFirstName, toSet()))));
+    }
+
+    @Override
+    public Map<Month, String> groupCommaSeparatedFirstNamesByBirthdayMonth() {
+        return inPool(super::groupCommaSeparatedFirstNamesByBirthdayMonth);
+    }
+
+    @Override
+    public Map<Month, BigDecimal> groupTotalBalanceByCreationMonth() {
+        return inPool(super::groupTotalBalanceByCreationMonth);
+    }
+
+    @Override
+    public Map<Character, Long> getCharacterFrequencyInFirstNames() {
+        return inPool(super::getCharacterFrequencyInFirstNames);
+    }
+
+    @Override
+    public Map<Character, Long> getCharacterFrequencyIgnoreCaseInFirstAndLastNames() {
+        return inPool(super::getCharacterFrequencyIgnoreCaseInFirstAndLastNames);
+    }
+
+    @Override
+    public List<Account> findRichestAccounts(int limit) {
+        return inPool(() -> super.findRichestAccounts(limit));
+    }
+
+    @Override
+    public Map<String, List<Account>> findRichestAccountsByEmailDomain(int limit) {
+        return inPool(() -> super.findRichestAccountsByEmailDomain(limit));
+    }
+
+    @Override
+    public Optional<BigDecimal> findBalancePercentile(double percentile) {
+        return inPool(() -> super.findBalancePercentile(percentile));
+    }
+
+    @Override
+    public Optional<BigDecimal> findApproximateBalancePercentile(double percentile, double rankError) {
+        return inPool(() -> super.findApproximateBalancePercentile(percentile, rankError));
+    }
+
+    @Override
+    public List<Account> findAccounts(AccountFilter filter) {
+        return inPool(() -> super.findAccounts(filter));
+    }
+
+    @Override
+    public long countAccounts(AccountFilter filter) {
+        return inPool(() -> super.countAccounts(filter));
+    }
+
+    @Override
+    public AccountQueryResults evaluate(AccountQuery<?>... queries) {
+        return inPool(() -> super.evaluate(queries));
+    }
+
+    private <T> T inPool(Supplier<T> query) {
+        return pool.submit(query::get).join();
+    }
+}
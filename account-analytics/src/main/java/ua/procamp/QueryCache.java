@@ -0,0 +1,116 @@
+package ua.procamp;
+
+import java.util.*;
+
+import static java.util.Comparator.comparingLong;
+
+/**
+ * A size-bounded cache of query results. Every entry is stamped with a version of the accounts it was computed from,
+ * and an entry with another version is treated as a miss and dropped. {@link #clear()} starts a new generation of the
+ * cache, and results computed in an earlier generation are not cached. All methods are synchronized.
+ */
+final class QueryCache {
+    private static final Comparator<Entry> LEAST_FREQUENT_FIRST = comparingLong((Entry entry) -> entry.frequency)
+            .thenComparingLong(entry -> entry.lastAccess);
+
+    private final int maxSize;
+    private final EvictionPolicy policy;
+    private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final TreeSet<Entry> byFrequency = new TreeSet<>(LEAST_FREQUENT_FIRST);
+    private long clock;
+    private long generation;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    QueryCache(int maxSize, EvictionPolicy policy) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException(String.format("Cache size must be positive: %d", maxSize));
+        }
+        this.maxSize = maxSize;
+        this.policy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * Returns a cached result of the query computed from accounts of provided version.
+     *
+     * @return cached result, or null if there is no such result
+     */
+    synchronized Object get(List<Object> key, long version) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.version != version) {
+            if (entry != null) {
+                remove(key, entry);
+            }
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        if (policy == EvictionPolicy.LFU) {
+            byFrequency.remove(entry);
+            entry.frequency++;
+            entry.lastAccess = ++clock;
+            byFrequency.add(entry);
+        }
+        return entry.value;
+    }
+
+    synchronized void put(List<Object> key, Object value, long version, long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        Entry previous = entries.get(key);
+        if (previous != null) {
+            remove(key, previous);
+        } else if (entries.size() == maxSize) {
+            evict();
+        }
+        Entry entry = new Entry(key, value, version, ++clock);
+        entries.put(key, entry);
+        if (policy == EvictionPolicy.LFU) {
+            byFrequency.add(entry);
+        }
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    synchronized void clear() {
+        generation++;
+        entries.clear();
+        byFrequency.clear();
+    }
+
+    synchronized CacheStats stats() {
+        return new CacheStats(hitCount, missCount, evictionCount, entries.size());
+    }
+
+    private void evict() {
+        Entry eldest = policy == EvictionPolicy.LFU
+                ? byFrequency.first()
+                : entries.values().iterator().next();
+        remove(eldest.key, eldest);
+        evictionCount++;
+    }
+
+    private void remove(List<Object> key, Entry entry) {
+        entries.remove(key);
+        byFrequency.remove(entry);
+    }
+
+    private static class Entry {
+        private final List<Object> key;
+        private final Object value;
+        private final long version;
+        private long frequency = 1;
+        private long lastAccess;
+
+        private Entry(List<Object> key, Object value, long version, long lastAccess) {
+            this.key = key;
+            this.value = value;
+            this.version = version;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
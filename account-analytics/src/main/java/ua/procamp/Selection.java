@@ -0,0 +1,103 @@
+package ua.procamp;
+
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Quickselect of the k-th smallest element, which takes expected O(n) time instead of O(n log n) for a full sort.
+ * Elements equal to the pivot are grouped by a three-way partition, so many duplicate balances do not degrade it.
+ * Elements of provided arrays are reordered in place.
+ */
+final class Selection {
+
+    private Selection() {
+    }
+
+    /**
+     * Returns an index of the element of a sorted collection of provided size for the percentile, using nearest-rank
+     * method.
+     *
+     * @param percentile a percentile from 0 to 100
+     * @param size       a number of elements, must be positive
+     * @return zero-based index of the percentile element
+     */
+    static int percentileIndex(double percentile, int size) {
+        checkPercentile(percentile);
+        return Math.max(1, (int) Math.ceil(percentile / 100 * size)) - 1;
+    }
+
+    static void checkPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException(String.format("Percentile must be between 0 and 100: %s", percentile));
+        }
+    }
+
+    static <T> T select(T[] elements, int k, Comparator<? super T> comparator) {
+        int left = 0;
+        int right = elements.length - 1;
+        while (left < right) {
+            T pivot = elements[left + ThreadLocalRandom.current().nextInt(right - left + 1)];
+            int less = left;
+            int greater = right;
+            int i = left;
+            while (i <= greater) {
+                int comparison = comparator.compare(elements[i], pivot);
+                if (comparison < 0) {
+                    swap(elements, less++, i++);
+                } else if (comparison > 0) {
+                    swap(elements, i, greater--);
+                } else {
+                    i++;
+                }
+            }
+            if (k < less) {
+                right = less - 1;
+            } else if (k > greater) {
+                left = greater + 1;
+            } else {
+                return elements[k];
+            }
+        }
+        return elements[k];
+    }
+
+    static long select(long[] elements, int k) {
+        int left = 0;
+        int right = elements.length - 1;
+        while (left < right) {
+            long pivot = elements[left + ThreadLocalRandom.current().nextInt(right - left + 1)];
+            int less = left;
+            int greater = right;
+            int i = left;
+            while (i <= greater) {
+                if (elements[i] < pivot) {
+                    swap(elements, less++, i++);
+                } else if (elements[i] > pivot) {
+                    swap(elements, i, greater--);
+                } else {
+                    i++;
+                }
+            }
+            if (k < less) {
+                right = less - 1;
+            } else if (k > greater) {
+                left = greater + 1;
+            } else {
+                return elements[k];
+            }
+        }
+        return elements[k];
+    }
+
+    private static <T> void swap(T[] elements, int i, int j) {
+        T element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+    }
+
+    private static void swap(long[] elements, int i, int j) {
+        long element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+    }
+}
@@ -0,0 +1,36 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+
+/**
+ * Defines which account attribute decides a shard of the account in sharded {@link AccountAnalytics}.
+ */
+public enum ShardKey {
+    /**
+     * Accounts are partitioned by a hash of their ids. Accounts without an id go to the first shard.
+     */
+    ID,
+    /**
+     * Accounts are partitioned by a hash of their emails, so a lookup by email is sent to a single shard.
+     */
+    EMAIL;
+
+    int shardOf(Account account, int shardCount) {
+        if (this == ID) {
+            return account.getId() == null ? 0 : shardOf(Long.hashCode(account.getId()), shardCount);
+        }
+        return shardOfEmail(account.getEmail(), shardCount);
+    }
+
+    static int shardOfEmail(String email, int shardCount) {
+        return shardOf(email.hashCode(), shardCount);
+    }
+
+    /**
+     * Scrambles the hash, so consecutive ids and similar emails are spread evenly over any number of shards.
+     */
+    private static int shardOf(int hash, int shardCount) {
+        int h = hash * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), shardCount);
+    }
+}
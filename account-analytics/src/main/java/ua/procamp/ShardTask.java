@@ -0,0 +1,14 @@
+package ua.procamp;
+
+import java.io.Serializable;
+import java.util.function.Function;
+
+/**
+ * A part of a query that a {@link ShardTransport} runs on a single {@link AccountShard}. Tasks are serializable, so a
+ * transport can send them to a shard in another JVM, as long as their results are serializable too.
+ *
+ * @param <R> a type of the partial result
+ */
+@FunctionalInterface
+public interface ShardTask<R> extends Function<AccountShard, R>, Serializable {
+}
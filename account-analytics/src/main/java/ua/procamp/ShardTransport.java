@@ -0,0 +1,49 @@
+package ua.procamp;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link ShardTransport} delivers account shards and query tasks of sharded {@link AccountAnalytics} to wherever the
+ * shards are kept: in the same JVM, like {@link #local(int, Executor)} does, or in other processes. A transport to
+ * another JVM serializes shards, tasks and partial results, which are all {@link java.io.Serializable}.
+ */
+public interface ShardTransport {
+
+    /**
+     * Creates a transport that keeps shards in this JVM and runs tasks on provided executor, which is owned by the
+     * caller.
+     *
+     * @param shardCount a number of shards
+     * @param executor   an executor to run tasks on
+     * @return an in-process transport
+     */
+    static ShardTransport local(int shardCount, Executor executor) {
+        return new LocalShardTransport(shardCount, executor);
+    }
+
+    /**
+     * Returns a number of shards served by the transport.
+     *
+     * @return a number of shards
+     */
+    int shardCount();
+
+    /**
+     * Stores accounts of the shard, replacing accounts stored before.
+     *
+     * @param shard    a shard number from 0 to {@link #shardCount()} - 1
+     * @param accounts accounts of the shard
+     */
+    void load(int shard, AccountShard accounts);
+
+    /**
+     * Runs the task on accounts of the shard asynchronously.
+     *
+     * @param shard a shard number from 0 to {@link #shardCount()} - 1
+     * @param task  a task to run
+     * @param <R>   a type of the task result
+     * @return a future result of the task
+     */
+    <R> CompletableFuture<R> submit(int shard, ShardTask<R> task);
+}
@@ -0,0 +1,393 @@
+package ua.procamp;
+
+import ua.procamp.exception.EntityNotFoundException;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BinaryOperator;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * {@link AccountAnalytics} implementation that partitions accounts into shards by a {@link ShardKey} and answers every
+ * query by scatter-gather: a {@link ShardTask} runs on all shards in parallel through a {@link ShardTransport}, and
+ * partial results are merged at the coordinator.
+ * <p>
+ * Counts, sums, sets and character frequencies are merged from per-shard results of {@link StreamAccountAnalytics}.
+ * Lists are merged by ordinals of accounts in the collection, and sorted lists by their order and then by ordinals,
+ * so all results are equal to the ones of {@link AccountAnalytics#of(Collection)}. Maps by id or email depend on the
+ * order of all accounts, so shards return their accounts in order and the coordinator computes the result from them. A
+ * lookup by email is sent to a single shard when accounts are partitioned by {@link ShardKey#EMAIL}.
+ * {@link #evaluate(AccountQuery[])} follows the {@link AccountQuery.ShardPlan} of every query: all shards evaluate
+ * combining queries and collect accounts of gathering queries in a single pass, so only accounts that order-dependent
+ * queries need are sent to the coordinator.
+ * <p>
+ * Balances are never gathered all at once. An approximate percentile is found in the merge of per-shard
+ * {@link BalanceQuantileSketch}es. An exact percentile is found by a distributed quickselect: a weighted median of
+ * per-shard medians is taken as a pivot, shards count balances less than and equal to it, and the range of candidate
+ * balances is narrowed to one side of the pivot, until few enough candidates are left to be gathered and selected at
+ * the coordinator. Results are equal to the ones of {@link AccountAnalytics#of(Collection)}, but an approximate
+ * percentile may be another balance within the same error bound.
+ */
+class ShardedAccountAnalytics implements AccountAnalytics {
+    private static final int MAX_GATHERED_BALANCES = 1 << 12;
+
+    private final ShardKey key;
+    private final ShardTransport transport;
+
+    ShardedAccountAnalytics(Collection<Account> accounts, ShardKey key, ShardTransport transport) {
+        this.key = Objects.requireNonNull(key);
+        this.transport = Objects.requireNonNull(transport);
+        load(accounts);
+    }
+
+    private void load(Collection<Account> accounts) {
+        int shardCount = transport.shardCount();
+        int[] shards = new int[accounts.size()];
+        int[] sizes = new int[shardCount];
+        int ordinal = 0;
+        for (Account account : accounts) {
+            shards[ordinal] = key.shardOf(account, shardCount);
+            sizes[shards[ordinal++]]++;
+        }
+        Account[][] shardAccounts = new Account[shardCount][];
+        int[][] shardOrdinals = new int[shardCount][];
+        for (int shard = 0; shard < shardCount; shard++) {
+            shardAccounts[shard] = new Account[sizes[shard]];
+            shardOrdinals[shard] = new int[sizes[shard]];
+        }
+        int[] positions = new int[shardCount];
+        ordinal = 0;
+        for (Account account : accounts) {
+            int shard = shards[ordinal];
+            shardAccounts[shard][positions[shard]] = account;
+            shardOrdinals[shard][positions[shard]++] = ordinal++;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            transport.load(shard, new AccountShard(shardAccounts[shard], shardOrdinals[shard]));
+        }
+    }
+
+    @Override
+    public Optional<Account> findRichestPerson() {
+        return Ordered.merge(scatter(shard -> shard.findRichest(1)), AccountShard.RICHEST_FIRST).stream().findFirst();
+    }
+
+    @Override
+    public List<Account> findAccountsByBirthdayMonth(Month birthdayMonth) {
+        return Ordered.merge(scatter(shard -> shard.filter(a -> a.getBirthday().getMonth().equals(birthdayMonth))));
+    }
+
+    @Override
+    public Map<Boolean, List<Account>> partitionMaleAccounts() {
+        Map<Boolean, List<Account>> result =
+                mergeGroups(scatter(shard -> shard.group(a -> a.getSex().equals(Sex.MALE))));
+        result.putIfAbsent(true, new ArrayList<>());
+        result.putIfAbsent(false, new ArrayList<>());
+        return result;
+    }
+
+    @Override
+    public Map<String, List<Account>> groupAccountsByEmailDomain() {
+        return mergeGroups(scatter(shard -> shard.group(a -> Emails.getDomain(a.getEmail()))));
+    }
+
+    @Override
+    public int getNumOfLettersInFirstAndLastNames() {
+        return scatter(shard -> shard.analytics().getNumOfLettersInFirstAndLastNames()).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    @Override
+    public BigDecimal calculateTotalBalance() {
+        return scatter(shard -> shard.analytics().calculateTotalBalance()).stream()
+                .collect(BalanceSum.collector());
+    }
+
+    @Override
+    public List<Account> sortByFirstAndLastNames() {
+        return Ordered.merge(scatter(AccountShard::sortByNames), AccountShard.BY_NAMES);
+    }
+
+    @Override
+    public boolean containsAccountWithEmailDomain(String emailDomain) {
+        return scatter(shard -> shard.analytics().containsAccountWithEmailDomain(emailDomain)).contains(true);
+    }
+
+    @Override
+    public BigDecimal getBalanceByEmail(String email) {
+        ShardTask<Ordered<Account>> task = shard -> shard.findFirst(account -> account.getEmail().equals(email));
+        List<Ordered<Account>> parts;
+        if (key != ShardKey.EMAIL) {
+            parts = scatter(task);
+        } else if (email == null) {
+            // accounts partitioned by email all have one, so none of them matches
+            parts = List.of();
+        } else {
+            parts = List.of(join(transport.submit(ShardKey.shardOfEmail(email, transport.shardCount()), task)));
+        }
+        return Ordered.merge(parts).stream()
+                .findFirst()
+                .map(Account::getBalance)
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Cannot find Account by email=%s", email)));
+    }
+
+    @Override
+    public Map<Long, Account> collectAccountsById() {
+        return gatherAccounts(AccountFilter.all()).stream()
+                .collect(LongAccountMap.collector());
+    }
+
+    @Override
+    public Map<String, BigDecimal> collectBalancesByIdForAccountsCreatedOn(int year) {
+        return gatherAccounts(AccountFilter.all().withCreationYear(year)).stream()
+                .collect(toMap(Account::getEmail, Account::getBalance));
+    }
+
+    @Override
+    public Map<String, Set<String>> groupFirstNamesByLastNames() {
+        return mergeMaps(scatter(shard -> shard.analytics().groupFirstNamesByLastNames()), (first, second) -> {
+            first.addAll(second);
+            return first;
+        });
+    }
+
+    @Override
+    public Map<Month, String> groupCommaSeparatedFirstNamesByBirthdayMonth() {
+        Map<Month, List<String>> firstNames = mergeGroups(scatter(AccountShard::groupFirstNamesByBirthdayMonth));
+        Map<Month, String> result = new HashMap<>();
+        firstNames.forEach((month, names) -> result.put(month, String.join(", ", names)));
+        return result;
+    }
+
+    @Override
+    public Map<Month, BigDecimal> groupTotalBalanceByCreationMonth() {
+        return mergeMaps(scatter(shard -> shard.analytics().groupTotalBalanceByCreationMonth()), BigDecimal::add);
+    }
+
+    @Override
+    public Map<Character, Long> getCharacterFrequencyInFirstNames() {
+        return mergeMaps(scatter(shard -> shard.analytics().getCharacterFrequencyInFirstNames()), Long::sum);
+    }
+
+    @Override
+    public Map<Character, Long> getCharacterFrequencyIgnoreCaseInFirstAndLastNames() {
+        return mergeMaps(scatter(shard -> shard.analytics().getCharacterFrequencyIgnoreCaseInFirstAndLastNames()),
+                Long::sum);
+    }
+
+    @Override
+    public List<Account> findRichestAccounts(int limit) {
+        TopAccounts.checkLimit(limit);
+        return top(Ordered.merge(scatter(shard -> shard.findRichest(limit)), AccountShard.RICHEST_FIRST), limit);
+    }
+
+    @Override
+    public Map<String, List<Account>> findRichestAccountsByEmailDomain(int limit) {
+        TopAccounts.checkLimit(limit);
+        Map<String, List<Ordered<Account>>> parts = new HashMap<>();
+        for (Map<String, Ordered<Account>> shardParts : scatter(shard -> shard.findRichestByEmailDomain(limit))) {
+            shardParts.forEach((domain, part) -> parts.computeIfAbsent(domain, d -> new ArrayList<>()).add(part));
+        }
+        Map<String, List<Account>> result = new HashMap<>();
+        parts.forEach((domain, domainParts) ->
+                result.put(domain, top(Ordered.merge(domainParts, AccountShard.RICHEST_FIRST), limit)));
+        return result;
+    }
+
+    @Override
+    public Optional<BigDecimal> findBalancePercentile(double percentile) {
+        Selection.checkPercentile(percentile);
+        int size = scatter(AccountShard::size).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+        if (size == 0) {
+            return Optional.empty();
+        }
+        // the percentile is the balance of the rank among candidates, which are balances between low and high
+        long rank = Selection.percentileIndex(percentile, size);
+        long candidates = size;
+        BigDecimal low = null;
+        BigDecimal high = null;
+        while (candidates > MAX_GATHERED_BALANCES) {
+            BigDecimal from = low;
+            BigDecimal to = high;
+            BigDecimal pivot = weightedMedian(scatter(shard -> shard.medianBalance(from, to)));
+            long less = 0;
+            long equal = 0;
+            for (long[] counts : scatter(shard -> shard.countBalances(from, pivot))) {
+                less += counts[0];
+                equal += counts[1];
+            }
+            if (rank < less) {
+                high = pivot;
+                candidates = less;
+            } else if (rank < less + equal) {
+                return Optional.of(pivot);
+            } else {
+                low = pivot;
+                rank -= less + equal;
+                candidates -= less + equal;
+            }
+        }
+        BigDecimal from = low;
+        BigDecimal to = high;
+        BigDecimal[] balances = scatter(shard -> shard.balancesBetween(from, to)).stream()
+                .flatMap(Arrays::stream)
+                .toArray(BigDecimal[]::new);
+        return Optional.of(Selection.select(balances, (int) rank, BigDecimal::compareTo));
+    }
+
+    @Override
+    public Optional<BigDecimal> findApproximateBalancePercentile(double percentile, double rankError) {
+        BalanceQuantileSketch sketch = new BalanceQuantileSketch(rankError);
+        scatter(shard -> shard.balanceSketch(rankError)).forEach(sketch::merge);
+        return sketch.findPercentile(percentile);
+    }
+
+    @Override
+    public List<Account> findAccounts(AccountFilter filter) {
+        Objects.requireNonNull(filter);
+        return gatherAccounts(filter);
+    }
+
+    @Override
+    public long countAccounts(AccountFilter filter) {
+        Objects.requireNonNull(filter);
+        return scatter(shard -> shard.analytics().countAccounts(filter)).stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public AccountQueryResults evaluate(AccountQuery<?>... queries) {
+        List<AccountQuery<?>> combining = new ArrayList<>();
+        ArrayList<AccountQuery.PartialCollector<?>> partials = new ArrayList<>();
+        List<AccountQuery<?>> gathering = new ArrayList<>();
+        ArrayList<AccountQuery.Relevance> relevances = new ArrayList<>();
+        Map<AccountQuery<?>, Object> results = new IdentityHashMap<>(queries.length);
+        for (AccountQuery<?> query : queries) {
+            AccountQuery.ShardPlan<?> plan = query.shardPlan();
+            if (plan.kind == AccountQuery.ShardPlan.Kind.COMBINING) {
+                combining.add(query);
+                partials.add(plan.partial);
+            } else if (plan.kind == AccountQuery.ShardPlan.Kind.GATHERING) {
+                gathering.add(query);
+                relevances.add(plan.relevance);
+            } else {
+                results.put(query, plan.method.apply(this));
+            }
+        }
+        if (combining.isEmpty() && gathering.isEmpty()) {
+            return new AccountQueryResults(results);
+        }
+        List<AccountShard.QueryParts> parts = scatter(shard -> shard.evaluate(partials, relevances));
+        for (int i = 0; i < combining.size(); i++) {
+            BinaryOperator<Object> combiner = (BinaryOperator<Object>) combining.get(i).shardPlan().combiner;
+            Object result = parts.get(0).results[i];
+            for (int shard = 1; shard < parts.size() && !(result instanceof AccountQueryResults.Failure); shard++) {
+                Object part = parts.get(shard).results[i];
+                result = part instanceof AccountQueryResults.Failure ? part : combiner.apply(result, part);
+            }
+            results.put(combining.get(i), result);
+        }
+        if (!gathering.isEmpty()) {
+            List<Ordered<Account>> accounts = new ArrayList<>(parts.size());
+            parts.forEach(part -> accounts.add(part.accounts));
+            AccountQueryResults gathered = Ordered.merge(accounts).stream()
+                    .collect(AccountQuery.fuse(gathering));
+            gathering.forEach(query -> results.put(query, gathered.result(query)));
+        }
+        return new AccountQueryResults(results);
+    }
+
+    private List<Account> gatherAccounts(AccountFilter filter) {
+        return Ordered.merge(scatter(shard -> shard.filter(filter)));
+    }
+
+    /**
+     * Runs the task on all shards in parallel and waits for partial results, which are listed in the order of shards.
+     */
+    private <R> List<R> scatter(ShardTask<R> task) {
+        int shardCount = transport.shardCount();
+        List<CompletableFuture<R>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            futures.add(transport.submit(shard, task));
+        }
+        List<R> results = new ArrayList<>(shardCount);
+        for (CompletableFuture<R> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    /**
+     * Waits for a partial result and rethrows an exception of the task as is.
+     */
+    private static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a median of per-shard medians weighted by numbers of their balances, so at least a quarter of all
+     * candidate balances is less than or equal to it, and at least a quarter is greater than or equal to it.
+     */
+    private static BigDecimal weightedMedian(List<AccountShard.BalanceMedian> medians) {
+        List<AccountShard.BalanceMedian> nonEmpty = new ArrayList<>(medians.size());
+        long total = 0;
+        for (AccountShard.BalanceMedian median : medians) {
+            if (median.count > 0) {
+                nonEmpty.add(median);
+                total += median.count;
+            }
+        }
+        nonEmpty.sort(Comparator.comparing(median -> median.median));
+        long weight = 0;
+        for (AccountShard.BalanceMedian median : nonEmpty) {
+            weight += median.count;
+            if (2 * weight >= total) {
+                return median.median;
+            }
+        }
+        throw new IllegalStateException("No balances between bounds!");
+    }
+
+    private static <K, T> Map<K, List<T>> mergeGroups(List<? extends Map<K, Ordered<T>>> parts) {
+        Map<K, List<Ordered<T>>> groups = new HashMap<>();
+        for (Map<K, Ordered<T>> part : parts) {
+            part.forEach((key, group) -> groups.computeIfAbsent(key, k -> new ArrayList<>()).add(group));
+        }
+        Map<K, List<T>> result = new HashMap<>();
+        groups.forEach((key, groupParts) -> result.put(key, Ordered.merge(groupParts)));
+        return result;
+    }
+
+    private static <K, V> Map<K, V> mergeMaps(List<Map<K, V>> parts, BinaryOperator<V> merge) {
+        Map<K, V> result = new HashMap<>();
+        for (Map<K, V> part : parts) {
+            part.forEach((key, value) -> result.merge(key, value, merge));
+        }
+        return result;
+    }
+
+    private static List<Account> top(List<Account> accounts, int limit) {
+        return accounts.size() > limit ? new ArrayList<>(accounts.subList(0, limit)) : accounts;
+    }
+}
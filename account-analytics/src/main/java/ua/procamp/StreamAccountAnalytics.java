@@ -0,0 +1,210 @@
+package ua.procamp;
+
+import ua.procamp.exception.EntityNotFoundException;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.*;
+
+/**
+ * {@link AccountAnalytics} implementation that streams over a {@link Collection} of {@link Account} on every query.
+ * Email domains are grouped by canonical instances of an {@link EmailDomainDictionary} if one is provided.
+ */
+class StreamAccountAnalytics implements AccountAnalytics {
+    private final Collection<Account> accounts;
+    private final EmailDomainDictionary domains;
+
+    StreamAccountAnalytics(Collection<Account> accounts) {
+        this(accounts, null);
+    }
+
+    StreamAccountAnalytics(Collection<Account> accounts, EmailDomainDictionary domains) {
+        this.accounts = accounts;
+        this.domains = domains;
+    }
+
+    /**
+     * Returns a new stream over the accounts. Every query starts from this stream.
+     *
+     * @return a stream of accounts
+     */
+    protected Stream<Account> stream() {
+        return accounts.stream();
+    }
+
+    @Override
+    public Optional<Account> findRichestPerson() {
+        return stream().max(comparing(Account::getBalance));
+    }
+
+    @Override
+    public List<Account> findAccountsByBirthdayMonth(Month birthdayMonth) {
+        return stream()
+                .filter(a -> a.getBirthday().getMonth().equals(birthdayMonth))
+                .collect(toList());
+    }
+
+    @Override
+    public Map<Boolean, List<Account>> partitionMaleAccounts() {
+        return stream()
+                .collect(partitioningBy(a -> a.getSex().equals(Sex.MALE)));
+    }
+
+    @Override
+    public Map<String, List<Account>> groupAccountsByEmailDomain() {
+        return stream()
+                .collect(groupingBy(a -> Emails.getDomain(a.getEmail(), domains)));
+    }
+
+    @Override
+    public int getNumOfLettersInFirstAndLastNames() {
+        return stream()
+                .mapToInt(a -> a.getFirstName().length() + a.getLastName().length())
+                .sum();
+    }
+
+    @Override
+    public BigDecimal calculateTotalBalance() {
+        return stream()
+                .map(Account::getBalance)
+                .collect(BalanceSum.collector());
+    }
+
+    @Override
+    public List<Account> sortByFirstAndLastNames() {
+        return stream()
+                .sorted(comparing(Account::getFirstName)
+                        .thenComparing(Account::getLastName))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean containsAccountWithEmailDomain(String emailDomain) {
+        return stream()
+                .map(Account::getEmail)
+                .anyMatch(email -> Emails.getDomain(email).equals(emailDomain));
+    }
+
+    @Override
+    public BigDecimal getBalanceByEmail(String email) {
+        return stream()
+                .filter(account -> account.getEmail().equals(email))
+                .findFirst()
+                .map(Account::getBalance)
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Cannot find Account by email=%s", email)));
+    }
+
+    @Override
+    public Map<Long, Account> collectAccountsById() {
+        Stream<Account> stream = stream();
+        return stream.collect(LongAccountMap.collector(stream.isParallel() ? 0 : accounts.size()));
+    }
+
+    @Override
+    public Map<String, BigDecimal> collectBalancesByIdForAccountsCreatedOn(int year) {
+        return stream()
+                .filter(account -> account.getCreationDate().getYear() == year)
+                .collect(toMap(Account::getEmail, Account::getBalance));
+    }
+
+    @Override
+    public Map<String, Set<String>> groupFirstNamesByLastNames() {
+        return stream()
+                .collect(groupingBy(Account::getLastName, mapping(Account::getFirstName, toSet())));
+    }
+
+    @Override
+    public Map<Month, String> groupCommaSeparatedFirstNamesByBirthdayMonth() {
+        return stream().collect(
+                groupingBy(account -> account.getBirthday().getMonth(),
+                        mapping(
+                                Account::getFirstName,
+                                joining(", ")
+                        )
+                )
+        );
+    }
+
+    @Override
+    public Map<Month, BigDecimal> groupTotalBalanceByCreationMonth() {
+        return stream().collect(
+                groupingBy(a -> a.getCreationDate().getMonth(),
+                        mapping(Account::getBalance, BalanceSum.collector())
+                ));
+    }
+
+    @Override
+    public Map<Character, Long> getCharacterFrequencyInFirstNames() {
+        return stream()
+                .map(Account::getFirstName)
+                .collect(CharacterCounter.collector(CharacterCounter::add));
+    }
+
+    @Override
+    public Map<Character, Long> getCharacterFrequencyIgnoreCaseInFirstAndLastNames() {
+        return stream()
+                .collect(CharacterCounter.collector(
+                        (counter, account) -> counter.addIgnoreCase(account.getFirstName(), account.getLastName())));
+    }
+
+    @Override
+    public List<Account> findRichestAccounts(int limit) {
+        return stream()
+                .collect(TopAccounts.collector(limit));
+    }
+
+    @Override
+    public Map<String, List<Account>> findRichestAccountsByEmailDomain(int limit) {
+        return stream()
+                .collect(groupingBy(a -> Emails.getDomain(a.getEmail(), domains), TopAccounts.collector(limit)));
+    }
+
+    @Override
+    public Optional<BigDecimal> findBalancePercentile(double percentile) {
+        Selection.checkPercentile(percentile);
+        BigDecimal[] balances = stream()
+                .map(Account::getBalance)
+                .toArray(BigDecimal[]::new);
+        if (balances.length == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(Selection.select(balances, Selection.percentileIndex(percentile, balances.length),
+                BigDecimal::compareTo));
+    }
+
+    @Override
+    public Optional<BigDecimal> findApproximateBalancePercentile(double percentile, double rankError) {
+        BalanceQuantileSketch sketch = new BalanceQuantileSketch(rankError);
+        stream().sequential()
+                .map(Account::getBalance)
+                .forEachOrdered(sketch::add);
+        return sketch.findPercentile(percentile);
+    }
+
+    @Override
+    public List<Account> findAccounts(AccountFilter filter) {
+        return stream()
+                .filter(filter)
+                .collect(toList());
+    }
+
+    @Override
+    public long countAccounts(AccountFilter filter) {
+        return stream()
+                .filter(filter)
+                .count();
+    }
+
+    @Override
+    public AccountQueryResults evaluate(AccountQuery<?>... queries) {
+        return stream()
+                .collect(AccountQuery.fuse(List.of(queries)));
+    }
+}
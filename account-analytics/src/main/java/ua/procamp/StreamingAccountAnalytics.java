@@ -0,0 +1,235 @@
+package ua.procamp;
+
+import ua.procamp.exception.AccountStorageException;
+import ua.procamp.model.Account;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * {@link StreamingAccountAnalytics} provides an API that allows to query accounts that do not fit into memory. Accounts
+ * are consumed from an {@link Iterator} or a {@link Spliterator} (e.g. a file reader or a generator) in a single pass.
+ * <p>
+ * Aggregation-style queries are answered by an {@link AccountSummary} that needs memory proportional to the result size.
+ * Sorting uses an external merge sort: accounts are sorted in runs of limited size, runs are spilled to temporary files
+ * and then merged.
+ */
+public class StreamingAccountAnalytics {
+    private static final Comparator<Account> BY_FIRST_AND_LAST_NAMES = comparing(Account::getFirstName)
+            .thenComparing(Account::getLastName);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int sortRunSize;
+    private final Path tempDirectory;
+
+    private StreamingAccountAnalytics(int sortRunSize, Path tempDirectory) {
+        if (sortRunSize <= 0) {
+            throw new IllegalArgumentException(String.format("Sort run size must be positive: %d", sortRunSize));
+        }
+        this.sortRunSize = sortRunSize;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Creates a new {@link StreamingAccountAnalytics} that sorts up to a million accounts in memory and spills longer
+     * inputs into the default temporary-file directory.
+     *
+     * @return new streaming analytics
+     */
+    public static StreamingAccountAnalytics create() {
+        return new StreamingAccountAnalytics(1_000_000, null);
+    }
+
+    /**
+     * Creates a new {@link StreamingAccountAnalytics} with provided sort settings.
+     *
+     * @param sortRunSize   max number of accounts that are sorted in memory at once
+     * @param tempDirectory a directory for temporary files
+     * @return new streaming analytics
+     */
+    public static StreamingAccountAnalytics create(int sortRunSize, Path tempDirectory) {
+        return new StreamingAccountAnalytics(sortRunSize, Objects.requireNonNull(tempDirectory));
+    }
+
+    /**
+     * Summarizes accounts of the source in a single sequential pass.
+     *
+     * @param accounts a source of accounts
+     * @return a summary of all accounts
+     */
+    public AccountSummary summarize(Iterator<Account> accounts) {
+        return summarize(Spliterators.spliteratorUnknownSize(accounts, Spliterator.ORDERED));
+    }
+
+    /**
+     * Summarizes accounts of the source in a single pass. If the source reports {@link Spliterator#SUBSIZED}, e.g. an
+     * array or a list, its parts are summarized in parallel. Other sources are consumed sequentially, since splitting
+     * a spliterator of unknown size copies the source into arrays, so memory would grow with the input.
+     *
+     * @param accounts a source of accounts
+     * @return a summary of all accounts
+     */
+    public AccountSummary summarize(Spliterator<Account> accounts) {
+        return StreamSupport.stream(accounts, accounts.hasCharacteristics(Spliterator.SUBSIZED))
+                .collect(AccountSummary.collector());
+    }
+
+    /**
+     * Sorts accounts of the source by first and last names and passes them to the consumer in sorted order. Accounts
+     * with equal names keep their order in the source. Passed accounts are copies restored from temporary files
+     * if the source is longer than the sort run size.
+     *
+     * @param accounts a source of accounts
+     * @param consumer a consumer of sorted accounts
+     */
+    public void sortByFirstAndLastNames(Iterator<Account> accounts, Consumer<? super Account> consumer) {
+        List<Path> runFiles = new ArrayList<>();
+        try {
+            List<Account> run = new ArrayList<>(Math.min(sortRunSize, BUFFER_SIZE));
+            while (accounts.hasNext()) {
+                run.add(accounts.next());
+                if (run.size() == sortRunSize && accounts.hasNext()) {
+                    runFiles.add(spill(run));
+                    run.clear();
+                }
+            }
+            run.sort(BY_FIRST_AND_LAST_NAMES);
+            if (runFiles.isEmpty()) {
+                run.forEach(consumer);
+            } else {
+                merge(runFiles, run, consumer);
+            }
+        } finally {
+            runFiles.forEach(StreamingAccountAnalytics::delete);
+        }
+    }
+
+    private Path spill(List<Account> run) {
+        run.sort(BY_FIRST_AND_LAST_NAMES);
+        Path runFile = createTempFile();
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(runFile), BUFFER_SIZE))) {
+            output.writeInt(run.size());
+            for (Account account : run) {
+                AccountRecordCodec.write(output, account);
+            }
+        } catch (IOException e) {
+            delete(runFile);
+            throw new AccountStorageException("Cannot write sort run file!", e);
+        }
+        return runFile;
+    }
+
+    /**
+     * Merges sorted runs. Runs are ordered by their position in the source, and the last run is still in memory. Ties
+     * are resolved in favor of an earlier run, which keeps the sort stable.
+     */
+    private void merge(List<Path> runFiles, List<Account> lastRun, Consumer<? super Account> consumer) {
+        List<RunCursor> cursors = new ArrayList<>();
+        try {
+            for (Path runFile : runFiles) {
+                cursors.add(new RunCursor(cursors.size(), new FileRun(runFile)));
+            }
+            cursors.add(new RunCursor(cursors.size(), lastRun.iterator()));
+            PriorityQueue<RunCursor> queue = new PriorityQueue<>(cursors.size(),
+                    comparing((RunCursor cursor) -> cursor.current, BY_FIRST_AND_LAST_NAMES)
+                            .thenComparingInt(cursor -> cursor.index));
+            cursors.stream().filter(RunCursor::advance).forEach(queue::add);
+            while (!queue.isEmpty()) {
+                RunCursor cursor = queue.poll();
+                consumer.accept(cursor.current);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        } finally {
+            cursors.forEach(RunCursor::close);
+        }
+    }
+
+    private Path createTempFile() {
+        try {
+            return tempDirectory == null
+                    ? Files.createTempFile("accounts-", ".run")
+                    : Files.createTempFile(tempDirectory, "accounts-", ".run");
+        } catch (IOException e) {
+            throw new AccountStorageException("Cannot create sort run file!", e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new AccountStorageException("Cannot delete sort run file!", e);
+        }
+    }
+
+    private static class RunCursor {
+        private final int index;
+        private final Iterator<Account> accounts;
+        private Account current;
+
+        private RunCursor(int index, Iterator<Account> accounts) {
+            this.index = index;
+            this.accounts = accounts;
+        }
+
+        private boolean advance() {
+            current = accounts.hasNext() ? accounts.next() : null;
+            return current != null;
+        }
+
+        private void close() {
+            if (accounts instanceof FileRun) {
+                ((FileRun) accounts).close();
+            }
+        }
+    }
+
+    private static class FileRun implements Iterator<Account> {
+        private final DataInputStream input;
+        private int remaining;
+
+        private FileRun(Path runFile) {
+            try {
+                input = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFile), BUFFER_SIZE));
+                remaining = input.readInt();
+            } catch (IOException e) {
+                throw new AccountStorageException("Cannot read sort run file!", e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Account next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            try {
+                remaining--;
+                return AccountRecordCodec.read(input);
+            } catch (IOException e) {
+                throw new AccountStorageException("Cannot read sort run file!", e);
+            }
+        }
+
+        private void close() {
+            try {
+                input.close();
+            } catch (IOException e) {
+                throw new AccountStorageException("Cannot close sort run file!", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ua.procamp;
+
+import ua.procamp.model.Account;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * {@link TopAccounts} keeps at most {@code limit} accounts with the biggest balances in a bounded min-heap, so selecting
+ * them from n accounts takes O(n log limit) time and O(limit) memory. Accounts with equal balances are ranked in
+ * encounter order, so the first account of the result is the one returned by {@link AccountAnalytics#findRichestPerson()}.
+ */
+final class TopAccounts {
+    private static final Comparator<Ranked> WORST_FIRST = comparing((Ranked ranked) -> ranked.account.getBalance())
+            .thenComparing(comparing((Ranked ranked) -> ranked.ordinal).reversed());
+
+    private final int limit;
+    private final PriorityQueue<Ranked> heap;
+    private long count;
+
+    TopAccounts(int limit) {
+        checkLimit(limit);
+        this.limit = limit;
+        this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, WORST_FIRST);
+    }
+
+    /**
+     * Returns a collector of accounts with the biggest balances, ordered from the richest one.
+     *
+     * @param limit max number of accounts to collect
+     * @return a collector of the richest accounts
+     */
+    static Collector<Account, TopAccounts, List<Account>> collector(int limit) {
+        return Collector.of(() -> new TopAccounts(limit), TopAccounts::add, TopAccounts::merge, TopAccounts::toList);
+    }
+
+    static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(String.format("Limit must not be negative: %d", limit));
+        }
+    }
+
+    void add(Account account) {
+        offer(new Ranked(account, count++));
+    }
+
+    /**
+     * Merges accounts of another heap that were encountered after all accounts of this heap.
+     *
+     * @param other a heap of later accounts
+     * @return this heap
+     */
+    TopAccounts merge(TopAccounts other) {
+        for (Ranked ranked : other.heap) {
+            offer(new Ranked(ranked.account, count + ranked.ordinal));
+        }
+        count += other.count;
+        return this;
+    }
+
+    List<Account> toList() {
+        List<Ranked> ranked = new ArrayList<>(heap);
+        ranked.sort(WORST_FIRST.reversed());
+        List<Account> result = new ArrayList<>(ranked.size());
+        ranked.forEach(r -> result.add(r.account));
+        return result;
+    }
+
+    private void offer(Ranked ranked) {
+        if (heap.size() < limit) {
+            heap.add(ranked);
+        } else if (limit > 0 && WORST_FIRST.compare(ranked, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(ranked);
+        }
+    }
+
+    private static class Ranked {
+        private final Account account;
+        private final long ordinal;
+
+        private Ranked(Account account, long ordinal) {
+            this.account = account;
+            this.ordinal = ordinal;
+        }
+    }
+}
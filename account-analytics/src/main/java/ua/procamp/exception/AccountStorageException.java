@@ -0,0 +1,11 @@
+package ua.procamp.exception;
+
+public class AccountStorageException extends RuntimeException {
+    public AccountStorageException(String message) {
+        super(message);
+    }
+
+    public AccountStorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,5 +1,6 @@
 package ua.procamp;
 
+import ua.procamp.data.AccountGenerator;
 import ua.procamp.exception.EntityNotFoundException;
 import ua.procamp.model.Account;
 import ua.procamp.model.Sex;
@@ -22,8 +23,8 @@ import static org.junit.Assert.*;
 @RunWith(JUnit4.class)
 public class AccountAnalyticsTest {
 
-    private AccountAnalytics analytics;
-    private List<Account> accounts;
+    protected AccountAnalytics analytics;
+    protected List<Account> accounts;
 
     @Before
     public void setUp() {
@@ -37,7 +38,11 @@ public class AccountAnalyticsTest {
                 new Account(4L, "Lucas", "Lynn", "lucas.lynn@yahoo.com",
                         LocalDate.parse("1987-05-25"), Sex.MALE, LocalDate.parse("2009-03-05"), BigDecimal.valueOf(16980))
         );
-        analytics = AccountAnalytics.of(accounts);
+        analytics = createAnalytics(accounts);
+    }
+
+    protected AccountAnalytics createAnalytics(List<Account> accounts) {
+        return AccountAnalytics.of(accounts);
     }
 
     @Test
@@ -219,6 +224,185 @@ public class AccountAnalyticsTest {
         assertEquals(3, characterFrequencyInFirstAndLastNames.get('u').longValue());
         assertEquals(1, characterFrequencyInFirstAndLastNames.get('y').longValue());
     }
-}
 
+    @Test
+    public void testFindRichestAccounts() {
+        List<Account> richestAccounts = analytics.findRichestAccounts(2);
+
+        assertEquals(Arrays.asList(accounts.get(0), accounts.get(1)), richestAccounts);
+        assertEquals(Collections.emptyList(), analytics.findRichestAccounts(0));
+        assertEquals(4, analytics.findRichestAccounts(10).size());
+    }
+
+    @Test
+    public void testFindRichestAccountsByEmailDomain() {
+        Map<String, List<Account>> richestAccountsByDomain = analytics.findRichestAccountsByEmailDomain(1);
+
+        assertEquals(3, richestAccountsByDomain.size());
+        assertEquals(Arrays.asList(accounts.get(0)), richestAccountsByDomain.get("gmail.com"));
+        assertEquals(Arrays.asList(accounts.get(1)), richestAccountsByDomain.get("mail.com"));
+        assertEquals(Arrays.asList(accounts.get(3)), richestAccountsByDomain.get("yahoo.com"));
+    }
+
+    @Test
+    public void testFindBalancePercentile() {
+        assertEquals(Optional.of(BigDecimal.valueOf(13889)), analytics.findBalancePercentile(0));
+        assertEquals(Optional.of(BigDecimal.valueOf(13889)), analytics.findBalancePercentile(25));
+        assertEquals(Optional.of(BigDecimal.valueOf(16980)), analytics.findBalancePercentile(50));
+        assertEquals(Optional.of(BigDecimal.valueOf(172966)), analytics.findBalancePercentile(90));
+        assertEquals(Optional.of(BigDecimal.valueOf(172966)), analytics.findBalancePercentile(100));
+    }
+
+    @Test
+    public void testFindApproximateBalancePercentile() {
+        assertEquals(Optional.of(BigDecimal.valueOf(16980)), analytics.findApproximateBalancePercentile(50, 0.01));
+        assertEquals(Optional.of(BigDecimal.valueOf(172966)), analytics.findApproximateBalancePercentile(99, 0.01));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindBalancePercentileOutOfRange() {
+        analytics.findBalancePercentile(101);
+    }
+
+    @Test
+    public void testEvaluateMatchesIndividualQueries() {
+        AccountQuery<Optional<Account>> richestPerson = AccountQuery.findRichestPerson();
+        AccountQuery<List<Account>> accountsByBirthdayMonth = AccountQuery.findAccountsByBirthdayMonth(Month.APRIL);
+        AccountQuery<Map<Boolean, List<Account>>> maleAccounts = AccountQuery.partitionMaleAccounts();
+        AccountQuery<Map<String, List<Account>>> accountsByEmailDomain = AccountQuery.groupAccountsByEmailDomain();
+        AccountQuery<Integer> numOfLetters = AccountQuery.getNumOfLettersInFirstAndLastNames();
+        AccountQuery<BigDecimal> totalBalance = AccountQuery.calculateTotalBalance();
+        AccountQuery<List<Account>> sortedAccounts = AccountQuery.sortByFirstAndLastNames();
+        AccountQuery<Boolean> containsDomain = AccountQuery.containsAccountWithEmailDomain("yahoo.com");
+        AccountQuery<Boolean> containsFakeDomain = AccountQuery.containsAccountWithEmailDomain("fake.com");
+        AccountQuery<BigDecimal> balanceByEmail = AccountQuery.getBalanceByEmail("cardenas@mail.com");
+        AccountQuery<Map<Long, Account>> accountsById = AccountQuery.collectAccountsById();
+        AccountQuery<Map<String, BigDecimal>> balancesCreatedOn = AccountQuery.collectBalancesByIdForAccountsCreatedOn(2011);
+        AccountQuery<Map<String, Set<String>>> firstNamesByLastNames = AccountQuery.groupFirstNamesByLastNames();
+        AccountQuery<Map<Month, String>> firstNamesByBirthdayMonth =
+                AccountQuery.groupCommaSeparatedFirstNamesByBirthdayMonth();
+        AccountQuery<Map<Month, BigDecimal>> balanceByCreationMonth = AccountQuery.groupTotalBalanceByCreationMonth();
+        AccountQuery<Map<Character, Long>> firstNamesFrequency = AccountQuery.getCharacterFrequencyInFirstNames();
+        AccountQuery<Map<Character, Long>> namesFrequency =
+                AccountQuery.getCharacterFrequencyIgnoreCaseInFirstAndLastNames();
+        AccountQuery<List<Account>> richestAccounts = AccountQuery.findRichestAccounts(2);
+        AccountQuery<Map<String, List<Account>>> richestByDomain = AccountQuery.findRichestAccountsByEmailDomain(1);
+        AccountQuery<Optional<BigDecimal>> median = AccountQuery.findBalancePercentile(50);
+
+        AccountQueryResults results = analytics.evaluate(richestPerson, accountsByBirthdayMonth, maleAccounts,
+                accountsByEmailDomain, numOfLetters, totalBalance, sortedAccounts, containsDomain, containsFakeDomain,
+                balanceByEmail, accountsById, balancesCreatedOn, firstNamesByLastNames, firstNamesByBirthdayMonth,
+                balanceByCreationMonth, firstNamesFrequency, namesFrequency, richestAccounts, richestByDomain, median);
+
+        assertEquals(analytics.findRichestPerson(), results.get(richestPerson));
+        assertEquals(analytics.findAccountsByBirthdayMonth(Month.APRIL), results.get(accountsByBirthdayMonth));
+        assertEquals(analytics.partitionMaleAccounts(), results.get(maleAccounts));
+        assertEquals(analytics.groupAccountsByEmailDomain(), results.get(accountsByEmailDomain));
+        assertEquals(Integer.valueOf(analytics.getNumOfLettersInFirstAndLastNames()), results.get(numOfLetters));
+        assertEquals(analytics.calculateTotalBalance(), results.get(totalBalance));
+        assertEquals(analytics.sortByFirstAndLastNames(), results.get(sortedAccounts));
+        assertTrue(results.get(containsDomain));
+        assertFalse(results.get(containsFakeDomain));
+        assertEquals(analytics.getBalanceByEmail("cardenas@mail.com"), results.get(balanceByEmail));
+        assertEquals(analytics.collectAccountsById(), results.get(accountsById));
+        assertEquals(analytics.collectBalancesByIdForAccountsCreatedOn(2011), results.get(balancesCreatedOn));
+        assertEquals(analytics.groupFirstNamesByLastNames(), results.get(firstNamesByLastNames));
+        assertEquals(analytics.groupCommaSeparatedFirstNamesByBirthdayMonth(), results.get(firstNamesByBirthdayMonth));
+        assertEquals(analytics.groupTotalBalanceByCreationMonth(), results.get(balanceByCreationMonth));
+        assertEquals(analytics.getCharacterFrequencyInFirstNames(), results.get(firstNamesFrequency));
+        assertEquals(analytics.getCharacterFrequencyIgnoreCaseInFirstAndLastNames(), results.get(namesFrequency));
+        assertEquals(analytics.findRichestAccounts(2), results.get(richestAccounts));
+        assertEquals(analytics.findRichestAccountsByEmailDomain(1), results.get(richestByDomain));
+        assertEquals(analytics.findBalancePercentile(50), results.get(median));
+    }
+
+    @Test
+    public void testFindAccounts() {
+        AccountFilter maleOnGmail = AccountFilter.all().withSex(Sex.MALE).withEmailDomain("gmail.com");
+        AccountFilter bornInApril = maleOnGmail.withBirthdayMonth(Month.APRIL);
+        AccountFilter rich = bornInApril.withBalanceAbove(BigDecimal.valueOf(13889));
+
+        assertEquals(Arrays.asList(accounts.get(0), accounts.get(2)), analytics.findAccounts(maleOnGmail));
+        assertEquals(Arrays.asList(accounts.get(0), accounts.get(2)), analytics.findAccounts(bornInApril));
+        assertEquals(Arrays.asList(accounts.get(0)), analytics.findAccounts(rich));
+        assertEquals(Arrays.asList(accounts.get(2)), analytics.findAccounts(bornInApril.withCreationYear(2011)));
+        assertEquals(Arrays.asList(accounts.get(1)), analytics.findAccounts(AccountFilter.all().withSex(Sex.FEMALE)));
+        assertEquals(Collections.emptyList(), analytics.findAccounts(maleOnGmail.withEmailDomain("fake.com")));
+        assertEquals(accounts, analytics.findAccounts(AccountFilter.all()));
+    }
 
+    @Test
+    public void testCountAccounts() {
+        AccountFilter maleOnGmail = AccountFilter.all().withSex(Sex.MALE).withEmailDomain("gmail.com");
+
+        assertEquals(2, analytics.countAccounts(maleOnGmail));
+        assertEquals(1, analytics.countAccounts(maleOnGmail.withBalanceAbove(BigDecimal.valueOf(13889))));
+        assertEquals(0, analytics.countAccounts(maleOnGmail.withCreationYear(2009)));
+        assertEquals(accounts.size(), analytics.countAccounts(AccountFilter.all()));
+    }
+
+    @Test
+    public void testFindAccountsIsEqualToFilter() {
+        List<Account> generatedAccounts = AccountGenerator.create(18)
+                .withBalances(BigDecimal.ZERO, BigDecimal.valueOf(100000, 2))
+                .generateList(20_000);
+        AccountAnalytics generatedAnalytics = createAnalytics(generatedAccounts);
+        String emailDomain = Emails.getDomain(generatedAccounts.get(0).getEmail());
+        List<AccountFilter> filters = Arrays.asList(
+                AccountFilter.all().withSex(Sex.MALE).withEmailDomain(emailDomain).withBirthdayMonth(Month.MARCH)
+                        .withBalanceAbove(BigDecimal.valueOf(500)),
+                AccountFilter.all().withSex(Sex.FEMALE).withCreationYear(2015),
+                AccountFilter.all().withBirthdayMonth(Month.JULY).withCreationYear(2012),
+                AccountFilter.all().withBalanceAbove(new BigDecimal("999.995")),
+                AccountFilter.all().withBalanceAbove(BigDecimal.valueOf(-1)),
+                AccountFilter.all().withCreationYear(1999));
+
+        for (AccountFilter filter : filters) {
+            List<Account> expected = new ArrayList<>();
+            for (Account account : generatedAccounts) {
+                if (filter.test(account)) {
+                    expected.add(account);
+                }
+            }
+            assertEquals(filter.toString(), expected, generatedAnalytics.findAccounts(filter));
+            assertEquals(filter.toString(), expected.size(), generatedAnalytics.countAccounts(filter));
+        }
+    }
+
+    @Test
+    public void testEvaluateFilterQueries() {
+        AccountFilter filter = AccountFilter.all().withEmailDomain("gmail.com");
+        AccountQuery<List<Account>> matchingAccounts = AccountQuery.findAccounts(filter);
+        AccountQuery<Long> numOfMatchingAccounts = AccountQuery.countAccounts(filter);
+
+        AccountQueryResults results = analytics.evaluate(matchingAccounts, numOfMatchingAccounts);
+
+        assertEquals(analytics.findAccounts(filter), results.get(matchingAccounts));
+        assertEquals(Long.valueOf(analytics.countAccounts(filter)), results.get(numOfMatchingAccounts));
+    }
+
+    @Test
+    public void testEvaluateBalanceByFakeEmailKeepsOtherResults() {
+        AccountQuery<BigDecimal> fakeBalance = AccountQuery.getBalanceByEmail("fake@gmail.com");
+        AccountQuery<BigDecimal> balanceByEmail = AccountQuery.getBalanceByEmail("cardenas@mail.com");
+        AccountQuery<BigDecimal> totalBalance = AccountQuery.calculateTotalBalance();
+        AccountQuery<List<Account>> sortedAccounts = AccountQuery.sortByFirstAndLastNames();
+
+        AccountQueryResults results = analytics.evaluate(fakeBalance, balanceByEmail, totalBalance, sortedAccounts);
+
+        assertEquals(analytics.getBalanceByEmail("cardenas@mail.com"), results.get(balanceByEmail));
+        assertEquals(analytics.calculateTotalBalance(), results.get(totalBalance));
+        assertEquals(analytics.sortByFirstAndLastNames(), results.get(sortedAccounts));
+        try {
+            results.get(fakeBalance);
+            fail("Should throw exception");
+        } catch (EntityNotFoundException e) {
+            assertEquals("Cannot find Account by email=fake@gmail.com", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetResultOfNotEvaluatedQuery() {
+        analytics.evaluate(AccountQuery.calculateTotalBalance()).get(AccountQuery.calculateTotalBalance());
+    }
+}
@@ -0,0 +1,98 @@
+package ua.procamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AccountBitmapTest {
+
+    @Test
+    public void testBitmapIsEqualToBitSet() {
+        Random random = new Random(42);
+        for (double density : new double[]{0.001, 0.05, 0.5, 0.99}) {
+            BitSet expected = randomBitSet(random, 300_000, density);
+            AccountBitmap bitmap = toBitmap(expected);
+
+            assertEquals(expected.cardinality(), bitmap.cardinality());
+            assertEquals(ordinals(expected), ordinals(bitmap));
+            for (int i = 0; i < 1000; i++) {
+                int ordinal = random.nextInt(310_000);
+                assertEquals(expected.get(ordinal), bitmap.contains(ordinal));
+            }
+        }
+    }
+
+    @Test
+    public void testAndIsEqualToBitSetAnd() {
+        Random random = new Random(7);
+        double[] densities = {0.001, 0.03, 0.2, 0.9};
+        for (double density : densities) {
+            for (double otherDensity : densities) {
+                BitSet first = randomBitSet(random, 200_000, density);
+                BitSet second = randomBitSet(random, 260_000, otherDensity);
+                AccountBitmap intersection = toBitmap(first).and(toBitmap(second));
+                first.and(second);
+
+                assertEquals(first.cardinality(), intersection.cardinality());
+                assertEquals(ordinals(first), ordinals(intersection));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyBitmap() {
+        AccountBitmap bitmap = new AccountBitmap();
+
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.cardinality());
+        assertFalse(bitmap.contains(0));
+        assertTrue(bitmap.and(toBitmap(randomBitSet(new Random(1), 1000, 0.5))).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOrdinalsMustIncrease() {
+        AccountBitmap bitmap = new AccountBitmap();
+        bitmap.add(70_000);
+        bitmap.add(3);
+    }
+
+    private static BitSet randomBitSet(Random random, int size, double density) {
+        BitSet bits = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (random.nextDouble() < density) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    private static AccountBitmap toBitmap(BitSet bits) {
+        AccountBitmap bitmap = new AccountBitmap();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            bitmap.add(i);
+        }
+        return bitmap;
+    }
+
+    private static List<Integer> ordinals(BitSet bits) {
+        List<Integer> ordinals = new ArrayList<>();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            ordinals.add(i);
+        }
+        return ordinals;
+    }
+
+    private static List<Integer> ordinals(AccountBitmap bitmap) {
+        List<Integer> ordinals = new ArrayList<>();
+        bitmap.forEach(ordinals::add);
+        return ordinals;
+    }
+}
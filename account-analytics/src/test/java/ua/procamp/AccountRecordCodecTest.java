@@ -0,0 +1,41 @@
+package ua.procamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class AccountRecordCodecTest {
+
+    @Test
+    public void testRoundTripOfLargeValues() throws IOException {
+        String longName = "\u00e9".repeat(70_000);
+        BigDecimal largeBalance = new BigDecimal(BigInteger.ONE.shiftLeft(8 * 70_000).negate(), 2);
+        Account large = new Account(1L, longName, "Lee", "ann." + longName + "@gmail.com",
+                LocalDate.parse("1990-04-02"), Sex.FEMALE, LocalDate.parse("2016-06-01"), largeBalance);
+        Account empty = new Account();
+
+        assertEquals(large, roundTrip(large));
+        assertEquals(empty, roundTrip(empty));
+    }
+
+    private static Account roundTrip(Account account) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            AccountRecordCodec.write(output, account);
+        }
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Account result = AccountRecordCodec.read(input);
+        assertEquals(-1, input.read());
+        return result;
+    }
+}
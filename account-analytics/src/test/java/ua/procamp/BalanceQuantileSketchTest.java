@@ -0,0 +1,100 @@
+package ua.procamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class BalanceQuantileSketchTest {
+
+    @Test
+    public void testEmptySketch() {
+        assertEquals(Optional.empty(), new BalanceQuantileSketch(0.01).findPercentile(50));
+    }
+
+    @Test
+    public void testRankErrorIsBounded() {
+        double rankError = 0.005;
+        BalanceQuantileSketch sketch = new BalanceQuantileSketch(rankError);
+        Random random = new Random(7);
+        long[] balances = new long[100_000];
+        for (int i = 0; i < balances.length; i++) {
+            balances[i] = random.nextInt(200_000);
+            sketch.add(BigDecimal.valueOf(balances[i]));
+        }
+        Arrays.sort(balances);
+
+        for (double percentile : new double[]{0, 1, 10, 50, 90, 99, 99.9, 100}) {
+            long balance = sketch.findPercentile(percentile).orElseThrow().longValueExact();
+            long exactRank = Math.max(1, (long) Math.ceil(percentile / 100 * balances.length));
+            long lowestRank = lowerBound(balances, balance) + 1;
+            long highestRank = lowerBound(balances, balance + 1);
+
+            assertTrue(lowestRank - exactRank <= rankError * balances.length);
+            assertTrue(exactRank - highestRank <= rankError * balances.length);
+        }
+        assertTrue(sketch.summarySize() < balances.length / 10);
+    }
+
+    @Test
+    public void testRankErrorIsBoundedAfterMerge() {
+        double rankError = 0.005;
+        BalanceQuantileSketch[] parts = new BalanceQuantileSketch[4];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new BalanceQuantileSketch(rankError);
+        }
+        Random random = new Random(11);
+        long[] balances = new long[100_000];
+        for (int i = 0; i < balances.length; i++) {
+            // parts see different ranges of balances, like shards partitioned by balance would
+            balances[i] = random.nextInt(50_000) + i % parts.length * 40_000L;
+            parts[i % parts.length].add(BigDecimal.valueOf(balances[i]));
+        }
+        BalanceQuantileSketch sketch = new BalanceQuantileSketch(rankError);
+        for (BalanceQuantileSketch part : parts) {
+            sketch.merge(part);
+        }
+        Arrays.sort(balances);
+
+        assertEquals(balances.length, sketch.count());
+        for (double percentile : new double[]{0, 1, 10, 25, 50, 75, 90, 99, 99.9, 100}) {
+            long balance = sketch.findPercentile(percentile).orElseThrow().longValueExact();
+            long exactRank = Math.max(1, (long) Math.ceil(percentile / 100 * balances.length));
+            long lowestRank = lowerBound(balances, balance) + 1;
+            long highestRank = lowerBound(balances, balance + 1);
+
+            assertTrue(lowestRank - exactRank <= rankError * balances.length);
+            assertTrue(exactRank - highestRank <= rankError * balances.length);
+        }
+        assertTrue(sketch.summarySize() < balances.length / 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeOfDifferentRankErrors() {
+        new BalanceQuantileSketch(0.01).merge(new BalanceQuantileSketch(0.001));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRankError() {
+        new BalanceQuantileSketch(0);
+    }
+
+    private static int lowerBound(long[] sorted, long value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && sorted[index - 1] == value) {
+            index--;
+        }
+        return index;
+    }
+}
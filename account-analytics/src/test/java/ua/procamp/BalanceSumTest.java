@@ -0,0 +1,63 @@
+package ua.procamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class BalanceSumTest {
+
+    @Test
+    public void testEmptySumIsZero() {
+        assertSameSum();
+    }
+
+    @Test
+    public void testIntegerBalances() {
+        assertSameSum("172966", "38029", "13889", "16980");
+    }
+
+    @Test
+    public void testMixedScales() {
+        assertSameSum("10", "0.25", "1.5", "3.000", "-7.1");
+    }
+
+    @Test
+    public void testNegativeScales() {
+        assertSameSum("1E+3", "2.5E+1");
+        assertSameSum("1E+3", "2E+5");
+    }
+
+    @Test
+    public void testOverflowFallsBackToBigDecimal() {
+        assertSameSum(String.valueOf(Long.MAX_VALUE), "1", "0.5");
+        assertSameSum("123456789012345678901234567890", "1");
+        assertSameSum("1", "0.0000000000000000000001");
+    }
+
+    @Test
+    public void testParallelMerge() {
+        BigDecimal[] balances = new BigDecimal[10_000];
+        for (int i = 0; i < balances.length; i++) {
+            balances[i] = i % 100 == 0 ? BigDecimal.valueOf(Long.MAX_VALUE / 50) : BigDecimal.valueOf(i, i % 3);
+        }
+        List<BigDecimal> balanceList = Arrays.asList(balances);
+
+        assertEquals(balanceList.stream().reduce(BigDecimal.ZERO, BigDecimal::add),
+                balanceList.parallelStream().collect(BalanceSum.collector()));
+    }
+
+    private static void assertSameSum(String... balances) {
+        BigDecimal expected = Stream.of(balances).map(BigDecimal::new).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal actual = Stream.of(balances).map(BigDecimal::new).collect(BalanceSum.collector());
+
+        assertEquals(expected, actual);
+    }
+}
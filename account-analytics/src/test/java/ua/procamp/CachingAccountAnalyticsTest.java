@@ -0,0 +1,128 @@
+package ua.procamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CachingAccountAnalyticsTest extends AccountAnalyticsTest {
+
+    @Override
+    protected AccountAnalytics createAnalytics(List<Account> accounts) {
+        return AccountAnalytics.cached(AccountAnalytics.of(accounts), 16, EvictionPolicy.LRU);
+    }
+
+    @Test
+    public void testRepeatedQueryIsServedFromCache() {
+        CachingAccountAnalytics cachingAnalytics = (CachingAccountAnalytics) analytics;
+
+        List<Account> aprilAccounts = cachingAnalytics.findAccountsByBirthdayMonth(Month.APRIL);
+        assertSame(aprilAccounts, cachingAnalytics.findAccountsByBirthdayMonth(Month.APRIL));
+        cachingAnalytics.findAccountsByBirthdayMonth(Month.MAY);
+
+        CacheStats stats = cachingAnalytics.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void testCachedResultsAreUnmodifiable() {
+        assertUnsupported(() -> analytics.sortByFirstAndLastNames().clear());
+        assertUnsupported(() -> analytics.groupAccountsByEmailDomain().get("gmail.com").clear());
+        assertUnsupported(() -> analytics.partitionMaleAccounts().get(true).clear());
+        assertUnsupported(() -> analytics.groupFirstNamesByLastNames().get("Lynn").clear());
+        assertUnsupported(() -> analytics.collectAccountsById().clear());
+    }
+
+    @Test
+    public void testVersionChangeRecomputesResult() {
+        List<Account> mutableAccounts = new ArrayList<>(accounts);
+        AtomicLong version = new AtomicLong();
+        CachingAccountAnalytics cachingAnalytics = AccountAnalytics.cached(AccountAnalytics.of(mutableAccounts), 16,
+                EvictionPolicy.LFU, version::get);
+        assertFalse(cachingAnalytics.containsAccountWithEmailDomain("ukr.net"));
+
+        mutableAccounts.add(new Account(5L, "Ann", "Lee", "ann.lee@ukr.net", LocalDate.parse("1990-04-02"),
+                Sex.FEMALE, LocalDate.parse("2016-06-01"), BigDecimal.TEN));
+        assertFalse(cachingAnalytics.containsAccountWithEmailDomain("ukr.net"));
+
+        version.incrementAndGet();
+        assertTrue(cachingAnalytics.containsAccountWithEmailDomain("ukr.net"));
+    }
+
+    @Test
+    public void testInvalidateDropsResults() {
+        CachingAccountAnalytics cachingAnalytics = (CachingAccountAnalytics) analytics;
+        BigDecimal totalBalance = cachingAnalytics.calculateTotalBalance();
+
+        cachingAnalytics.invalidate();
+
+        assertEquals(0, cachingAnalytics.stats().getSize());
+        assertEquals(totalBalance, cachingAnalytics.calculateTotalBalance());
+        assertEquals(2, cachingAnalytics.stats().getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultIsEvicted() {
+        CachingAccountAnalytics cachingAnalytics = AccountAnalytics.cached(analytics, 2, EvictionPolicy.LRU);
+        cachingAnalytics.findRichestAccounts(1);
+        cachingAnalytics.findRichestAccounts(2);
+        cachingAnalytics.findRichestAccounts(1);
+        cachingAnalytics.findRichestAccounts(3);
+
+        cachingAnalytics.findRichestAccounts(1);
+        assertEquals(2, cachingAnalytics.stats().getHitCount());
+        cachingAnalytics.findRichestAccounts(2);
+        assertEquals(2, cachingAnalytics.stats().getHitCount());
+        assertEquals(2, cachingAnalytics.stats().getEvictionCount());
+    }
+
+    @Test
+    public void testLeastFrequentlyUsedResultIsEvicted() {
+        CachingAccountAnalytics cachingAnalytics = AccountAnalytics.cached(analytics, 2, EvictionPolicy.LFU);
+        cachingAnalytics.findRichestAccounts(1);
+        cachingAnalytics.findRichestAccounts(1);
+        cachingAnalytics.findRichestAccounts(2);
+        cachingAnalytics.findRichestAccounts(3);
+
+        cachingAnalytics.findRichestAccounts(1);
+        assertEquals(2, cachingAnalytics.stats().getHitCount());
+        cachingAnalytics.findRichestAccounts(2);
+        assertEquals(2, cachingAnalytics.stats().getHitCount());
+        assertEquals(2, cachingAnalytics.stats().getEvictionCount());
+    }
+
+    @Test
+    public void testFailedQueryIsNotCached() {
+        CachingAccountAnalytics cachingAnalytics = (CachingAccountAnalytics) analytics;
+        for (int i = 0; i < 2; i++) {
+            try {
+                cachingAnalytics.getBalanceByEmail("fake@gmail.com");
+                fail("Should throw exception");
+            } catch (RuntimeException e) {
+                assertEquals(0, cachingAnalytics.stats().getSize());
+            }
+        }
+    }
+
+    private static void assertUnsupported(Runnable modification) {
+        try {
+            modification.run();
+            fail("Should throw exception");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ua.procamp;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class CharacterCounterTest {
+
+    private final Locale defaultLocale = Locale.getDefault();
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    @Test
+    public void testCountsAndRemovesCharacters() {
+        CharacterCounter counter = new CharacterCounter();
+        counter.add("Olivia");
+        counter.add("\u0416\u0430\u043d\u043d\u0430");
+        counter.remove("Olivia");
+
+        assertEquals(count("\u0416\u0430\u043d\u043d\u0430"), counter.toMap());
+    }
+
+    @Test
+    public void testIgnoreCaseMatchesStringLowerCase() {
+        assertIgnoreCaseMatchesStringLowerCase("Justin", "Butler");
+        assertIgnoreCaseMatchesStringLowerCase("\u00c9milie", "D\u00dcRR");
+        assertIgnoreCaseMatchesStringLowerCase("\u039f\u0394\u03a5\u03a3\u03a3\u0395\u03a5\u03a3", "");
+        assertIgnoreCaseMatchesStringLowerCase("\u0130smail", "\u00c7elik");
+    }
+
+    @Test
+    public void testIgnoreCaseMatchesStringLowerCaseInTurkishLocale() {
+        Locale.setDefault(new Locale("tr"));
+
+        assertIgnoreCaseMatchesStringLowerCase("IRMAK", "Y\u0130LMAZ");
+    }
+
+    @Test
+    public void testMergeAddsCounts() {
+        CharacterCounter first = new CharacterCounter();
+        first.add("Nolan\u0416");
+        CharacterCounter second = new CharacterCounter();
+        second.add("Lucas\u0416");
+
+        assertEquals(count("Nolan\u0416Lucas\u0416"), first.merge(second).toMap());
+    }
+
+    private void assertIgnoreCaseMatchesStringLowerCase(String first, String second) {
+        CharacterCounter counter = new CharacterCounter();
+        counter.addIgnoreCase(first, second);
+
+        assertEquals(countLowerCase(first, second), counter.toMap());
+    }
+
+    private static Map<Character, Long> countLowerCase(String first, String second) {
+        return count((first + second).toLowerCase());
+    }
+
+    private static Map<Character, Long> count(String string) {
+        return string.chars()
+                .mapToObj(c -> (char) c)
+                .collect(groupingBy(identity(), counting()));
+    }
+}
@@ -0,0 +1,78 @@
+package ua.procamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ColumnarAccountAnalyticsTest extends AccountAnalyticsTest {
+
+    @Override
+    protected AccountAnalytics createAnalytics(List<Account> accounts) {
+        return AccountAnalytics.ofColumnar(accounts);
+    }
+
+    @Test
+    public void testFixtureBalancesAreStoredUnscaled() {
+        assertTrue(AccountColumns.of(accounts).hasUnscaledBalances());
+    }
+
+    @Test
+    public void testMixedScaleBalancesMatchStreamAnalytics() {
+        List<Account> mixedAccounts = new ArrayList<>(accounts);
+        mixedAccounts.add(new Account(5L, "Ann", "Lee", "ann.lee@gmail.com", LocalDate.parse("1990-04-02"),
+                Sex.FEMALE, LocalDate.parse("2016-06-01"), new BigDecimal("0.25")));
+        AccountColumns columns = AccountColumns.of(mixedAccounts);
+
+        assertFalse(columns.hasUnscaledBalances());
+        assertSameResults(AccountAnalytics.of(mixedAccounts), AccountAnalytics.of(columns));
+    }
+
+    @Test
+    public void testOverflowingBalancesMatchStreamAnalytics() {
+        List<Account> richAccounts = new ArrayList<>(accounts);
+        richAccounts.add(new Account(5L, "Ann", "Lee", "ann.lee@gmail.com", LocalDate.parse("1990-04-02"),
+                Sex.FEMALE, LocalDate.parse("2016-06-01"), BigDecimal.valueOf(Long.MAX_VALUE)));
+        AccountColumns columns = AccountColumns.of(richAccounts);
+
+        assertTrue(columns.hasUnscaledBalances());
+        assertSameResults(AccountAnalytics.of(richAccounts), AccountAnalytics.of(columns));
+    }
+
+    @Test
+    public void testCreationYearQueriesMatchStreamAnalyticsForAnyYear() {
+        List<Account> boundaryAccounts = new ArrayList<>(accounts);
+        boundaryAccounts.add(new Account(5L, "Ann", "Lee", "ann.lee@gmail.com", LocalDate.parse("1990-04-02"),
+                Sex.FEMALE, LocalDate.parse("2016-12-31"), new BigDecimal("25")));
+        AccountAnalytics expected = AccountAnalytics.of(boundaryAccounts);
+        AccountAnalytics actual = AccountAnalytics.ofColumnar(boundaryAccounts);
+
+        for (int year : new int[]{Integer.MIN_VALUE, Year.MIN_VALUE, -1, 2016, 2017, Year.MAX_VALUE, Integer.MAX_VALUE}) {
+            assertEquals(expected.collectBalancesByIdForAccountsCreatedOn(year),
+                    actual.collectBalancesByIdForAccountsCreatedOn(year));
+        }
+        assertTrue(actual.collectBalancesByIdForAccountsCreatedOn(2016).containsKey("ann.lee@gmail.com"));
+    }
+
+    private static void assertSameResults(AccountAnalytics expected, AccountAnalytics actual) {
+        assertEquals(expected.findRichestPerson(), actual.findRichestPerson());
+        assertEquals(expected.calculateTotalBalance(), actual.calculateTotalBalance());
+        assertEquals(expected.groupTotalBalanceByCreationMonth(), actual.groupTotalBalanceByCreationMonth());
+        assertEquals(expected.findAccountsByBirthdayMonth(Month.APRIL), actual.findAccountsByBirthdayMonth(Month.APRIL));
+        assertEquals(expected.groupCommaSeparatedFirstNamesByBirthdayMonth(),
+                actual.groupCommaSeparatedFirstNamesByBirthdayMonth());
+        assertEquals(expected.sortByFirstAndLastNames(), actual.sortByFirstAndLastNames());
+        assertEquals(expected.collectAccountsById(), actual.collectAccountsById());
+    }
+}
@@ -0,0 +1,129 @@
+package ua.procamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.data.AccountGenerator;
+import ua.procamp.model.Account;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ConcurrentAccountStoreTest {
+
+    @Test
+    public void testStoreKeepsAppendOrder() {
+        List<Account> accounts = AccountGenerator.create(20).generateList(5_000);
+        ConcurrentAccountStore store = ConcurrentAccountStore.create();
+        store.addAll(accounts.subList(0, 1_000));
+        accounts.subList(1_000, 5_000).forEach(store::add);
+
+        assertEquals(accounts.size(), store.size());
+        assertEquals(accounts, store.snapshot());
+        assertEquals(accounts, new ArrayList<>(store));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertEquals(AccountAnalytics.of(accounts).sortByFirstAndLastNames(),
+                    AccountAnalytics.parallel(store, pool).sortByFirstAndLastNames());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSnapshotDoesNotSeeLaterAppends() {
+        List<Account> accounts = AccountGenerator.create(20).generateList(3);
+        ConcurrentAccountStore store = ConcurrentAccountStore.of(accounts.subList(0, 2));
+        List<Account> snapshot = store.snapshot();
+
+        store.add(accounts.get(2));
+
+        assertEquals(accounts.subList(0, 2), snapshot);
+        assertEquals(accounts, store.snapshot());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsImmutable() {
+        ConcurrentAccountStore store = ConcurrentAccountStore.of(AccountGenerator.create(20).generateList(3));
+        store.snapshot().set(0, null);
+    }
+
+    @Test
+    public void testFailedAppendDoesNotBlockLaterAppends() {
+        List<Account> accounts = AccountGenerator.create(20).generateList(3);
+        ConcurrentAccountStore store = ConcurrentAccountStore.of(accounts.subList(0, 1));
+        try {
+            store.addAll(Arrays.asList(accounts.get(1), null));
+            fail("Should throw exception");
+        } catch (NullPointerException e) {
+            // expected
+        }
+
+        store.addAll(accounts.subList(1, 3));
+
+        assertEquals(accounts, store.snapshot());
+    }
+
+    @Test
+    public void testConcurrentAppendsAreAllPublished() throws Exception {
+        List<Account> accounts = AccountGenerator.create(20).generateList(40_000);
+        ConcurrentAccountStore store = ConcurrentAccountStore.create();
+        int writers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<Future<?>> writes = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                List<Account> part = accounts.subList(writer * 10_000, (writer + 1) * 10_000);
+                int batchSize = writer + 1;
+                writes.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < part.size(); i += batchSize) {
+                        store.addAll(part.subList(i, Math.min(i + batchSize, part.size())));
+                    }
+                    return null;
+                }));
+            }
+            Future<Integer> reads = executor.submit(() -> {
+                int snapshots = 0;
+                do {
+                    List<Account> snapshot = store.snapshot();
+                    List<Account> copy = new ArrayList<>(snapshot);
+                    assertFalse(copy.contains(null));
+                    assertEquals(copy.size(), AccountAnalytics.of(snapshot).countAccounts(AccountFilter.all()));
+                    assertEquals(copy, snapshot);
+                    snapshots++;
+                } while (writing.get());
+                return snapshots;
+            });
+            start.countDown();
+            for (Future<?> write : writes) {
+                write.get(30, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            assertTrue(reads.get(30, TimeUnit.SECONDS) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(accounts.size(), store.size());
+        Map<Account, Integer> writerOf = new IdentityHashMap<>();
+        for (int i = 0; i < accounts.size(); i++) {
+            writerOf.put(accounts.get(i), i / 10_000);
+        }
+        for (int writer = 0; writer < writers; writer++) {
+            List<Account> written = new ArrayList<>();
+            for (Account account : store) {
+                if (writerOf.get(account) == writer) {
+                    written.add(account);
+                }
+            }
+            assertEquals(accounts.subList(writer * 10_000, (writer + 1) * 10_000), written);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ua.procamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.model.Account;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class EmailDomainDictionaryTest {
+
+    @Test
+    public void testSameDomainIsCanonical() {
+        EmailDomainDictionary dictionary = new EmailDomainDictionary(16);
+        String email = "justin.butler@gmail.com";
+        String otherEmail = "cardenas@gmail.com@x";
+
+        String domain = dictionary.get(email, email.indexOf('@') + 1, email.length());
+
+        assertEquals("gmail.com", domain);
+        assertSame(domain, dictionary.get(otherEmail, otherEmail.indexOf('@') + 1, otherEmail.lastIndexOf('@')));
+        assertEquals("mail.com", dictionary.get(email, email.indexOf('@') + 2, email.length()));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    public void testFullDictionaryReturnsSubstrings() {
+        EmailDomainDictionary dictionary = new EmailDomainDictionary(4);
+        for (int i = 0; i < 10; i++) {
+            String email = "user@domain" + i + ".com";
+            assertEquals("domain" + i + ".com", dictionary.get(email, 5, email.length()));
+        }
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    public void testEmailsReturnCanonicalDomainsOnlyWithDictionary() {
+        EmailDomainDictionary dictionary = new EmailDomainDictionary(16);
+
+        assertSame(Emails.getDomain("a@yahoo.com", dictionary), Emails.getDomain("b@yahoo.com", dictionary));
+        assertNotSame(Emails.getDomain("a@yahoo.com"), Emails.getDomain("b@yahoo.com"));
+        assertEquals("yahoo.com", Emails.getDomain("a@yahoo.com"));
+        assertEquals("", Emails.getDomain("a@@yahoo.com"));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    public void testAnalyticsGroupByCanonicalDomainsOfItsDictionary() {
+        List<Account> accounts = new ArrayList<>();
+        for (String email : new String[]{"a@gmail.com", "b@yahoo.com", "c@gmail.com"}) {
+            Account account = new Account();
+            account.setEmail(email);
+            accounts.add(account);
+        }
+        EmailDomainDictionary dictionary = new EmailDomainDictionary(16);
+
+        Map<String, List<Account>> groups = AccountAnalytics.of(accounts, dictionary).groupAccountsByEmailDomain();
+
+        assertEquals(AccountAnalytics.of(accounts).groupAccountsByEmailDomain(), groups);
+        assertEquals(2, dictionary.size());
+        groups.keySet().forEach(domain -> assertSame(domain, Emails.getDomain("x@" + domain, dictionary)));
+    }
+}
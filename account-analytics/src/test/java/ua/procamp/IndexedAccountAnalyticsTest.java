@@ -0,0 +1,174 @@
+package ua.procamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.exception.EntityNotFoundException;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import ua.procamp.data.AccountGenerator;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class IndexedAccountAnalyticsTest extends AccountAnalyticsTest {
+
+    @Override
+    protected AccountAnalytics createAnalytics(List<Account> accounts) {
+        return AccountAnalytics.indexed(accounts, IndexMode.LAZY);
+    }
+
+    @Test
+    public void testLazyIndexSeesChangesAfterInvalidation() {
+        assertSeesChangesAfterInvalidation(IndexMode.LAZY);
+    }
+
+    @Test
+    public void testEagerIndexSeesChangesAfterInvalidation() {
+        assertSeesChangesAfterInvalidation(IndexMode.EAGER);
+    }
+
+    private void assertSeesChangesAfterInvalidation(IndexMode mode) {
+        List<Account> mutableAccounts = new ArrayList<>(accounts);
+        IndexedAccountAnalytics indexedAnalytics = AccountAnalytics.indexed(mutableAccounts, mode);
+        assertFalse(indexedAnalytics.containsAccountWithEmailDomain("ukr.net"));
+
+        Account newAccount = new Account(5L, "Ann", "Lee", "ann.lee@ukr.net", LocalDate.parse("1990-04-02"),
+                Sex.FEMALE, LocalDate.parse("2016-06-01"), BigDecimal.TEN);
+        mutableAccounts.add(newAccount);
+        assertFalse(indexedAnalytics.containsAccountWithEmailDomain("ukr.net"));
+
+        indexedAnalytics.invalidate();
+        assertTrue(indexedAnalytics.containsAccountWithEmailDomain("ukr.net"));
+        assertEquals(BigDecimal.TEN, indexedAnalytics.getBalanceByEmail(newAccount.getEmail()));
+
+        mutableAccounts.remove(newAccount);
+        indexedAnalytics.invalidate();
+        try {
+            indexedAnalytics.getBalanceByEmail(newAccount.getEmail());
+            fail("Should throw exception");
+        } catch (EntityNotFoundException e) {
+            assertEquals(String.format("Cannot find Account by email=%s", newAccount.getEmail()), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testBalanceUpdateIsVisibleWithoutInvalidation() {
+        Account account = accounts.get(2);
+        analytics.getBalanceByEmail(account.getEmail());
+        account.setBalance(BigDecimal.ONE);
+
+        assertEquals(BigDecimal.ONE, analytics.getBalanceByEmail(account.getEmail()));
+    }
+
+    @Test
+    public void testFindAccountsSortedByNames() {
+        IndexedAccountAnalytics indexedAnalytics = (IndexedAccountAnalytics) analytics;
+        List<Account> sortedAccounts = analytics.sortByFirstAndLastNames();
+
+        assertEquals(sortedAccounts.subList(0, 3), indexedAnalytics.findAccountsSortedByNames(0, 3));
+        assertEquals(sortedAccounts.subList(3, 4), indexedAnalytics.findAccountsSortedByNames(3, 3));
+        assertEquals(Collections.emptyList(), indexedAnalytics.findAccountsSortedByNames(10, 3));
+        assertEquals(sortedAccounts, indexedAnalytics.findAccountsSortedByNames(0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testSortedAccountsAreStableAndInvalidated() {
+        List<Account> mutableAccounts = new ArrayList<>(accounts);
+        Account sameName = new Account(5L, "Lucas", "Lynn", "lucas.lynn@ukr.net", LocalDate.parse("1990-04-02"),
+                Sex.MALE, LocalDate.parse("2016-06-01"), BigDecimal.TEN);
+        mutableAccounts.add(0, sameName);
+        IndexedAccountAnalytics indexedAnalytics = AccountAnalytics.indexed(mutableAccounts, IndexMode.EAGER);
+        assertEquals(AccountAnalytics.of(mutableAccounts).sortByFirstAndLastNames(),
+                indexedAnalytics.sortByFirstAndLastNames());
+
+        Account newAccount = new Account(6L, "Ann", "Lee", "ann.lee@ukr.net", LocalDate.parse("1990-04-02"),
+                Sex.FEMALE, LocalDate.parse("2016-06-01"), BigDecimal.TEN);
+        mutableAccounts.add(newAccount);
+        assertEquals(sameName, indexedAnalytics.findAccountsSortedByNames(1, 1).get(0));
+
+        indexedAnalytics.invalidate();
+        assertEquals(newAccount, indexedAnalytics.findAccountsSortedByNames(0, 1).get(0));
+        assertEquals(sameName, indexedAnalytics.findAccountsSortedByNames(2, 1).get(0));
+    }
+
+    @Test
+    public void testFindAccountsByFirstNamePrefix() {
+        IndexedAccountAnalytics indexedAnalytics = (IndexedAccountAnalytics) analytics;
+
+        assertEquals(Arrays.asList(accounts.get(3)), indexedAnalytics.findAccountsByFirstNamePrefix("Lu"));
+        assertEquals(Arrays.asList(accounts.get(0)), indexedAnalytics.findAccountsByFirstNamePrefix("Justin"));
+        assertEquals(Collections.emptyList(), indexedAnalytics.findAccountsByFirstNamePrefix("Justina"));
+        assertEquals(analytics.sortByFirstAndLastNames(), indexedAnalytics.findAccountsByFirstNamePrefix(""));
+    }
+
+    @Test
+    public void testFindAccountsByFirstNameRange() {
+        IndexedAccountAnalytics indexedAnalytics = (IndexedAccountAnalytics) analytics;
+
+        assertEquals(Arrays.asList(accounts.get(3), accounts.get(2)),
+                indexedAnalytics.findAccountsByFirstNameRange("K", "Olivia"));
+        assertEquals(Arrays.asList(accounts.get(3), accounts.get(2), accounts.get(1)),
+                indexedAnalytics.findAccountsByFirstNameRange("K", "Z"));
+        assertEquals(Collections.emptyList(), indexedAnalytics.findAccountsByFirstNameRange("Z", "A"));
+    }
+
+    @Test
+    public void testFindAccountsCreatedBetween() {
+        IndexedAccountAnalytics indexedAnalytics = (IndexedAccountAnalytics) analytics;
+
+        assertEquals(Arrays.asList(accounts.get(2), accounts.get(1)), indexedAnalytics.findAccountsCreatedBetween(
+                LocalDate.parse("2011-03-10"), LocalDate.parse("2016-06-13")));
+        assertEquals(Arrays.asList(accounts.get(3), accounts.get(2), accounts.get(1), accounts.get(0)),
+                indexedAnalytics.findAccountsCreatedBetween(LocalDate.MIN, LocalDate.MAX));
+        assertEquals(Collections.emptyList(), indexedAnalytics.findAccountsCreatedBetween(
+                LocalDate.parse("2016-06-13"), LocalDate.parse("2011-03-10")));
+    }
+
+    @Test
+    public void testDateIndexSeesChangesAfterInvalidation() {
+        List<Account> mutableAccounts = new ArrayList<>(accounts);
+        IndexedAccountAnalytics indexedAnalytics = AccountAnalytics.indexed(mutableAccounts, IndexMode.EAGER);
+        Account newAccount = new Account(5L, "Ann", "Lee", "ann.lee@ukr.net", LocalDate.parse("1990-04-02"),
+                Sex.FEMALE, LocalDate.parse("2016-06-01"), BigDecimal.TEN);
+        mutableAccounts.add(newAccount);
+        assertEquals(2, indexedAnalytics.findAccountsByBirthdayMonth(Month.APRIL).size());
+
+        indexedAnalytics.invalidate();
+        assertEquals(Arrays.asList(accounts.get(0), accounts.get(2), newAccount),
+                indexedAnalytics.findAccountsByBirthdayMonth(Month.APRIL));
+        assertEquals(BigDecimal.TEN,
+                indexedAnalytics.collectBalancesByIdForAccountsCreatedOn(2016).get(newAccount.getEmail()));
+    }
+
+    @Test
+    public void testDateQueriesAreEqualToStreamQueries() {
+        List<Account> generatedAccounts = AccountGenerator.create(17).generateList(5_000);
+        AccountAnalytics streamAnalytics = AccountAnalytics.of(generatedAccounts);
+        IndexedAccountAnalytics indexedAnalytics = AccountAnalytics.indexed(generatedAccounts, IndexMode.LAZY);
+
+        for (Month month : Month.values()) {
+            assertEquals(streamAnalytics.findAccountsByBirthdayMonth(month),
+                    indexedAnalytics.findAccountsByBirthdayMonth(month));
+        }
+        assertEquals(streamAnalytics.findAccountsByBirthdayMonth(null),
+                indexedAnalytics.findAccountsByBirthdayMonth(null));
+        for (int year = 2009; year <= 2020; year++) {
+            assertEquals(streamAnalytics.collectBalancesByIdForAccountsCreatedOn(year),
+                    indexedAnalytics.collectBalancesByIdForAccountsCreatedOn(year));
+        }
+        assertEquals(streamAnalytics.groupCommaSeparatedFirstNamesByBirthdayMonth(),
+                indexedAnalytics.groupCommaSeparatedFirstNamesByBirthdayMonth());
+        assertEquals(streamAnalytics.groupTotalBalanceByCreationMonth(),
+                indexedAnalytics.groupTotalBalanceByCreationMonth());
+    }
+}
@@ -0,0 +1,120 @@
+package ua.procamp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.exception.EntityNotFoundException;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class LiveAccountAnalyticsTest {
+
+    private List<Account> accounts;
+    private LiveAccountAnalytics liveAnalytics;
+
+    @Before
+    public void setUp() {
+        accounts = Arrays.asList(
+                new Account(1L, "Justin", "Butler", "justin.butler@gmail.com",
+                        LocalDate.parse("2003-04-17"), Sex.MALE, LocalDate.parse("2016-06-13"), BigDecimal.valueOf(172966)),
+                new Account(2L, "Olivia", "Cardenas", "cardenas@mail.com",
+                        LocalDate.parse("1930-01-19"), Sex.FEMALE, LocalDate.parse("2014-06-21"), BigDecimal.valueOf(38029)),
+                new Account(3L, "Nolan", "Donovan", "nolandonovan@gmail.com",
+                        LocalDate.parse("1925-04-19"), Sex.MALE, LocalDate.parse("2011-03-10"), BigDecimal.valueOf(13889)),
+                new Account(4L, "Lucas", "Lynn", "lucas.lynn@yahoo.com",
+                        LocalDate.parse("1987-05-25"), Sex.MALE, LocalDate.parse("2009-03-05"), BigDecimal.valueOf(16980))
+        );
+        liveAnalytics = LiveAccountAnalytics.of(accounts);
+    }
+
+    @Test
+    public void testInitialAggregatesMatchRecomputation() {
+        assertEquals(BigDecimal.valueOf(241864), liveAnalytics.calculateTotalBalance());
+        assertMatchesRecomputation();
+    }
+
+    @Test
+    public void testUpdateOfModifiedInstance() {
+        Account account = accounts.get(1);
+        account.setBalance(BigDecimal.valueOf(1000));
+        account.setSex(Sex.MALE);
+        account.setCreationDate(LocalDate.parse("2014-12-01"));
+        liveAnalytics.update(account);
+
+        assertEquals(BigDecimal.valueOf(204835), liveAnalytics.calculateTotalBalance());
+        assertEquals(BigDecimal.valueOf(1000), liveAnalytics.groupTotalBalanceByCreationMonth().get(Month.DECEMBER));
+        assertMatchesRecomputation();
+    }
+
+    @Test
+    public void testRemoveOfLastAccountInMonth() {
+        liveAnalytics.remove(accounts.get(0));
+        liveAnalytics.remove(accounts.get(1));
+
+        assertEquals(1, liveAnalytics.groupTotalBalanceByCreationMonth().size());
+        assertMatchesRecomputation();
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void testUpdateOfUnknownAccount() {
+        liveAnalytics.update(new Account(5L, "Ann", "Lee", "ann.lee@ukr.net", LocalDate.parse("1990-04-02"),
+                Sex.FEMALE, LocalDate.parse("2016-06-01"), BigDecimal.TEN));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOfExistingAccount() {
+        liveAnalytics.add(accounts.get(0));
+    }
+
+    @Test
+    public void testRandomEventsMatchRecomputation() {
+        Random random = new Random(42);
+        String[] names = {"Justin", "Olivia", "Nolan", "Lucas", "Ann", "Zo\u00eb"};
+        String[] balances = {"10", "10.5", "0.125", "99999", "7.00"};
+        List<Account> current = new ArrayList<>(accounts);
+        for (int i = 0; i < 2_000; i++) {
+            int event = random.nextInt(3);
+            if (event == 0 || current.isEmpty()) {
+                Account account = new Account((long) i + 5, names[random.nextInt(names.length)],
+                        names[random.nextInt(names.length)], "user" + i + "@gmail.com",
+                        LocalDate.ofEpochDay(random.nextInt(20_000)), random.nextBoolean() ? Sex.MALE : Sex.FEMALE,
+                        LocalDate.ofEpochDay(random.nextInt(20_000)), new BigDecimal(balances[random.nextInt(balances.length)]));
+                current.add(account);
+                liveAnalytics.add(account);
+            } else if (event == 1) {
+                Account account = current.get(random.nextInt(current.size()));
+                account.setBalance(new BigDecimal(balances[random.nextInt(balances.length)]));
+                account.setCreationDate(LocalDate.ofEpochDay(random.nextInt(20_000)));
+                account.setFirstName(names[random.nextInt(names.length)]);
+                liveAnalytics.update(account);
+            } else {
+                liveAnalytics.remove(current.remove(random.nextInt(current.size())));
+            }
+        }
+        assertEquals(current, liveAnalytics.getAccounts());
+        assertMatchesRecomputation();
+    }
+
+    private void assertMatchesRecomputation() {
+        AccountAnalytics recomputed = AccountAnalytics.of(liveAnalytics.getAccounts());
+
+        assertEquals(recomputed.calculateTotalBalance(), liveAnalytics.calculateTotalBalance());
+        assertEquals(recomputed.groupTotalBalanceByCreationMonth(), liveAnalytics.groupTotalBalanceByCreationMonth());
+        assertEquals(recomputed.partitionMaleAccounts(), liveAnalytics.partitionMaleAccounts());
+        assertEquals(recomputed.getCharacterFrequencyInFirstNames(), liveAnalytics.getCharacterFrequencyInFirstNames());
+        assertEquals(recomputed.getCharacterFrequencyIgnoreCaseInFirstAndLastNames(),
+                liveAnalytics.getCharacterFrequencyIgnoreCaseInFirstAndLastNames());
+    }
+}
@@ -0,0 +1,81 @@
+package ua.procamp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.model.Account;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class LongAccountMapTest {
+
+    @Test
+    public void testMapIsEqualToHashMap() {
+        Random random = new Random(42);
+        LongAccountMap map = new LongAccountMap();
+        Map<Long, Account> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            Long id = random.nextInt(20) == 0 ? null : (long) random.nextInt(2_000) * 1024;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), map.remove(id));
+            } else {
+                Account account = account(id);
+                assertEquals(expected.put(id, account), map.put(id, account));
+            }
+        }
+
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.size());
+        expected.forEach((id, account) -> assertSame(account, map.get(id)));
+        assertNull(map.get(-1L));
+        assertNull(map.get("1"));
+    }
+
+    @Test
+    public void testCollectorIsEqualToToMap() {
+        List<Account> accounts = LongStream.range(0, 50_000)
+                .mapToObj(id -> account(id * 31))
+                .collect(Collectors.toList());
+
+        Map<Long, Account> result = accounts.parallelStream().collect(LongAccountMap.collector());
+
+        assertEquals(accounts.stream().collect(Collectors.toMap(Account::getId, account -> account)), result);
+    }
+
+    @Test
+    public void testCollectorThrowsOnDuplicateIds() {
+        Account account = account(7L);
+        Account duplicate = account(7L);
+        try {
+            List.of(account, duplicate).stream().collect(LongAccountMap.collector());
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(String.format("Duplicate key 7 (attempted merging values %s and %s)", account, duplicate),
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testClear() {
+        LongAccountMap map = new LongAccountMap(4);
+        map.put(1L, account(1L));
+        map.put(null, account(null));
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(1L));
+        assertFalse(map.containsKey(null));
+    }
+
+    private static Account account(Long id) {
+        Account account = new Account();
+        account.setId(id);
+        return account;
+    }
+}
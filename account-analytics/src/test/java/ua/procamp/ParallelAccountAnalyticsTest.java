@@ -0,0 +1,73 @@
+package ua.procamp;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class ParallelAccountAnalyticsTest extends AccountAnalyticsTest {
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Override
+    protected AccountAnalytics createAnalytics(List<Account> accounts) {
+        return AccountAnalytics.parallel(accounts, pool);
+    }
+
+    @Test
+    public void testOrderedResultsMatchSequentialOnLargeCollection() {
+        List<Account> manyAccounts = new ArrayList<>();
+        String[] firstNames = {"Justin", "Olivia", "Nolan", "Lucas", "Ann"};
+        String[] domains = {"gmail.com", "mail.com", "yahoo.com"};
+        for (int i = 0; i < 10_000; i++) {
+            manyAccounts.add(new Account((long) i, firstNames[i % firstNames.length], "Last" + (i % 97),
+                    "user" + i + "@" + domains[i % domains.length], LocalDate.ofEpochDay(i * 7L),
+                    i % 3 == 0 ? Sex.FEMALE : Sex.MALE, LocalDate.ofEpochDay(15_000 + i), BigDecimal.valueOf(i % 1000)));
+        }
+        AccountAnalytics sequential = AccountAnalytics.of(manyAccounts);
+        AccountAnalytics parallel = createAnalytics(manyAccounts);
+
+        assertEquals(sequential.findRichestPerson(), parallel.findRichestPerson());
+        assertEquals(sequential.findRichestAccounts(50), parallel.findRichestAccounts(50));
+        assertEquals(sequential.findRichestAccountsByEmailDomain(5), parallel.findRichestAccountsByEmailDomain(5));
+        assertEquals(sequential.findBalancePercentile(90), parallel.findBalancePercentile(90));
+        assertEquals(sequential.sortByFirstAndLastNames(), parallel.sortByFirstAndLastNames());
+        assertEquals(sequential.groupAccountsByEmailDomain(), parallel.groupAccountsByEmailDomain());
+        assertEquals(sequential.groupCommaSeparatedFirstNamesByBirthdayMonth(),
+                parallel.groupCommaSeparatedFirstNamesByBirthdayMonth());
+        assertEquals(sequential.findAccountsByBirthdayMonth(Month.MARCH), parallel.findAccountsByBirthdayMonth(Month.MARCH));
+        assertEquals(sequential.groupFirstNamesByLastNames(), parallel.groupFirstNamesByLastNames());
+        assertEquals(sequential.groupTotalBalanceByCreationMonth(), parallel.groupTotalBalanceByCreationMonth());
+        assertEquals(sequential.getCharacterFrequencyIgnoreCaseInFirstAndLastNames(),
+                parallel.getCharacterFrequencyIgnoreCaseInFirstAndLastNames());
+
+        AccountQuery<List<Account>> sortedAccounts = AccountQuery.sortByFirstAndLastNames();
+        AccountQuery<Map<Month, String>> firstNamesByBirthdayMonth =
+                AccountQuery.groupCommaSeparatedFirstNamesByBirthdayMonth();
+        AccountQuery<List<Account>> richestAccounts = AccountQuery.findRichestAccounts(50);
+        AccountQuery<Map<Month, BigDecimal>> balanceByCreationMonth = AccountQuery.groupTotalBalanceByCreationMonth();
+        AccountQueryResults results = parallel.evaluate(sortedAccounts, firstNamesByBirthdayMonth, richestAccounts,
+                balanceByCreationMonth);
+        assertEquals(sequential.sortByFirstAndLastNames(), results.get(sortedAccounts));
+        assertEquals(sequential.groupCommaSeparatedFirstNamesByBirthdayMonth(), results.get(firstNamesByBirthdayMonth));
+        assertEquals(sequential.findRichestAccounts(50), results.get(richestAccounts));
+        assertEquals(sequential.groupTotalBalanceByCreationMonth(), results.get(balanceByCreationMonth));
+    }
+}
@@ -0,0 +1,234 @@
+package ua.procamp;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.data.AccountGenerator;
+import ua.procamp.exception.EntityNotFoundException;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ShardedAccountAnalyticsTest extends AccountAnalyticsTest {
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Override
+    protected AccountAnalytics createAnalytics(List<Account> accounts) {
+        return AccountAnalytics.sharded(accounts, ShardKey.EMAIL, ShardTransport.local(3, pool));
+    }
+
+    @Test
+    public void testResultsMatchSingleInstanceWhenShardsAreSerialized() {
+        List<Account> generatedAccounts = AccountGenerator.create(19).generateList(5_000);
+        AccountAnalytics single = AccountAnalytics.of(generatedAccounts);
+        AccountAnalytics sharded = AccountAnalytics.sharded(generatedAccounts, ShardKey.ID, new SerializingTransport(4));
+        Account account = generatedAccounts.get(1234);
+        AccountFilter filter = AccountFilter.all().withSex(Sex.FEMALE).withBirthdayMonth(Month.MAY);
+
+        assertEquals(single.findRichestPerson(), sharded.findRichestPerson());
+        assertEquals(single.findAccountsByBirthdayMonth(Month.MARCH), sharded.findAccountsByBirthdayMonth(Month.MARCH));
+        assertEquals(single.partitionMaleAccounts(), sharded.partitionMaleAccounts());
+        assertEquals(single.groupAccountsByEmailDomain(), sharded.groupAccountsByEmailDomain());
+        assertEquals(single.getNumOfLettersInFirstAndLastNames(), sharded.getNumOfLettersInFirstAndLastNames());
+        assertEquals(single.calculateTotalBalance(), sharded.calculateTotalBalance());
+        assertEquals(single.sortByFirstAndLastNames(), sharded.sortByFirstAndLastNames());
+        assertEquals(account.getBalance(), sharded.getBalanceByEmail(account.getEmail()));
+        assertEquals(single.collectAccountsById(), sharded.collectAccountsById());
+        int year = account.getCreationDate().getYear();
+        assertEquals(single.collectBalancesByIdForAccountsCreatedOn(year),
+                sharded.collectBalancesByIdForAccountsCreatedOn(year));
+        assertEquals(single.groupFirstNamesByLastNames(), sharded.groupFirstNamesByLastNames());
+        assertEquals(single.groupCommaSeparatedFirstNamesByBirthdayMonth(),
+                sharded.groupCommaSeparatedFirstNamesByBirthdayMonth());
+        assertEquals(single.groupTotalBalanceByCreationMonth(), sharded.groupTotalBalanceByCreationMonth());
+        assertEquals(single.getCharacterFrequencyIgnoreCaseInFirstAndLastNames(),
+                sharded.getCharacterFrequencyIgnoreCaseInFirstAndLastNames());
+        assertEquals(single.findRichestAccounts(50), sharded.findRichestAccounts(50));
+        assertEquals(single.findRichestAccountsByEmailDomain(5), sharded.findRichestAccountsByEmailDomain(5));
+        assertEquals(single.findBalancePercentile(90), sharded.findBalancePercentile(90));
+        assertApproximatePercentile(generatedAccounts, 50, 0.01, sharded.findApproximateBalancePercentile(50, 0.01));
+        assertEquals(single.findAccounts(filter), sharded.findAccounts(filter));
+        assertEquals(single.countAccounts(filter), sharded.countAccounts(filter));
+
+        AccountQuery<List<Account>> richestAccounts = AccountQuery.findRichestAccounts(10);
+        assertEquals(single.findRichestAccounts(10), sharded.evaluate(richestAccounts).get(richestAccounts));
+    }
+
+    @Test
+    public void testEvaluateSendsOnlyAccountsOfOrderDependentQueries() {
+        List<Account> generatedAccounts = AccountGenerator.create(19).generateList(5_000);
+        AccountAnalytics single = AccountAnalytics.of(generatedAccounts);
+        SerializingTransport transport = new SerializingTransport(4);
+        AccountAnalytics sharded = AccountAnalytics.sharded(generatedAccounts, ShardKey.ID, transport);
+        AccountFilter filter = AccountFilter.all().withSex(Sex.FEMALE).withBirthdayMonth(Month.MAY);
+        AccountQuery<BigDecimal> totalBalance = AccountQuery.calculateTotalBalance();
+        AccountQuery<Integer> numOfLetters = AccountQuery.getNumOfLettersInFirstAndLastNames();
+        AccountQuery<Boolean> containsDomain = AccountQuery.containsAccountWithEmailDomain("gmail.com");
+        AccountQuery<Map<String, Set<String>>> firstNamesByLastNames = AccountQuery.groupFirstNamesByLastNames();
+        AccountQuery<Map<Month, BigDecimal>> balanceByCreationMonth = AccountQuery.groupTotalBalanceByCreationMonth();
+        AccountQuery<Map<Character, Long>> namesFrequency =
+                AccountQuery.getCharacterFrequencyIgnoreCaseInFirstAndLastNames();
+        AccountQuery<Long> numOfMatchingAccounts = AccountQuery.countAccounts(filter);
+        AccountQuery<List<Account>> richestAccounts = AccountQuery.findRichestAccounts(10);
+        AccountQuery<Optional<BigDecimal>> median = AccountQuery.findBalancePercentile(50);
+        AccountQuery<List<Account>> matchingAccounts = AccountQuery.findAccounts(filter);
+        AccountQuery<List<Account>> accountsByBirthdayMonth = AccountQuery.findAccountsByBirthdayMonth(Month.MARCH);
+
+        AccountQueryResults results = sharded.evaluate(totalBalance, numOfLetters, containsDomain,
+                firstNamesByLastNames, balanceByCreationMonth, namesFrequency, numOfMatchingAccounts, richestAccounts,
+                median, matchingAccounts, accountsByBirthdayMonth);
+
+        assertEquals(single.calculateTotalBalance(), results.get(totalBalance));
+        assertEquals(Integer.valueOf(single.getNumOfLettersInFirstAndLastNames()), results.get(numOfLetters));
+        assertTrue(results.get(containsDomain));
+        assertEquals(single.groupFirstNamesByLastNames(), results.get(firstNamesByLastNames));
+        assertEquals(single.groupTotalBalanceByCreationMonth(), results.get(balanceByCreationMonth));
+        assertEquals(single.getCharacterFrequencyIgnoreCaseInFirstAndLastNames(), results.get(namesFrequency));
+        assertEquals(Long.valueOf(single.countAccounts(filter)), results.get(numOfMatchingAccounts));
+        assertEquals(single.findRichestAccounts(10), results.get(richestAccounts));
+        assertEquals(0, single.findBalancePercentile(50).orElseThrow().compareTo(results.get(median).orElseThrow()));
+        assertEquals(single.findAccounts(filter), results.get(matchingAccounts));
+        assertEquals(single.findAccountsByBirthdayMonth(Month.MARCH), results.get(accountsByBirthdayMonth));
+        long relevantAccounts = generatedAccounts.stream()
+                .filter(filter.or(a -> a.getBirthday().getMonth() == Month.MARCH))
+                .count();
+        assertEquals(relevantAccounts, transport.gatheredAccounts.get());
+    }
+
+    @Test
+    public void testPercentilesOfManyDuplicateBalances() {
+        List<Account> manyAccounts = new ArrayList<>();
+        for (int i = 0; i < 30_000; i++) {
+            manyAccounts.add(new Account((long) i, "First" + (i % 89), "Last" + (i % 97), "user" + i + "@gmail.com",
+                    LocalDate.ofEpochDay(i % 20_000), Sex.MALE, LocalDate.ofEpochDay(15_000 + i % 3_000),
+                    BigDecimal.valueOf(i * 7_919L % 1_000, i % 2)));
+        }
+        AccountAnalytics single = AccountAnalytics.of(manyAccounts);
+        AccountAnalytics sharded = AccountAnalytics.sharded(manyAccounts, ShardKey.ID, new SerializingTransport(4));
+
+        for (double percentile : new double[]{0, 0.01, 1, 25, 50, 75, 99.99, 100}) {
+            assertEquals(0, single.findBalancePercentile(percentile).orElseThrow()
+                    .compareTo(sharded.findBalancePercentile(percentile).orElseThrow()));
+            assertApproximatePercentile(manyAccounts, percentile, 0.001,
+                    sharded.findApproximateBalancePercentile(percentile, 0.001));
+        }
+        assertEquals(Optional.empty(), AccountAnalytics.sharded(List.of(), ShardKey.ID, ShardTransport.local(2, pool))
+                .findBalancePercentile(50));
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void testGetBalanceByNullEmail() {
+        analytics.getBalanceByEmail(null);
+    }
+
+    @Test
+    public void testDuplicateIdsInDifferentShardsAreDetected() {
+        List<Account> accountsWithDuplicate = new ArrayList<>(accounts);
+        Account duplicate = new Account(accounts.get(0).getId(), "Ann", "Lee", "ann.lee@ukr.net",
+                LocalDate.parse("1990-04-02"), Sex.FEMALE, LocalDate.parse("2016-06-01"), BigDecimal.TEN);
+        accountsWithDuplicate.add(duplicate);
+        String expectedMessage = null;
+        try {
+            AccountAnalytics.of(accountsWithDuplicate).collectAccountsById();
+        } catch (IllegalStateException e) {
+            expectedMessage = e.getMessage();
+        }
+        assertNotNull(expectedMessage);
+
+        try {
+            AccountAnalytics.sharded(accountsWithDuplicate, ShardKey.EMAIL, ShardTransport.local(4, pool))
+                    .collectAccountsById();
+            fail("Should throw exception");
+        } catch (IllegalStateException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTaskOnNotLoadedShardFails() {
+        ShardTransport.local(2, pool).submit(1, AccountShard::size);
+    }
+
+    /**
+     * Asserts that a rank of the balance differs from the exact nearest rank of the percentile within the error bound.
+     */
+    private static void assertApproximatePercentile(List<Account> accounts, double percentile, double rankError,
+                                                    Optional<BigDecimal> balance) {
+        long exactRank = Math.max(1, (long) Math.ceil(percentile / 100 * accounts.size()));
+        long less = accounts.stream().filter(a -> a.getBalance().compareTo(balance.orElseThrow()) < 0).count();
+        long notGreater = accounts.stream().filter(a -> a.getBalance().compareTo(balance.orElseThrow()) <= 0).count();
+
+        assertTrue(less + 1 - exactRank <= rankError * accounts.size());
+        assertTrue(exactRank - notGreater <= rankError * accounts.size());
+    }
+
+    /**
+     * Serializes shards, tasks and partial results like a transport to another JVM would do.
+     */
+    private static class SerializingTransport implements ShardTransport {
+        private final ShardTransport local;
+        private final AtomicInteger gatheredAccounts = new AtomicInteger();
+
+        SerializingTransport(int shardCount) {
+            local = ShardTransport.local(shardCount, pool);
+        }
+
+        @Override
+        public int shardCount() {
+            return local.shardCount();
+        }
+
+        @Override
+        public void load(int shard, AccountShard accounts) {
+            local.load(shard, copy(accounts));
+        }
+
+        @Override
+        public <R> CompletableFuture<R> submit(int shard, ShardTask<R> task) {
+            return local.submit(shard, copy(task)).thenApply(SerializingTransport::copy).thenApply(result -> {
+                if (result instanceof AccountShard.QueryParts) {
+                    gatheredAccounts.addAndGet(((AccountShard.QueryParts) result).accounts.size());
+                }
+                return result;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T copy(T object) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(object);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (T) in.readObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
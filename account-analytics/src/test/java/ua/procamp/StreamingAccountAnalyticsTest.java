@@ -0,0 +1,126 @@
+package ua.procamp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class StreamingAccountAnalyticsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSummaryMatchesInMemoryAnalytics() {
+        List<Account> accounts = createAccounts(10_000);
+        AccountAnalytics expected = AccountAnalytics.of(accounts);
+        AccountSummary sequential = StreamingAccountAnalytics.create().summarize(accounts.iterator());
+        AccountSummary parallel = StreamingAccountAnalytics.create().summarize(accounts.spliterator());
+
+        for (AccountSummary summary : new AccountSummary[]{sequential, parallel}) {
+            assertEquals(accounts.size(), summary.count());
+            assertSame(expected.findRichestPerson().get(), summary.findRichestPerson().get());
+            assertEquals(expected.calculateTotalBalance(), summary.calculateTotalBalance());
+            assertEquals(expected.groupTotalBalanceByCreationMonth(), summary.groupTotalBalanceByCreationMonth());
+            Map<Boolean, List<Account>> maleAccounts = expected.partitionMaleAccounts();
+            assertEquals(maleAccounts.get(true).size(), summary.countMaleAccounts().get(true).longValue());
+            assertEquals(maleAccounts.get(false).size(), summary.countMaleAccounts().get(false).longValue());
+            expected.groupAccountsByEmailDomain().forEach((domain, domainAccounts) ->
+                    assertEquals(domainAccounts.size(), summary.countAccountsByEmailDomain().get(domain).longValue()));
+            assertEquals(expected.groupAccountsByEmailDomain().keySet(), summary.countAccountsByEmailDomain().keySet());
+            assertEquals(expected.getNumOfLettersInFirstAndLastNames(), summary.getNumOfLettersInFirstAndLastNames());
+            assertEquals(expected.getCharacterFrequencyInFirstNames(), summary.getCharacterFrequencyInFirstNames());
+            assertEquals(expected.getCharacterFrequencyIgnoreCaseInFirstAndLastNames(),
+                    summary.getCharacterFrequencyIgnoreCaseInFirstAndLastNames());
+        }
+    }
+
+    @Test
+    public void testIteratorIsConsumedSequentiallyOnCallingThread() {
+        List<Account> accounts = createAccounts(10_000);
+        Thread caller = Thread.currentThread();
+        Iterator<Account> iterator = accounts.iterator();
+        Iterator<Account> source = new Iterator<Account>() {
+            @Override
+            public boolean hasNext() {
+                assertSame(caller, Thread.currentThread());
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Account next() {
+                assertSame(caller, Thread.currentThread());
+                return iterator.next();
+            }
+        };
+
+        assertEquals(accounts.size(), StreamingAccountAnalytics.create().summarize(source).count());
+    }
+
+    @Test
+    public void testEmptySummary() {
+        AccountSummary summary = StreamingAccountAnalytics.create().summarize(new ArrayList<Account>().iterator());
+
+        assertEquals(0, summary.count());
+        assertEquals(false, summary.findRichestPerson().isPresent());
+        assertEquals(BigDecimal.ZERO, summary.calculateTotalBalance());
+    }
+
+    @Test
+    public void testExternalSortMatchesInMemorySort() {
+        List<Account> accounts = createAccounts(1_003);
+        accounts.get(10).setId(null);
+        accounts.get(20).setBalance(new BigDecimal("-12.345"));
+        StreamingAccountAnalytics streaming = StreamingAccountAnalytics.create(100, temporaryFolder.getRoot().toPath());
+
+        List<Account> sorted = new ArrayList<>();
+        streaming.sortByFirstAndLastNames(accounts.iterator(), sorted::add);
+
+        List<Account> expected = AccountAnalytics.of(accounts).sortByFirstAndLastNames();
+        assertEquals(expected.size(), sorted.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameAccount(expected.get(i), sorted.get(i));
+        }
+        assertArrayEquals(new File[0], temporaryFolder.getRoot().listFiles());
+    }
+
+    private static void assertSameAccount(Account expected, Account actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getFirstName(), actual.getFirstName());
+        assertEquals(expected.getLastName(), actual.getLastName());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getBirthday(), actual.getBirthday());
+        assertEquals(expected.getSex(), actual.getSex());
+        assertEquals(expected.getCreationDate(), actual.getCreationDate());
+        assertEquals(expected.getBalance(), actual.getBalance());
+    }
+
+    private static List<Account> createAccounts(int count) {
+        List<Account> accounts = new ArrayList<>();
+        String[] firstNames = {"Justin", "Olivia", "Nolan", "Lucas", "Ann"};
+        String[] domains = {"gmail.com", "mail.com", "yahoo.com"};
+        for (int i = 0; i < count; i++) {
+            accounts.add(new Account((long) i, firstNames[i % firstNames.length], "Last" + (i % 7),
+                    "user" + i + "@" + domains[i % domains.length], LocalDate.ofEpochDay(i * 7L),
+                    i % 3 == 0 ? Sex.FEMALE : Sex.MALE, LocalDate.ofEpochDay(15_000 + i),
+                    BigDecimal.valueOf(i % 1000, i % 3)));
+        }
+        return accounts;
+    }
+}
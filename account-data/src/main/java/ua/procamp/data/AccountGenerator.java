@@ -0,0 +1,214 @@
+package ua.procamp.data;
+
+import io.codearte.jfairy.Fairy;
+import io.codearte.jfairy.producer.person.Person;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * {@link AccountGenerator} generates fake accounts reproducibly. Names and email domains are taken once from a seeded
+ * {@link Fairy}, and every account is generated from its own random derived from the seed and the account index. So an
+ * account with the same index is the same for the same seed and settings, no matter in which order or in which thread
+ * accounts are generated.
+ * <p>
+ * Generated accounts have ids equal to index + 1 and unique emails. Their first and last names are shared instances from
+ * the name pool, like the ones of {@link StringDictionary}. Birthdays, creation dates and balances are uniformly
+ * distributed over configurable ranges. Settings methods return a new generator and do not change this one.
+ */
+public final class AccountGenerator {
+    private static final int SAMPLE_SIZE = 2_000;
+
+    private final long seed;
+    private final NamePool names;
+    private final long minBirthday;
+    private final long maxBirthday;
+    private final long minCreationDate;
+    private final long maxCreationDate;
+    private final int balanceScale;
+    private final long minUnscaledBalance;
+    private final long maxUnscaledBalance;
+
+    private AccountGenerator(long seed, NamePool names, long minBirthday, long maxBirthday, long minCreationDate,
+                             long maxCreationDate, int balanceScale, long minUnscaledBalance, long maxUnscaledBalance) {
+        this.seed = seed;
+        this.names = names;
+        this.minBirthday = minBirthday;
+        this.maxBirthday = maxBirthday;
+        this.minCreationDate = minCreationDate;
+        this.maxCreationDate = maxCreationDate;
+        this.balanceScale = balanceScale;
+        this.minUnscaledBalance = minUnscaledBalance;
+        this.maxUnscaledBalance = maxUnscaledBalance;
+    }
+
+    /**
+     * Creates a generator with provided seed. It generates birthdays from 1930 to 2005, creation dates from 2010 to 2019
+     * and integer balances from 0 to 199 999.
+     *
+     * @param seed a seed of generated accounts
+     * @return new account generator
+     */
+    public static AccountGenerator create(long seed) {
+        return new AccountGenerator(seed, new NamePool(seed),
+                LocalDate.of(1930, 1, 1).toEpochDay(), LocalDate.of(2005, 12, 31).toEpochDay(),
+                LocalDate.of(2010, 1, 1).toEpochDay(), LocalDate.of(2019, 12, 31).toEpochDay(),
+                0, 0, 199_999);
+    }
+
+    /**
+     * Returns a generator of accounts with creation dates uniformly distributed between provided dates.
+     *
+     * @param from the first creation date, inclusive
+     * @param to   the last creation date, inclusive
+     * @return new account generator
+     */
+    public AccountGenerator withCreationDates(LocalDate from, LocalDate to) {
+        checkRange(from.toEpochDay(), to.toEpochDay());
+        return new AccountGenerator(seed, names, minBirthday, maxBirthday, from.toEpochDay(), to.toEpochDay(),
+                balanceScale, minUnscaledBalance, maxUnscaledBalance);
+    }
+
+    /**
+     * Returns a generator of accounts with birthdays uniformly distributed between provided dates.
+     *
+     * @param from the first birthday, inclusive
+     * @param to   the last birthday, inclusive
+     * @return new account generator
+     */
+    public AccountGenerator withBirthdays(LocalDate from, LocalDate to) {
+        checkRange(from.toEpochDay(), to.toEpochDay());
+        return new AccountGenerator(seed, names, from.toEpochDay(), to.toEpochDay(), minCreationDate, maxCreationDate,
+                balanceScale, minUnscaledBalance, maxUnscaledBalance);
+    }
+
+    /**
+     * Returns a generator of accounts with balances uniformly distributed between provided values. Balances have the
+     * bigger scale of provided values.
+     *
+     * @param min the min balance, inclusive
+     * @param max the max balance, inclusive
+     * @return new account generator
+     */
+    public AccountGenerator withBalances(BigDecimal min, BigDecimal max) {
+        int scale = Math.max(min.scale(), max.scale());
+        long minUnscaled = min.setScale(scale).unscaledValue().longValueExact();
+        long maxUnscaled = max.setScale(scale).unscaledValue().longValueExact();
+        checkRange(minUnscaled, maxUnscaled);
+        return new AccountGenerator(seed, names, minBirthday, maxBirthday, minCreationDate, maxCreationDate,
+                scale, minUnscaled, maxUnscaled);
+    }
+
+    /**
+     * Generates an account with provided index.
+     *
+     * @param index an index of the account
+     * @return generated account
+     */
+    public Account generate(long index) {
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("Index must not be negative: %d", index));
+        }
+        SplittableRandom random = new SplittableRandom(mix(seed ^ mix(index)));
+        Sex sex = random.nextBoolean() ? Sex.MALE : Sex.FEMALE;
+        String firstName = names.pick(sex == Sex.MALE ? names.maleFirstNames : names.femaleFirstNames, random);
+        String lastName = names.pick(names.lastNames, random);
+        String domain = names.pick(names.emailDomains, random);
+
+        Account account = new Account();
+        account.setId(index + 1);
+        account.setFirstName(firstName);
+        account.setLastName(lastName);
+        account.setEmail((firstName + "." + lastName + (index + 1) + "@" + domain).toLowerCase(Locale.ROOT));
+        account.setBirthday(LocalDate.ofEpochDay(nextLong(random, minBirthday, maxBirthday)));
+        account.setSex(sex);
+        account.setCreationDate(LocalDate.ofEpochDay(nextLong(random, minCreationDate, maxCreationDate)));
+        account.setBalance(BigDecimal.valueOf(nextLong(random, minUnscaledBalance, maxUnscaledBalance), balanceScale));
+        return account;
+    }
+
+    /**
+     * Returns a lazy stream of accounts with indexes from 0 to count - 1. The stream can be made parallel, and its
+     * accounts do not depend on that.
+     *
+     * @param count a number of accounts
+     * @return a stream of generated accounts
+     */
+    public Stream<Account> stream(long count) {
+        return LongStream.range(0, count)
+                .mapToObj(this::generate);
+    }
+
+    /**
+     * Generates a list of accounts with indexes from 0 to size - 1 in parallel.
+     *
+     * @param size a number of accounts
+     * @return a list of generated accounts
+     */
+    public List<Account> generateList(int size) {
+        return stream(size)
+                .parallel()
+                .collect(toList());
+    }
+
+    private static long nextLong(SplittableRandom random, long min, long max) {
+        if (max < Long.MAX_VALUE) {
+            return random.nextLong(min, max + 1);
+        }
+        return min == Long.MIN_VALUE ? random.nextLong() : random.nextLong(min - 1, max) + 1;
+    }
+
+    /**
+     * Scrambles bits of the value, so seeds of accounts with consecutive indexes are not correlated.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private static void checkRange(long min, long max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Range start must not be after its end!");
+        }
+    }
+
+    /**
+     * Distinct names and email domains of persons produced by a seeded {@link Fairy}.
+     */
+    private static class NamePool {
+        private final String[] maleFirstNames;
+        private final String[] femaleFirstNames;
+        private final String[] lastNames;
+        private final String[] emailDomains;
+
+        private NamePool(long seed) {
+            Fairy fairy = Fairy.builder().withRandomSeed(seed).build();
+            Set<String> maleFirstNames = new LinkedHashSet<>();
+            Set<String> femaleFirstNames = new LinkedHashSet<>();
+            Set<String> lastNames = new LinkedHashSet<>();
+            Set<String> emailDomains = new LinkedHashSet<>();
+            for (int i = 0; i < SAMPLE_SIZE; i++) {
+                Person person = fairy.person();
+                (person.isMale() ? maleFirstNames : femaleFirstNames).add(person.getFirstName());
+                lastNames.add(person.getLastName());
+                emailDomains.add(person.getEmail().substring(person.getEmail().indexOf('@') + 1));
+            }
+            this.maleFirstNames = maleFirstNames.toArray(new String[0]);
+            this.femaleFirstNames = femaleFirstNames.toArray(new String[0]);
+            this.lastNames = lastNames.toArray(new String[0]);
+            this.emailDomains = emailDomains.toArray(new String[0]);
+        }
+
+        private String pick(String[] values, SplittableRandom random) {
+            return values[random.nextInt(values.length)];
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package ua.procamp.data;
+
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * {@link AccountSnapshot} is a read-only {@link List} of accounts stored in a compact binary file. The file is memory
+ * mapped, and every {@link #get(int)} decodes a new {@link Account} from its record, so opening a snapshot takes time
+ * proportional to the number of distinct names and email domains, not the number of accounts. Decoded accounts share
+ * name instances from the dictionary of the snapshot.
+ * <p>
+ * A snapshot file consists of a header, a dictionary of first names, last names and email domains, account records, a
+ * table of record offsets and a position of that table. Records store ids, epoch-day dates and unscaled balances as
+ * variable-length integers, and names and email domains as dictionary codes. A snapshot file must not be larger than
+ * 2 GB.
+ */
+public final class AccountSnapshot extends AbstractList<Account> implements RandomAccess {
+    private static final int MAGIC = 0x41435331;
+    private static final int VERSION = 1;
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_BIRTHDAY = 1 << 1;
+    private static final int HAS_CREATION_DATE = 1 << 2;
+    private static final int HAS_BALANCE = 1 << 3;
+    private static final int HAS_BIG_BALANCE = 1 << 4;
+    private static final int HAS_SEX = 1 << 5;
+    private static final int FEMALE = 1 << 6;
+
+    private static final int NULL_CODE = 0;
+    private static final int EMAIL_WITHOUT_DOMAIN_CODE = 1;
+    private static final int FIRST_DOMAIN_CODE = 2;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final String[] dictionary;
+    private final int offsetTable;
+
+    private AccountSnapshot(ByteBuffer buffer) {
+        if (buffer.limit() < 16 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not an account snapshot file!");
+        }
+        this.buffer = buffer;
+        size = buffer.getInt(8);
+        offsetTable = buffer.getInt(buffer.limit() - Integer.BYTES);
+        Cursor cursor = new Cursor(buffer, 12);
+        dictionary = new String[cursor.readVarInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = cursor.readString();
+        }
+    }
+
+    /**
+     * Opens a snapshot file written by {@link #write(Collection, Path)}.
+     *
+     * @param file a snapshot file
+     * @return a list of accounts backed by the file
+     */
+    public static AccountSnapshot open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("Snapshot file is too large: %s", file));
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new AccountSnapshot(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot open snapshot file: %s", file), e);
+        }
+    }
+
+    /**
+     * Writes provided accounts into a snapshot file. Iterates accounts twice: to build the dictionary and to write the
+     * records.
+     *
+     * @param accounts a collection of accounts
+     * @param file     a snapshot file, which is replaced if it exists
+     */
+    public static void write(Collection<Account> accounts, Path file) {
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        for (Account account : accounts) {
+            putCode(codes, account.getFirstName());
+            putCode(codes, account.getLastName());
+            putCode(codes, domain(account.getEmail()));
+        }
+        try (SnapshotOutput output = new SnapshotOutput(Files.newOutputStream(file))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(accounts.size());
+            output.writeVarInt(codes.size());
+            for (String value : codes.keySet()) {
+                output.writeString(value);
+            }
+            int[] offsets = new int[accounts.size()];
+            int count = 0;
+            for (Account account : accounts) {
+                offsets[count++] = output.position();
+                writeRecord(output, account, codes);
+            }
+            if (count != offsets.length) {
+                throw new ConcurrentModificationException();
+            }
+            int offsetTable = output.position();
+            for (int offset : offsets) {
+                output.writeInt(offset);
+            }
+            output.writeInt(offsetTable);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Cannot write snapshot file: %s", file), e);
+        }
+    }
+
+    @Override
+    public Account get(int index) {
+        Objects.checkIndex(index, size);
+        return readRecord(new Cursor(buffer, buffer.getInt(offsetTable + index * Integer.BYTES)));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static void writeRecord(SnapshotOutput output, Account account, Map<String, Integer> codes)
+            throws IOException {
+        BigDecimal balance = account.getBalance();
+        boolean bigBalance = balance != null && balance.unscaledValue().bitLength() >= Long.SIZE;
+        int flags = (account.getId() != null ? HAS_ID : 0)
+                | (account.getBirthday() != null ? HAS_BIRTHDAY : 0)
+                | (account.getCreationDate() != null ? HAS_CREATION_DATE : 0)
+                | (balance != null ? HAS_BALANCE : 0)
+                | (bigBalance ? HAS_BIG_BALANCE : 0)
+                | (account.getSex() != null ? HAS_SEX : 0)
+                | (account.getSex() == Sex.FEMALE ? FEMALE : 0);
+        output.write(flags);
+        if (account.getId() != null) {
+            output.writeVarLong(zigZag(account.getId()));
+        }
+        output.writeVarInt(account.getFirstName() == null ? NULL_CODE : codes.get(account.getFirstName()) + 1);
+        output.writeVarInt(account.getLastName() == null ? NULL_CODE : codes.get(account.getLastName()) + 1);
+        writeEmail(output, account.getEmail(), codes);
+        if (account.getBirthday() != null) {
+            output.writeVarLong(zigZag(account.getBirthday().toEpochDay()));
+        }
+        if (account.getCreationDate() != null) {
+            output.writeVarLong(zigZag(account.getCreationDate().toEpochDay()));
+        }
+        if (balance != null) {
+            output.writeVarInt(zigZag(balance.scale()));
+            if (bigBalance) {
+                byte[] unscaled = balance.unscaledValue().toByteArray();
+                output.writeVarInt(unscaled.length);
+                output.write(unscaled);
+            } else {
+                output.writeVarLong(zigZag(balance.unscaledValue().longValue()));
+            }
+        }
+    }
+
+    private static void writeEmail(SnapshotOutput output, String email, Map<String, Integer> codes)
+            throws IOException {
+        String domain = domain(email);
+        if (email == null) {
+            output.writeVarInt(NULL_CODE);
+        } else if (domain == null) {
+            output.writeVarInt(EMAIL_WITHOUT_DOMAIN_CODE);
+            output.writeString(email);
+        } else {
+            output.writeVarInt(codes.get(domain) + FIRST_DOMAIN_CODE);
+            output.writeString(email.substring(0, email.length() - domain.length() - 1));
+        }
+    }
+
+    private Account readRecord(Cursor cursor) {
+        int flags = cursor.readByte();
+        Account account = new Account();
+        account.setId((flags & HAS_ID) != 0 ? unZigZag(cursor.readVarLong()) : null);
+        account.setFirstName(readName(cursor));
+        account.setLastName(readName(cursor));
+        account.setEmail(readEmail(cursor));
+        account.setBirthday((flags & HAS_BIRTHDAY) != 0 ? LocalDate.ofEpochDay(unZigZag(cursor.readVarLong())) : null);
+        account.setSex((flags & HAS_SEX) != 0 ? ((flags & FEMALE) != 0 ? Sex.FEMALE : Sex.MALE) : null);
+        account.setCreationDate((flags & HAS_CREATION_DATE) != 0
+                ? LocalDate.ofEpochDay(unZigZag(cursor.readVarLong())) : null);
+        if ((flags & HAS_BALANCE) != 0) {
+            int scale = unZigZag(cursor.readVarInt());
+            if ((flags & HAS_BIG_BALANCE) != 0) {
+                account.setBalance(new BigDecimal(new BigInteger(cursor.readBytes(cursor.readVarInt())), scale));
+            } else {
+                account.setBalance(BigDecimal.valueOf(unZigZag(cursor.readVarLong()), scale));
+            }
+        } else {
+            account.setBalance(null);
+        }
+        return account;
+    }
+
+    private String readName(Cursor cursor) {
+        int code = cursor.readVarInt();
+        return code == NULL_CODE ? null : dictionary[code - 1];
+    }
+
+    private String readEmail(Cursor cursor) {
+        int code = cursor.readVarInt();
+        if (code == NULL_CODE) {
+            return null;
+        } else if (code == EMAIL_WITHOUT_DOMAIN_CODE) {
+            return cursor.readString();
+        }
+        return cursor.readString() + "@" + dictionary[code - FIRST_DOMAIN_CODE];
+    }
+
+    /**
+     * Returns a part of the email after its last '@', or null if there is no such part.
+     */
+    private static String domain(String email) {
+        int at = email == null ? -1 : email.lastIndexOf('@');
+        return at < 0 ? null : email.substring(at + 1);
+    }
+
+    private static void putCode(Map<String, Integer> codes, String value) {
+        if (value != null) {
+            codes.putIfAbsent(value, codes.size());
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads values starting from a position using absolute reads, so cursors over one buffer are independent.
+     */
+    private static class Cursor {
+        private final ByteBuffer buffer;
+        private int position;
+
+        private Cursor(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        private int readByte() {
+            return buffer.get(position++) & 0xFF;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b < 0x80) {
+                    return value;
+                }
+            }
+        }
+
+        private int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        private byte[] readBytes(int length) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(position++);
+            }
+            return bytes;
+        }
+
+        private String readString() {
+            return new String(readBytes(readVarInt()), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class SnapshotOutput extends BufferedOutputStream {
+        private int position;
+
+        private SnapshotOutput(OutputStream output) {
+            super(output, 1 << 16);
+        }
+
+        private int position() {
+            return position;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (position == Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Snapshot file is too large!");
+            }
+            super.write(b);
+            position++;
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+            if ((long) position + length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Snapshot file is too large!");
+            }
+            super.write(bytes, offset, length);
+            position += length;
+        }
+
+        private void writeInt(int value) throws IOException {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            write(bytes);
+        }
+    }
+}
@@ -40,5 +40,11 @@ public interface Accounts {
                 .mapToObj(i -> getAccount())
                 .collect(toList());
     }
+
+    static List<Account> getAccountList(int size, StringDictionary names){
+        return range(0, size)
+                .mapToObj(i -> names.internNames(getAccount()))
+                .collect(toList());
+    }
 }
 
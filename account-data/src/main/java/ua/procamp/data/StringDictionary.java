@@ -0,0 +1,50 @@
+package ua.procamp.data;
+
+import ua.procamp.model.Account;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link StringDictionary} keeps canonical instances of strings, so accounts that share a first or last name share one
+ * {@link String} instead of carrying equal copies. Canonical strings also cache their hash codes, so grouping accounts by
+ * names hashes every distinct name once. The dictionary is thread-safe.
+ */
+public final class StringDictionary {
+    private final ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a canonical instance of the string.
+     *
+     * @param value a string, may be null
+     * @return an equal string from the dictionary, or null if the string is null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = values.putIfAbsent(value, value);
+        return canonical == null ? value : canonical;
+    }
+
+    /**
+     * Replaces first and last names of the account with their canonical instances.
+     *
+     * @param account an account
+     * @return the same account
+     */
+    public Account internNames(Account account) {
+        account.setFirstName(intern(account.getFirstName()));
+        account.setLastName(intern(account.getLastName()));
+        return account;
+    }
+
+    /**
+     * Returns a number of distinct strings in the dictionary.
+     *
+     * @return dictionary size
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -2,6 +2,7 @@ package ua.procamp.model;
 
 import lombok.*;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -12,7 +13,9 @@ import java.time.LocalDateTime;
 @Setter
 @ToString
 @EqualsAndHashCode(of = "email")
-public class Account {
+public class Account implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private Long id;
     private String firstName;
     private String lastName;
@@ -0,0 +1,70 @@
+package ua.procamp.data;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.model.Account;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AccountGeneratorTest {
+
+    @Test
+    public void testSameSeedGeneratesSameAccounts() {
+        List<Account> accounts = AccountGenerator.create(42).stream(1_000).collect(toList());
+        List<Account> parallelAccounts = AccountGenerator.create(42).generateList(1_000);
+
+        assertEquals(accounts.size(), parallelAccounts.size());
+        for (int i = 0; i < accounts.size(); i++) {
+            assertEquals(accounts.get(i).toString(), parallelAccounts.get(i).toString());
+        }
+    }
+
+    @Test
+    public void testDifferentSeedsGenerateDifferentAccounts() {
+        List<Account> accounts = AccountGenerator.create(1).stream(100).collect(toList());
+        List<Account> otherAccounts = AccountGenerator.create(2).stream(100).collect(toList());
+
+        assertNotEquals(accounts, otherAccounts);
+    }
+
+    @Test
+    public void testGeneratedAccountsRespectSettings() {
+        LocalDate from = LocalDate.of(2018, 1, 1);
+        LocalDate to = LocalDate.of(2018, 12, 31);
+        AccountGenerator generator = AccountGenerator.create(7)
+                .withCreationDates(from, to)
+                .withBalances(new BigDecimal("-10.5"), new BigDecimal("10.25"));
+        Set<String> emails = new HashSet<>();
+        Set<Integer> creationMonths = new HashSet<>();
+
+        generator.stream(5_000).forEach(account -> {
+            assertFalse(account.getCreationDate().isBefore(from));
+            assertFalse(account.getCreationDate().isAfter(to));
+            assertEquals(2, account.getBalance().scale());
+            assertTrue(account.getBalance().compareTo(new BigDecimal("-10.5")) >= 0);
+            assertTrue(account.getBalance().compareTo(new BigDecimal("10.25")) <= 0);
+            assertNotNull(account.getFirstName());
+            assertNotNull(account.getLastName());
+            assertNotNull(account.getBirthday());
+            assertNotNull(account.getSex());
+            assertTrue(emails.add(account.getEmail()));
+            creationMonths.add(account.getCreationDate().getMonthValue());
+        });
+        assertEquals(12, creationMonths.size());
+        assertEquals(Long.valueOf(11), generator.generate(10).getId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDateRange() {
+        AccountGenerator.create(7).withCreationDates(LocalDate.of(2018, 1, 2), LocalDate.of(2018, 1, 1));
+    }
+}
@@ -0,0 +1,94 @@
+package ua.procamp.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.model.Account;
+import ua.procamp.model.Sex;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class AccountSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSnapshotKeepsAllFields() throws IOException {
+        List<Account> accounts = Arrays.asList(
+                new Account(1L, "Justin", "Butler", "justin.butler@gmail.com",
+                        LocalDate.parse("2003-04-17"), Sex.MALE, LocalDate.parse("2016-06-13"), BigDecimal.valueOf(172966)),
+                new Account(-2L, "Zo\u00eb", "Butler", "zoe\"@\"butler@gmail.com",
+                        LocalDate.parse("1930-01-19"), Sex.FEMALE, LocalDate.parse("2014-06-21"), new BigDecimal("-0.05")),
+                new Account(Long.MAX_VALUE, "Justin", "", "no-domain",
+                        LocalDate.parse("-0005-04-19"), Sex.MALE, LocalDate.parse("2011-03-10"),
+                        new BigDecimal("123456789012345678901234567890.12")),
+                new Account(null, null, null, null, null, null, null, null)
+        );
+        Path file = temporaryFolder.newFile().toPath();
+
+        AccountSnapshot.write(accounts, file);
+        AccountSnapshot snapshot = AccountSnapshot.open(file);
+
+        assertEquals(accounts.size(), snapshot.size());
+        for (int i = 0; i < accounts.size(); i++) {
+            assertSameAccount(accounts.get(i), snapshot.get(i));
+        }
+    }
+
+    @Test
+    public void testSnapshotIsCompact() throws IOException {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            accounts.add(new Account((long) i, "Name" + (i % 100), "Last" + (i % 300), "user" + i + "@gmail.com",
+                    LocalDate.ofEpochDay(i), Sex.MALE, LocalDate.ofEpochDay(15_000 + i), BigDecimal.valueOf(i * 31L)));
+        }
+        Path file = temporaryFolder.newFile().toPath();
+
+        AccountSnapshot.write(accounts, file);
+        AccountSnapshot snapshot = AccountSnapshot.open(file);
+
+        assertEquals(accounts, snapshot);
+        assertEquals(true, Files.size(file) < 40L * accounts.size());
+    }
+
+    @Test
+    public void testEmptySnapshot() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+
+        AccountSnapshot.write(new ArrayList<>(), file);
+
+        assertEquals(0, AccountSnapshot.open(file).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpenNotSnapshotFile() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, new byte[32]);
+
+        AccountSnapshot.open(file);
+    }
+
+    private static void assertSameAccount(Account expected, Account actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getFirstName(), actual.getFirstName());
+        assertEquals(expected.getLastName(), actual.getLastName());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getBirthday(), actual.getBirthday());
+        assertEquals(expected.getSex(), actual.getSex());
+        assertEquals(expected.getCreationDate(), actual.getCreationDate());
+        assertEquals(expected.getBalance(), actual.getBalance());
+    }
+}
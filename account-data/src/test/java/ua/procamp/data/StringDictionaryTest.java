@@ -0,0 +1,37 @@
+package ua.procamp.data;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import ua.procamp.model.Account;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class StringDictionaryTest {
+
+    @Test
+    public void testInternReturnsCanonicalInstance() {
+        StringDictionary dictionary = new StringDictionary();
+        String name = new String("Justin");
+        String sameName = new String("Justin");
+
+        assertSame(name, dictionary.intern(name));
+        assertSame(name, dictionary.intern(sameName));
+        assertNull(dictionary.intern(null));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    public void testInternNames() {
+        StringDictionary dictionary = new StringDictionary();
+        Account account = new Account();
+        account.setFirstName(new String("Butler"));
+        account.setLastName(new String("Butler"));
+
+        dictionary.internNames(account);
+
+        assertSame(account.getFirstName(), account.getLastName());
+        assertEquals(1, dictionary.size());
+    }
+}
@@ -0,0 +1,101 @@
+package ua.procamp;
+
+import java.nio.CharBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link CharHistogram} counts occurrences of every UTF-16 char in primitive arrays indexed by the char, so counting
+ * does not box characters or hash them. Spaces and line terminators are skipped, like {@link FileStats} always did.
+ * <p>
+ * Counters are split into pages of 256 chars, and a page is allocated when its first char is counted. A histogram of
+ * an ASCII text takes about 4 KB, so histograms of many files can be kept at once.
+ */
+final class CharHistogram {
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PAGE_COUNT = (Character.MAX_VALUE + 1) >>> PAGE_BITS;
+
+    private final long[][] pages = new long[PAGE_COUNT][];
+
+    static boolean isSkipped(char character) {
+        return character == ' ' || character == '\n' || character == '\r';
+    }
+
+    void add(char character) {
+        add(character, 1);
+    }
+
+    void add(char character, long count) {
+        if (!isSkipped(character)) {
+            page(character >>> PAGE_BITS)[character & PAGE_MASK] += count;
+        }
+    }
+
+    void addAll(CharBuffer characters) {
+        for (int i = characters.position(); i < characters.limit(); i++) {
+            add(characters.get(i));
+        }
+    }
+
+    void addAll(CharHistogram other) {
+        for (int pageIndex = 0; pageIndex < PAGE_COUNT; pageIndex++) {
+            long[] otherPage = other.pages[pageIndex];
+            if (otherPage != null) {
+                long[] page = page(pageIndex);
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    page[i] += otherPage[i];
+                }
+            }
+        }
+    }
+
+    CharHistogram copy() {
+        CharHistogram copy = new CharHistogram();
+        copy.addAll(this);
+        return copy;
+    }
+
+    long count(char character) {
+        long[] page = pages[character >>> PAGE_BITS];
+        return page == null ? 0 : page[character & PAGE_MASK];
+    }
+
+    Map<Character, Long> toMap() {
+        Map<Character, Long> result = new HashMap<>();
+        forEach((character, count) -> result.put(character, count));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Passes every counted char and its count to the consumer in ascending order of chars.
+     */
+    void forEach(CountConsumer consumer) {
+        for (int pageIndex = 0; pageIndex < PAGE_COUNT; pageIndex++) {
+            long[] page = pages[pageIndex];
+            if (page == null) {
+                continue;
+            }
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                if (page[i] > 0) {
+                    consumer.accept((char) ((pageIndex << PAGE_BITS) | i), page[i]);
+                }
+            }
+        }
+    }
+
+    private long[] page(int pageIndex) {
+        long[] page = pages[pageIndex];
+        if (page == null) {
+            page = new long[PAGE_SIZE];
+            pages[pageIndex] = page;
+        }
+        return page;
+    }
+
+    interface CountConsumer {
+        void accept(char character, long count);
+    }
+}
@@ -1,32 +1,48 @@
 package ua.procamp;
 
-import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Stream;
+import java.util.concurrent.ForkJoinPool;
 
+import static java.util.Comparator.naturalOrder;
 import static java.util.Objects.isNull;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.summingInt;
 
 /**
  * {@link FileStats} provides an API that allow to get character statistic based on text file. All whitespace characters
  * are ignored.
+ * <p>
+ * A UTF-8 file is memory-mapped and decoded in large chunks into a primitive histogram with a counter per char, so
+ * queries do not depend on the file size and a {@link Map} is only created by {@link #toMap()}. Since the statistic is
+ * immutable, the order of characters by popularity and cumulative counts of that order are computed once in the
+ * constructor, and ranking queries do not scan the histogram.
  */
 public class FileStats {
 
-    private final Map<Character, Integer> charsHistogram;
+    private final CharHistogram charsHistogram;
+    private final char[] charsByPopularity;
+    private final char[] charsByRarity;
+    private final long[] cumulativeCounts;
 
-    private FileStats(final Map<Character, Integer> charsHistogram) {
+    FileStats(final CharHistogram charsHistogram) {
         this.charsHistogram = charsHistogram;
+        Comparator<Character> byCount = Comparator.comparingLong(charsHistogram::count);
+        this.charsByPopularity = sortChars(charsHistogram, byCount.reversed().thenComparing(naturalOrder()));
+        this.charsByRarity = sortChars(charsHistogram, byCount.thenComparing(naturalOrder()));
+        this.cumulativeCounts = new long[charsByPopularity.length + 1];
+        for (int i = 0; i < charsByPopularity.length; i++) {
+            cumulativeCounts[i + 1] = cumulativeCounts[i] + charsHistogram.count(charsByPopularity[i]);
+        }
     }
+
     /**
      * Creates a new immutable {@link FileStats} objects using data from text file received as a parameter.
      *
@@ -34,33 +50,161 @@ public class FileStats {
      * @return new FileStats object created from text file
      */
     public static FileStats from(String fileName) {
-        Stream<String> stringStream = openFileLinesStream(getPathFromFileName(fileName));
-        Map<Character, Integer> histogram = stringStream
-                .flatMapToInt(String::chars)
-                .filter(c -> c != ' ')
-                .mapToObj(c -> (char) c)
-                .collect(groupingBy(identity(), summingInt(ch -> 1)));
-        return new FileStats(histogram);
+        return from(getPathFromFileName(fileName));
+    }
+
+    /**
+     * Creates a new immutable {@link FileStats} object from a UTF-8 text file. The file is memory-mapped, so it may be
+     * bigger than the heap.
+     *
+     * @param file a path of input text file
+     * @return new FileStats object created from text file
+     */
+    public static FileStats from(Path file) {
+        return new FileStats(new MappedFileScanner(MappedFileScanner.DEFAULT_REGION_SIZE).scan(file));
+    }
+
+    /**
+     * Creates a new immutable {@link FileStats} object from a UTF-8 text file, which is scanned in chunks on a dedicated
+     * {@link ForkJoinPool} with provided parallelism. Results are equal to the ones of {@link #from(Path)}.
+     *
+     * @param file        a path of input text file
+     * @param parallelism a number of worker threads
+     * @return new FileStats object created from text file
+     */
+    public static FileStats parallelFrom(Path file, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return parallelFrom(file, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Creates a new immutable {@link FileStats} object from a UTF-8 text file, which is scanned in chunks on provided
+     * {@link ForkJoinPool}. Results are equal to the ones of {@link #from(Path)}.
+     *
+     * @param file a path of input text file
+     * @param pool a pool that scans chunks of the file
+     * @return new FileStats object created from text file
+     */
+    public static FileStats parallelFrom(Path file, ForkJoinPool pool) {
+        return new FileStats(new ParallelFileScanner(pool, ParallelFileScanner.DEFAULT_CHUNK_SIZE,
+                MappedFileScanner.DEFAULT_REGION_SIZE).scan(file));
+    }
+
+    /**
+     * Creates a new immutable {@link MultiFileStats} object with statistic of every file and of all files together.
+     *
+     * @param files       paths of input text files
+     * @param parallelism a number of worker threads
+     * @return new MultiFileStats object created from text files
+     * @see MultiFileStats#from(Collection, int)
+     */
+    public static MultiFileStats fromAll(Collection<Path> files, int parallelism) {
+        return MultiFileStats.from(files, parallelism);
+    }
+
+    /**
+     * Creates a new immutable {@link MultiFileStats} object from files of a directory tree matching a glob pattern.
+     *
+     * @param directory   a root of the directory tree
+     * @param glob        a glob pattern of paths relative to the directory
+     * @param parallelism a number of worker threads
+     * @return new MultiFileStats object created from matched files
+     * @see MultiFileStats#from(Path, String, int)
+     */
+    public static MultiFileStats fromDirectory(Path directory, String glob, int parallelism) {
+        return MultiFileStats.from(directory, glob, parallelism);
     }
 
     /**
-     * Returns a number of occurrences of the particular character.
+     * Returns a number of occurrences of the particular character, or 0 if it did not appear in the text. A number
+     * greater than {@link Integer#MAX_VALUE} is saturated to {@link Integer#MAX_VALUE}; use
+     * {@link #getCharCountLong(char)} to get the exact number.
      *
      * @param character a specific character
      * @return a number that shows how many times this character appeared in a text file
      */
     public int getCharCount(char character) {
-        return charsHistogram.get(character);
+        return (int) Math.min(charsHistogram.count(character), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns an exact number of occurrences of the particular character, or 0 if it did not appear in the text.
+     *
+     * @param character a specific character
+     * @return a number that shows how many times this character appeared in a text file
+     */
+    public long getCharCountLong(char character) {
+        return charsHistogram.count(character);
     }
 
     /**
-     * Returns a character that appeared most often in the text.
+     * Returns a character that appeared most often in the text. If several characters appeared equally often, the
+     * smallest one is returned.
      *
      * @return the most frequently appeared character
      */
     public char getMostPopularCharacter() {
-        return charsHistogram.keySet().stream().max(Comparator.comparing(charsHistogram::get))
-                .orElseThrow(() -> new FileStatsException("Attempt to query empty file stats!"));
+        if (charsByPopularity.length == 0) {
+            throw new FileStatsException("Attempt to query empty file stats!");
+        }
+        return charsByPopularity[0];
+    }
+
+    /**
+     * Returns all characters that appeared in the text, from the most frequent one to the least frequent one. Characters
+     * that appeared equally often are ordered from the smallest one.
+     *
+     * @return characters ordered by popularity
+     */
+    public char[] getCharactersByPopularity() {
+        return charsByPopularity.clone();
+    }
+
+    /**
+     * Returns up to {@code k} characters that appeared most often in the text, in the order of
+     * {@link #getCharactersByPopularity()}.
+     *
+     * @param k a maximal number of characters
+     * @return the most frequently appeared characters
+     */
+    public char[] getMostPopularCharacters(int k) {
+        return Arrays.copyOf(charsByPopularity, limit(k));
+    }
+
+    /**
+     * Returns up to {@code k} characters that appeared least often in the text, from the least frequent one. Characters
+     * that appeared equally often are ordered from the smallest one.
+     *
+     * @param k a maximal number of characters
+     * @return the least frequently appeared characters
+     */
+    public char[] getLeastPopularCharacters(int k) {
+        return Arrays.copyOf(charsByRarity, limit(k));
+    }
+
+    /**
+     * Returns a number of all characters counted in the text.
+     *
+     * @return a total number of occurrences of all characters
+     */
+    public long getTotalCharCount() {
+        return cumulativeCounts[charsByPopularity.length];
+    }
+
+    /**
+     * Returns a share of all counted characters taken by the {@code k} most popular ones, from 0 to 1. The share of an
+     * empty text is 0.
+     *
+     * @param k a number of the most popular characters
+     * @return a cumulative frequency of the {@code k} most popular characters
+     */
+    public double getCumulativeFrequency(int k) {
+        long total = getTotalCharCount();
+        return total == 0 ? 0 : (double) cumulativeCounts[limit(k)] / total;
     }
 
     /**
@@ -70,7 +214,35 @@ public class FileStats {
      * @return {@code true} if this character has appeared in the text, and {@code false} otherwise
      */
     public boolean containsCharacter(char character) {
-        return charsHistogram.containsKey(character);
+        return charsHistogram.count(character) > 0;
+    }
+
+    /**
+     * Returns an unmodifiable {@link Map} where key is a character that appeared in the text, and value is a number of
+     * its occurrences. The map is created on every call.
+     *
+     * @return a map of character counts
+     */
+    public Map<Character, Long> toMap() {
+        return charsHistogram.toMap();
+    }
+
+    private int limit(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException(String.format("Number of characters must not be negative: %d", k));
+        }
+        return Math.min(k, charsByPopularity.length);
+    }
+
+    private static char[] sortChars(CharHistogram histogram, Comparator<Character> order) {
+        List<Character> characters = new ArrayList<>();
+        histogram.forEach((character, count) -> characters.add(character));
+        characters.sort(order);
+        char[] result = new char[characters.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = characters.get(i);
+        }
+        return result;
     }
 
     private static Path getPathFromFileName(String fileName) {
@@ -85,12 +257,4 @@ public class FileStats {
             throw new FileStatsException("Invalid file URL", e);
         }
     }
-
-    private static Stream<String> openFileLinesStream(Path filePath) {
-        try {
-            return Files.lines(filePath);
-        } catch (IOException e) {
-            throw new FileStatsException("Cannot create stream of file lines!", e);
-        }
-    }
 }
@@ -0,0 +1,203 @@
+package ua.procamp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * {@link IncrementalFileStats} keeps character statistic of a growing UTF-8 file, e.g. a log file. Every
+ * {@link #update()} reads only bytes appended since the previous one.
+ * <p>
+ * It remembers the offset of processed bytes and a fingerprint of the processed prefix: a CRC32 of its first and last
+ * 4 KB. If the file became shorter than the offset, or the fingerprint does not match, the file is considered
+ * truncated or rotated, and it is scanned again from the start. A trailing incomplete UTF-8 sequence is left for the
+ * next update, since its writer may not have finished it yet.
+ * <p>
+ * The state can be kept in a small sidecar file, so a restarted process continues from the saved offset. The sidecar
+ * file is replaced atomically after every update that reads new bytes. It holds the offset, the fingerprint and a
+ * count of every counted char. Instances are not thread-safe.
+ */
+public class IncrementalFileStats {
+    private static final int FINGERPRINT_WINDOW = 1 << 12;
+    private static final int STATE_MAGIC = 0x46535453;
+    private static final int STATE_VERSION = 1;
+
+    private final Path file;
+    private final Path stateFile;
+    private final MappedFileScanner scanner = new MappedFileScanner(MappedFileScanner.DEFAULT_REGION_SIZE);
+    private final ByteBuffer window = ByteBuffer.allocate(FINGERPRINT_WINDOW);
+    private CharHistogram histogram = new CharHistogram();
+    private long offset;
+    private long fingerprint;
+
+    private IncrementalFileStats(Path file, Path stateFile) {
+        this.file = file;
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Creates a new {@link IncrementalFileStats} of a file, which keeps its state in memory only. Nothing is read until
+     * the first {@link #update()}.
+     *
+     * @param file a path of input text file
+     * @return new IncrementalFileStats of the file
+     */
+    public static IncrementalFileStats of(Path file) {
+        return new IncrementalFileStats(file, null);
+    }
+
+    /**
+     * Creates a new {@link IncrementalFileStats} of a file, which keeps its state in a sidecar file. If the sidecar file
+     * exists, the state is loaded from it, and the next {@link #update()} continues from the saved offset.
+     *
+     * @param file      a path of input text file
+     * @param stateFile a path of the sidecar file
+     * @return new IncrementalFileStats of the file
+     */
+    public static IncrementalFileStats of(Path file, Path stateFile) {
+        IncrementalFileStats stats = new IncrementalFileStats(file, stateFile);
+        if (Files.exists(stateFile)) {
+            stats.loadState();
+        }
+        return stats;
+    }
+
+    /**
+     * Reads bytes appended to the file since the previous update, or the whole file if it was truncated or rotated,
+     * and returns statistic of the whole file.
+     *
+     * @return new FileStats object of the file read so far
+     */
+    public FileStats update() {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < offset || fingerprint(channel, offset) != fingerprint) {
+                histogram = new CharHistogram();
+                offset = 0;
+                fingerprint = 0;
+            }
+            long end = completeSequencesEnd(channel, offset, size);
+            if (end > offset) {
+                CharHistogram appended = new CharHistogram();
+                scanner.scan(channel, offset, end, appended);
+                histogram.addAll(appended);
+                offset = end;
+                fingerprint = fingerprint(channel, offset);
+                if (stateFile != null) {
+                    saveState();
+                }
+            }
+        } catch (IOException e) {
+            throw new FileStatsException(String.format("Cannot read file %s", file), e);
+        }
+        return new FileStats(histogram.copy());
+    }
+
+    /**
+     * Returns a number of bytes of the file that were read.
+     *
+     * @return the offset the next update reads from
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    private long fingerprint(FileChannel channel, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        long headEnd = Math.min(length, FINGERPRINT_WINDOW);
+        updateCrc(crc, channel, 0, headEnd);
+        updateCrc(crc, channel, Math.max(headEnd, length - FINGERPRINT_WINDOW), length);
+        return crc.getValue();
+    }
+
+    private void updateCrc(CRC32 crc, FileChannel channel, long start, long end) throws IOException {
+        read(channel, start, (int) (end - start));
+        crc.update(window);
+    }
+
+    /**
+     * Returns {@code end}, or the start of a UTF-8 sequence which is cut by {@code end}.
+     */
+    private long completeSequencesEnd(FileChannel channel, long start, long end) throws IOException {
+        long from = Math.max(start, end - 3);
+        read(channel, from, (int) (end - from));
+        for (int i = window.limit() - 1; i >= 0; i--) {
+            int b = window.get(i) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                return i + sequenceLength(b) > window.limit() ? from + i : end;
+            }
+        }
+        return end;
+    }
+
+    private static int sequenceLength(int leadByte) {
+        if ((leadByte & 0xE0) == 0xC0) {
+            return 2;
+        } else if ((leadByte & 0xF0) == 0xE0) {
+            return 3;
+        } else if ((leadByte & 0xF8) == 0xF0) {
+            return 4;
+        }
+        return 1;
+    }
+
+    private void read(FileChannel channel, long start, int length) throws IOException {
+        window.clear().limit(length);
+        while (window.hasRemaining()) {
+            if (channel.read(window, start + window.position()) < 0) {
+                throw new IOException(String.format("File %s was truncated while reading", file));
+            }
+        }
+        window.flip();
+    }
+
+    private void saveState() throws IOException {
+        Path tempFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(STATE_MAGIC);
+            out.writeInt(STATE_VERSION);
+            out.writeLong(offset);
+            out.writeLong(fingerprint);
+            histogram.forEach((character, count) -> {
+                try {
+                    out.writeChar(character);
+                    out.writeLong(count);
+                } catch (IOException e) {
+                    throw new FileStatsException(String.format("Cannot write state file %s", stateFile), e);
+                }
+            });
+            out.writeChar(0);
+            out.writeLong(0);
+        }
+        Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void loadState() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            if (in.readInt() != STATE_MAGIC || in.readInt() != STATE_VERSION) {
+                throw new FileStatsException(String.format("Invalid state file %s", stateFile));
+            }
+            offset = in.readLong();
+            fingerprint = in.readLong();
+            while (true) {
+                char character = in.readChar();
+                long count = in.readLong();
+                if (count == 0) {
+                    break;
+                }
+                histogram.add(character, count);
+            }
+        } catch (IOException e) {
+            throw new FileStatsException(String.format("Cannot read state file %s", stateFile), e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ua.procamp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link MappedFileScanner} counts chars of a UTF-8 file into a {@link CharHistogram}. The file is memory-mapped with
+ * {@link FileChannel} in regions of up to 64 MB, so files of any size are read without copying them into the heap.
+ * <p>
+ * ASCII bytes never occur inside multibyte UTF-8 sequences, so they are counted directly as chars. Only runs of
+ * non-ASCII bytes go through a {@link CharsetDecoder}, which rejects malformed input like {@code Files.lines} does.
+ * A sequence cut by the end of a region is decoded from the start of the next region.
+ * <p>
+ * Ranges of up to 64 KB that fit into one region are read into a heap buffer instead. A scanner is not thread-safe,
+ * and reuses its buffers for every file it scans.
+ */
+final class MappedFileScanner {
+    static final int DEFAULT_REGION_SIZE = 1 << 26;
+    private static final int CHAR_BUFFER_SIZE = 1 << 13;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final int regionSize;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private ByteBuffer readBuffer;
+
+    MappedFileScanner(int regionSize) {
+        if (regionSize < 4) {
+            throw new IllegalArgumentException(String.format("Region size must be at least 4 bytes: %d", regionSize));
+        }
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * Counts chars of the whole file.
+     *
+     * @param file a UTF-8 file
+     * @return a histogram of chars of the file
+     */
+    CharHistogram scan(Path file) {
+        CharHistogram histogram = new CharHistogram();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            scan(channel, 0, channel.size(), histogram);
+        } catch (IOException e) {
+            throw new FileStatsException(String.format("Cannot read file %s", file), e);
+        }
+        return histogram;
+    }
+
+    /**
+     * Counts chars of bytes from {@code start} inclusive to {@code end} exclusive, which must be boundaries of UTF-8
+     * sequences.
+     */
+    void scan(FileChannel channel, long start, long end, CharHistogram histogram) throws IOException {
+        if (end - start <= Math.min(regionSize, READ_BUFFER_SIZE)) {
+            scan(read(channel, start, end), true, histogram);
+            return;
+        }
+        long position = start;
+        while (position < end) {
+            int size = (int) Math.min(regionSize, end - position);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            position += scan(region, position + size == end, histogram);
+        }
+    }
+
+    /**
+     * Reads a range that fits into one region into a buffer reused between calls, because mapping a small range costs
+     * more than copying it.
+     */
+    private ByteBuffer read(FileChannel channel, long start, long end) throws IOException {
+        if (readBuffer == null) {
+            readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        }
+        readBuffer.clear().limit((int) (end - start));
+        while (readBuffer.hasRemaining() && channel.read(readBuffer, start + readBuffer.position()) >= 0) {
+            continue;
+        }
+        return readBuffer.flip();
+    }
+
+    /**
+     * Counts chars of the region and returns a number of consumed bytes, which is less than the region size if the
+     * region ends with an incomplete sequence.
+     */
+    private int scan(ByteBuffer region, boolean last, CharHistogram histogram) throws CharacterCodingException {
+        int limit = region.limit();
+        int i = 0;
+        while (i < limit) {
+            byte b = region.get(i);
+            if (b >= 0) {
+                histogram.add((char) b);
+                i++;
+                continue;
+            }
+            int runEnd = i + 1;
+            while (runEnd < limit && region.get(runEnd) < 0) {
+                runEnd++;
+            }
+            int consumed = decode(region.duplicate().position(i).limit(runEnd), runEnd < limit || last, histogram);
+            if (i + consumed < runEnd) {
+                return i + consumed;
+            }
+            i = runEnd;
+        }
+        return limit;
+    }
+
+    private int decode(ByteBuffer bytes, boolean endOfInput, CharHistogram histogram)
+            throws CharacterCodingException {
+        int start = bytes.position();
+        decoder.reset();
+        while (true) {
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            chars.flip();
+            histogram.addAll(chars);
+            chars.clear();
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isUnderflow()) {
+                return bytes.position() - start;
+            }
+        }
+    }
+}
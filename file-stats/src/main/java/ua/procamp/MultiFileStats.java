@@ -0,0 +1,200 @@
+package ua.procamp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link MultiFileStats} provides character statistic of many text files: a {@link FileStats} of every file and an
+ * aggregate {@link FileStats} of all of them, together with the throughput of the scan.
+ * <p>
+ * Files are scanned by a fixed number of workers. Every worker takes the next file from a shared counter, scans it with
+ * its own {@link MappedFileScanner}, so buffers are reused across files, and adds it to its own aggregate histogram.
+ * Aggregates of workers are merged when all files are scanned.
+ */
+public class MultiFileStats {
+
+    private final Map<Path, FileStats> fileStats;
+    private final FileStats totalStats;
+    private final long byteCount;
+    private final Duration elapsed;
+
+    private MultiFileStats(Map<Path, FileStats> fileStats, FileStats totalStats, long byteCount, Duration elapsed) {
+        this.fileStats = fileStats;
+        this.totalStats = totalStats;
+        this.byteCount = byteCount;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Creates a new immutable {@link MultiFileStats} object from UTF-8 text files, which are scanned by provided number
+     * of worker threads.
+     *
+     * @param files       paths of input text files
+     * @param parallelism a number of worker threads
+     * @return new MultiFileStats object created from text files
+     */
+    public static MultiFileStats from(Collection<Path> files, int parallelism) {
+        return scan(List.copyOf(files), parallelism, System.nanoTime());
+    }
+
+    /**
+     * Creates a new immutable {@link MultiFileStats} object from regular files of a directory tree, which paths
+     * relative to the directory match provided glob pattern, e.g. {@code "**.log"}. Files are scanned by provided number
+     * of worker threads.
+     *
+     * @param directory   a root of the directory tree
+     * @param glob        a glob pattern of {@link java.nio.file.FileSystem#getPathMatcher(String)}
+     * @param parallelism a number of worker threads
+     * @return new MultiFileStats object created from matched files
+     */
+    public static MultiFileStats from(Path directory, String glob, int parallelism) {
+        long start = System.nanoTime();
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(directory.relativize(path)))
+                    .collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            throw new FileStatsException(String.format("Cannot walk directory %s", directory), e);
+        }
+        return scan(files, parallelism, start);
+    }
+
+    private static MultiFileStats scan(List<Path> paths, int parallelism, long start) {
+        CharHistogram[] histograms = new CharHistogram[paths.size()];
+        long[] sizes = new long[paths.size()];
+        AtomicInteger nextFile = new AtomicInteger();
+        CharHistogram total = new CharHistogram();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<CharHistogram>> workers = new ArrayList<>();
+            for (int i = 0; i < Math.min(parallelism, paths.size()); i++) {
+                workers.add(pool.submit(() -> scanFiles(paths, histograms, sizes, nextFile)));
+            }
+            workers.forEach(worker -> total.addAll(worker.join()));
+        } finally {
+            pool.shutdown();
+        }
+
+        Map<Path, FileStats> fileStats = new LinkedHashMap<>();
+        long byteCount = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            fileStats.put(paths.get(i), new FileStats(histograms[i]));
+            byteCount += sizes[i];
+        }
+        return new MultiFileStats(Collections.unmodifiableMap(fileStats), new FileStats(total), byteCount,
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static CharHistogram scanFiles(List<Path> paths, CharHistogram[] histograms, long[] sizes,
+                                           AtomicInteger nextFile) {
+        MappedFileScanner scanner = new MappedFileScanner(MappedFileScanner.DEFAULT_REGION_SIZE);
+        CharHistogram total = new CharHistogram();
+        for (int i = nextFile.getAndIncrement(); i < paths.size(); i = nextFile.getAndIncrement()) {
+            Path file = paths.get(i);
+            CharHistogram histogram = new CharHistogram();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                sizes[i] = channel.size();
+                scanner.scan(channel, 0, sizes[i], histogram);
+            } catch (IOException e) {
+                throw new FileStatsException(String.format("Cannot read file %s", file), e);
+            }
+            histograms[i] = histogram;
+            total.addAll(histogram);
+        }
+        return total;
+    }
+
+    /**
+     * Returns an unmodifiable {@link Map} where key is a scanned file, and value is its {@link FileStats}. Files are in
+     * the order they were provided or found.
+     *
+     * @return statistic of every file
+     */
+    public Map<Path, FileStats> getFileStats() {
+        return fileStats;
+    }
+
+    /**
+     * Returns character statistic of all files together.
+     *
+     * @return aggregate statistic of all files
+     */
+    public FileStats getTotalStats() {
+        return totalStats;
+    }
+
+    /**
+     * Returns a number of scanned files, including empty ones.
+     *
+     * @return a number of scanned files
+     */
+    public int getFileCount() {
+        return fileStats.size();
+    }
+
+    /**
+     * Returns a total size of scanned files in bytes, as they are stored on disk before decoding.
+     *
+     * @return a sum of sizes of scanned files
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Returns the time the scan took, including the walk of a directory tree.
+     *
+     * @return elapsed time of the scan
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Returns a number of scanned files per second of {@link #getElapsed() elapsed time}. For stats created from a
+     * directory the time includes the walk of the directory tree, so the figure is lower than the throughput of scanning
+     * alone.
+     *
+     * @return files scanned per second
+     */
+    public double getFilesPerSecond() {
+        return perSecond(getFileCount());
+    }
+
+    /**
+     * Returns a number of scanned bytes per second of {@link #getElapsed() elapsed time}. For stats created from a
+     * directory the time includes the walk of the directory tree, so the figure is lower than the throughput of scanning
+     * alone.
+     *
+     * @return bytes scanned per second
+     */
+    public double getBytesPerSecond() {
+        return perSecond(byteCount);
+    }
+
+    private double perSecond(long amount) {
+        return amount * 1e9 / Math.max(1, elapsed.toNanos());
+    }
+}
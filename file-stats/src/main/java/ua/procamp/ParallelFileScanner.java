@@ -0,0 +1,118 @@
+package ua.procamp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * {@link ParallelFileScanner} counts chars of a UTF-8 file on a {@link ForkJoinPool}. The file is split into chunks
+ * of about {@code chunkSize} bytes. Every chunk boundary is moved forward past UTF-8 continuation bytes, so no
+ * sequence is cut. Every chunk is counted into its own {@link CharHistogram} by a {@link MappedFileScanner}, and
+ * histograms are merged while tasks are joined. So the result does not depend on the chunk size.
+ */
+final class ParallelFileScanner {
+    static final int DEFAULT_CHUNK_SIZE = 1 << 24;
+    private static final int MAX_CONTINUATION_BYTES = 3;
+
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+    private final int regionSize;
+
+    ParallelFileScanner(ForkJoinPool pool, long chunkSize, int regionSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException(String.format("Chunk size must be positive: %d", chunkSize));
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * Counts chars of the whole file.
+     *
+     * @param file a UTF-8 file
+     * @return a histogram of chars of the file
+     */
+    CharHistogram scan(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] boundaries = chunkBoundaries(channel);
+            return pool.invoke(new ChunksTask(file, channel, boundaries, 0, boundaries.length - 1));
+        } catch (IOException e) {
+            throw new FileStatsException(String.format("Cannot read file %s", file), e);
+        }
+    }
+
+    private long[] chunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int chunks = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        long[] boundaries = new long[chunks + 1];
+        ByteBuffer bytes = ByteBuffer.allocate(MAX_CONTINUATION_BYTES);
+        for (int i = 1; i < chunks; i++) {
+            boundaries[i] = Math.max(boundaries[i - 1], alignToSequenceStart(channel, i * chunkSize, size, bytes));
+        }
+        boundaries[chunks] = size;
+        return boundaries;
+    }
+
+    /**
+     * Returns the first position from {@code position} which is not a UTF-8 continuation byte. A longer run of
+     * continuation bytes is malformed and is rejected by the decoder of either chunk.
+     */
+    private static long alignToSequenceStart(FileChannel channel, long position, long size, ByteBuffer bytes)
+            throws IOException {
+        bytes.clear();
+        int read = 0;
+        while (read >= 0 && bytes.hasRemaining()) {
+            read = channel.read(bytes, position + bytes.position());
+        }
+        for (int i = 0; i < bytes.position(); i++) {
+            if ((bytes.get(i) & 0xC0) != 0x80) {
+                return position + i;
+            }
+        }
+        return Math.min(position + bytes.position(), size);
+    }
+
+    private final class ChunksTask extends RecursiveTask<CharHistogram> {
+        private final Path file;
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+        private ChunksTask(Path file, FileChannel channel, long[] boundaries, int from, int to) {
+            this.file = file;
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CharHistogram compute() {
+            if (to - from == 1) {
+                return scanChunk();
+            }
+            int middle = (from + to) >>> 1;
+            ChunksTask right = new ChunksTask(file, channel, boundaries, middle, to);
+            right.fork();
+            CharHistogram histogram = new ChunksTask(file, channel, boundaries, from, middle).compute();
+            histogram.addAll(right.join());
+            return histogram;
+        }
+
+        private CharHistogram scanChunk() {
+            CharHistogram histogram = new CharHistogram();
+            try {
+                new MappedFileScanner(regionSize).scan(channel, boundaries[from], boundaries[to], histogram);
+            } catch (IOException e) {
+                throw new FileStatsException(String.format("Cannot read file %s", file), e);
+            }
+            return histogram;
+        }
+    }
+}
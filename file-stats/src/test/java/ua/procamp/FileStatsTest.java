@@ -1,9 +1,18 @@
 package ua.procamp;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -11,6 +20,8 @@ import static org.junit.Assert.assertTrue;
 @RunWith(JUnit4.class)
 public class FileStatsTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
 
     @Test
     public void testCreateFileStatsFromExistingFile() {
@@ -63,4 +74,77 @@ public class FileStatsTest {
         assertTrue(springArticleContainsExistingCharacter);
         assertFalse(springArticleContainsWhitespace);
     }
+
+    @Test
+    public void testStatsFromPathSkipSpacesAndLineTerminators() throws IOException {
+        Path file = folder.newFile("stats.txt").toPath();
+        Files.write(file, "a\tb b\r\n\u0444\u0444\u0444 \ud83d\ude00\n".getBytes(StandardCharsets.UTF_8));
+
+        FileStats fileStats = FileStats.from(file);
+
+        assertEquals(Map.of('a', 1L, '\t', 1L, 'b', 2L, '\u0444', 3L, '\ud83d', 1L, '\ude00', 1L), fileStats.toMap());
+        assertEquals('\u0444', fileStats.getMostPopularCharacter());
+        assertEquals(0, fileStats.getCharCount('c'));
+        assertFalse(fileStats.containsCharacter('\n'));
+    }
+
+    @Test(expected = FileStatsException.class)
+    public void testMalformedFileIsRejected() throws IOException {
+        Path file = folder.newFile("malformed.txt").toPath();
+        Files.write(file, new byte[]{'a', (byte) 0xC3, 'b'});
+
+        FileStats.from(file);
+    }
+
+    @Test(expected = FileStatsException.class)
+    public void testGetMostPopularCharacterOfEmptyFile() throws IOException {
+        FileStats.from(folder.newFile("empty.txt").toPath()).getMostPopularCharacter();
+    }
+
+    @Test
+    public void testRankingQueries() throws IOException {
+        Path file = folder.newFile("ranking.txt").toPath();
+        Files.write(file, "cccc bbb\naa dd e".getBytes(StandardCharsets.UTF_8));
+
+        FileStats fileStats = FileStats.from(file);
+
+        assertArrayEquals(new char[]{'c', 'b', 'a', 'd', 'e'}, fileStats.getCharactersByPopularity());
+        assertArrayEquals(new char[]{'c', 'b'}, fileStats.getMostPopularCharacters(2));
+        assertArrayEquals(new char[]{'e', 'a', 'd'}, fileStats.getLeastPopularCharacters(3));
+        assertArrayEquals(new char[]{'e', 'a', 'd', 'b', 'c'}, fileStats.getLeastPopularCharacters(10));
+        assertEquals(12, fileStats.getTotalCharCount());
+        assertEquals(0.0, fileStats.getCumulativeFrequency(0), 0.0);
+        assertEquals(7.0 / 12, fileStats.getCumulativeFrequency(2), 1e-9);
+        assertEquals(1.0, fileStats.getCumulativeFrequency(100), 0.0);
+    }
+
+    @Test
+    public void testRankingQueriesOfEmptyFile() throws IOException {
+        FileStats fileStats = FileStats.from(folder.newFile("empty-ranking.txt").toPath());
+
+        assertArrayEquals(new char[0], fileStats.getMostPopularCharacters(3));
+        assertEquals(0, fileStats.getTotalCharCount());
+        assertEquals(0.0, fileStats.getCumulativeFrequency(3), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeNumberOfCharactersIsRejected() {
+        FileStats.from("sotl.txt").getMostPopularCharacters(-1);
+    }
+
+    @Test
+    public void testCharCountGreaterThanIntegerMaxValue() {
+        long count = Integer.MAX_VALUE + 10L;
+        CharHistogram histogram = new CharHistogram();
+        histogram.add('a', count);
+        histogram.add('b', 3);
+
+        FileStats fileStats = new FileStats(histogram);
+
+        assertEquals(count, fileStats.getCharCountLong('a'));
+        assertEquals(Integer.MAX_VALUE, fileStats.getCharCount('a'));
+        assertEquals(3, fileStats.getCharCountLong('b'));
+        assertEquals(3, fileStats.getCharCount('b'));
+        assertEquals(count + 3, fileStats.getTotalCharCount());
+    }
 }
@@ -0,0 +1,87 @@
+package ua.procamp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class IncrementalFileStatsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testUpdateReadsOnlyAppendedBytes() throws IOException {
+        Path file = folder.newFile("app.log").toPath();
+        IncrementalFileStats stats = IncrementalFileStats.of(file);
+        append(file, "ab\n");
+        assertEquals(Map.of('a', 1L, 'b', 1L), stats.update().toMap());
+
+        byte[] euro = "\u20ac".getBytes(StandardCharsets.UTF_8);
+        append(file, "b".getBytes(StandardCharsets.UTF_8));
+        append(file, Arrays.copyOf(euro, 2));
+        assertEquals(Map.of('a', 1L, 'b', 2L), stats.update().toMap());
+        assertEquals(4, stats.getOffset());
+
+        append(file, Arrays.copyOfRange(euro, 2, 3));
+        assertEquals(Map.of('a', 1L, 'b', 2L, '\u20ac', 1L), stats.update().toMap());
+        assertEquals(7, stats.getOffset());
+    }
+
+    @Test
+    public void testTruncatedOrRotatedFileIsScannedAgain() throws IOException {
+        Path file = folder.newFile("app.log").toPath();
+        IncrementalFileStats stats = IncrementalFileStats.of(file);
+        append(file, "aaaa");
+        stats.update();
+
+        Files.write(file, "bb".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Map.of('b', 2L), stats.update().toMap());
+
+        Files.write(file, "ccccc".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Map.of('c', 5L), stats.update().toMap());
+    }
+
+    @Test
+    public void testStateIsRestoredFromSidecarFile() throws IOException {
+        Path file = folder.newFile("app.log").toPath();
+        Path stateFile = folder.getRoot().toPath().resolve("app.log.stats");
+        append(file, "x\u0444y");
+        IncrementalFileStats.of(file, stateFile).update();
+
+        IncrementalFileStats restored = IncrementalFileStats.of(file, stateFile);
+        assertEquals(4, restored.getOffset());
+
+        append(file, "z");
+        assertEquals(Map.of('x', 1L, '\u0444', 1L, 'y', 1L, 'z', 1L), restored.update().toMap());
+        assertEquals(5, IncrementalFileStats.of(file, stateFile).getOffset());
+    }
+
+    @Test(expected = FileStatsException.class)
+    public void testInvalidSidecarFileIsRejected() throws IOException {
+        Path stateFile = folder.newFile("app.log.stats").toPath();
+        Files.write(stateFile, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        IncrementalFileStats.of(folder.newFile("app.log").toPath(), stateFile);
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        append(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(Path file, byte[] bytes) throws IOException {
+        Files.write(file, bytes, StandardOpenOption.APPEND);
+    }
+}
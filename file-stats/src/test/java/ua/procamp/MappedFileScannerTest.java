@@ -0,0 +1,52 @@
+package ua.procamp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class MappedFileScannerTest {
+    private static final String ALPHABET = "ab \r\n\t\u00e9\u0444\u20ac\ud83d\ude00";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSequencesCutByRegionsAreCounted() throws IOException {
+        String text = randomText(new Random(21), 5_000);
+        Path file = folder.newFile().toPath();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        Map<Character, Long> expected = new HashMap<>();
+        text.chars()
+                .filter(c -> c != ' ' && c != '\r' && c != '\n')
+                .forEach(c -> expected.merge((char) c, 1L, Long::sum));
+
+        for (int regionSize : new int[]{4, 5, 7, 64, 1000, MappedFileScanner.DEFAULT_REGION_SIZE}) {
+            assertEquals(expected, new MappedFileScanner(regionSize).scan(file).toMap());
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            int i = random.nextInt(ALPHABET.length() - 1);
+            text.append(ALPHABET.charAt(i));
+            if (Character.isHighSurrogate(ALPHABET.charAt(i))) {
+                text.append(ALPHABET.charAt(i + 1));
+            }
+        }
+        return text.toString();
+    }
+}
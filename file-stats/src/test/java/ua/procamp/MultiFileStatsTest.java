@@ -0,0 +1,72 @@
+package ua.procamp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class MultiFileStatsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStatsOfDirectoryTree() throws IOException {
+        Path root = folder.getRoot().toPath();
+        Path first = write(root.resolve("a.log"), "aab");
+        Path second = write(root.resolve("nested/deeper/b.log"), "b\u0444 c\n");
+        write(root.resolve("nested/c.txt"), "zzzz");
+
+        MultiFileStats stats = FileStats.fromDirectory(root, "**.log", 3);
+
+        assertEquals(2, stats.getFileCount());
+        assertEquals(Map.of('a', 2L, 'b', 1L), stats.getFileStats().get(first).toMap());
+        assertEquals(Map.of('b', 1L, '\u0444', 1L, 'c', 1L), stats.getFileStats().get(second).toMap());
+        assertEquals(Map.of('a', 2L, 'b', 2L, '\u0444', 1L, 'c', 1L), stats.getTotalStats().toMap());
+        assertEquals(3 + 6, stats.getByteCount());
+        assertTrue(stats.getFilesPerSecond() > 0);
+        assertTrue(stats.getBytesPerSecond() > 0);
+    }
+
+    @Test
+    public void testStatsOfManyFilesMatchSingleFileStats() throws IOException {
+        Path root = folder.getRoot().toPath();
+        StringBuilder all = new StringBuilder();
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String text = "file " + i + " \u20ac".repeat(i % 7);
+            all.append(text);
+            files.add(write(root.resolve(i + ".txt"), text));
+        }
+        Path single = write(folder.newFolder().toPath().resolve("all.txt"), all.toString());
+
+        MultiFileStats stats = FileStats.fromAll(files, 4);
+
+        assertEquals(files, List.copyOf(stats.getFileStats().keySet()));
+        assertEquals(FileStats.from(single).toMap(), stats.getTotalStats().toMap());
+        assertEquals(FileStats.from(files.get(13)).toMap(), stats.getFileStats().get(files.get(13)).toMap());
+    }
+
+    @Test(expected = FileStatsException.class)
+    public void testMissingFileIsRejected() {
+        FileStats.fromAll(List.of(folder.getRoot().toPath().resolve("missing.txt")), 2);
+    }
+
+    private static Path write(Path file, String text) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+}
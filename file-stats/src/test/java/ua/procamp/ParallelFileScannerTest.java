@@ -0,0 +1,74 @@
+package ua.procamp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class ParallelFileScannerTest {
+    private static final String ALPHABET = "ab \r\n\t\u00e9\u0444\u20ac\ud83d\ude00";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testResultDoesNotDependOnChunkSize() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, randomText(new Random(22), 5_000).getBytes(StandardCharsets.UTF_8));
+        Map<Character, Long> expected = new MappedFileScanner(MappedFileScanner.DEFAULT_REGION_SIZE).scan(file).toMap();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long chunkSize : new long[]{1, 2, 3, 5, 7, 64, 1000, ParallelFileScanner.DEFAULT_CHUNK_SIZE}) {
+                assertEquals(expected, new ParallelFileScanner(pool, chunkSize, 5).scan(file).toMap());
+                assertEquals(expected, new ParallelFileScanner(pool, chunkSize,
+                        MappedFileScanner.DEFAULT_REGION_SIZE).scan(file).toMap());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        Path file = folder.newFile().toPath();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertEquals(Map.of(), new ParallelFileScanner(pool, 7, 5).scan(file).toMap());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = FileStatsException.class)
+    public void testMalformedFileIsRejected() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[]{'a', 'b', (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 'c'});
+
+        FileStats.parallelFrom(file, 2);
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            int i = random.nextInt(ALPHABET.length() - 1);
+            text.append(ALPHABET.charAt(i));
+            if (Character.isHighSurrogate(ALPHABET.charAt(i))) {
+                text.append(ALPHABET.charAt(i + 1));
+            }
+        }
+        return text.toString();
+    }
+}